@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.ActionCache;
+import com.groupon.grox.Store;
+import java.util.Locale;
+
+/**
+ * Compares the bytes allocated, and the time spent, per {@link Store#dispatch(Action)} when the
+ * actions are allocated for each dispatch, and when they are shared: singletons for the actions
+ * that carry no data, and an {@link ActionCache} for the ones that carry a small value.
+ */
+public final class ActionAllocationBenchmark {
+  private static final int VALUE_COUNT = 16;
+  private static final int ITERATIONS = 1000000;
+
+  private ActionAllocationBenchmark() {
+    throw new AssertionError("No instances");
+  }
+
+  /**
+   * Runs the benchmark and prints its results.
+   *
+   * @param args not used.
+   */
+  public static void main(String[] args) {
+    final Store<Integer> store = new Store<>(0);
+    final ActionCache<Integer, Integer> cache = new ActionCache<>(VALUE_COUNT, SetAction::new);
+    final int[] counter = new int[1];
+
+    run("stateless, new instance", () -> store.dispatch(new RefreshAction()));
+    run("stateless, singleton", () -> store.dispatch(RefreshAction.INSTANCE));
+    run("value, new instance", () -> store.dispatch(new SetAction(counter[0]++ % VALUE_COUNT)));
+    run("value, cached", () -> store.dispatch(cache.get(counter[0]++ % VALUE_COUNT)));
+  }
+
+  private static void run(String name, Runnable dispatch) {
+    double bytes = AllocationMeter.bytesPerOperation(dispatch, ITERATIONS, ITERATIONS);
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      dispatch.run();
+    }
+    double nanos = (System.nanoTime() - start) / (double) ITERATIONS;
+    System.out.println(
+        String.format(
+            Locale.US, "%-25s %6.1f bytes/dispatch %6.1f ns/dispatch", name, bytes, nanos));
+  }
+
+  /** An action that carries no data. */
+  static final class RefreshAction implements Action<Integer> {
+    static final RefreshAction INSTANCE = new RefreshAction();
+
+    @Override
+    public Integer newState(Integer oldState) {
+      return oldState;
+    }
+  }
+
+  /** An action that carries a small value. */
+  static final class SetAction implements Action<Integer> {
+    private final Integer value;
+
+    SetAction(Integer value) {
+      this.value = value;
+    }
+
+    @Override
+    public Integer newState(Integer oldState) {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by an operation, with the allocated bytes counter of the current
+ * thread. Only the allocations of the current thread are counted, the operation must not hand over
+ * work to other threads. </br> The operation is warmed up first, so that the allocations removed by
+ * the JIT compiler, typically through escape analysis, are not counted.
+ */
+public final class AllocationMeter {
+  public static final int DEFAULT_WARMUP_ITERATIONS = 20000;
+  public static final int DEFAULT_MEASURED_ITERATIONS = 10000;
+
+  private AllocationMeter() {
+    throw new AssertionError("No instances");
+  }
+
+  /** @return true if the JVM can measure the bytes allocated by a thread. */
+  public static boolean isSupported() {
+    java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+      return false;
+    }
+    com.sun.management.ThreadMXBean sunThreadMXBean =
+        (com.sun.management.ThreadMXBean) threadMXBean;
+    if (!sunThreadMXBean.isThreadAllocatedMemorySupported()) {
+      return false;
+    }
+    if (!sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+      sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+    return true;
+  }
+
+  /**
+   * Measures the average number of bytes allocated by an operation, with the default number of
+   * iterations.
+   *
+   * @param operation the operation to measure.
+   * @return the average number of bytes allocated by an execution of the operation.
+   * @see #bytesPerOperation(Runnable, int, int)
+   */
+  public static double bytesPerOperation(Runnable operation) {
+    return bytesPerOperation(operation, DEFAULT_WARMUP_ITERATIONS, DEFAULT_MEASURED_ITERATIONS);
+  }
+
+  /**
+   * Measures the average number of bytes allocated by an operation. The bytes allocated by the
+   * measurement itself are subtracted.
+   *
+   * @param operation the operation to measure.
+   * @param warmupIterations the number of executions before the measure.
+   * @param measuredIterations the number of measured executions.
+   * @return the average number of bytes allocated by an execution of the operation.
+   * @throws IllegalStateException if the JVM can't measure allocations, see {@link #isSupported()}.
+   */
+  public static double bytesPerOperation(
+      Runnable operation, int warmupIterations, int measuredIterations) {
+    if (operation == null) {
+      throw new IllegalArgumentException("Operation is null");
+    }
+    if (measuredIterations < 1) {
+      throw new IllegalArgumentException(
+          "measuredIterations must be positive: " + measuredIterations);
+    }
+    if (!isSupported()) {
+      throw new IllegalStateException("The JVM can't measure the allocations of a thread");
+    }
+    for (int i = 0; i < warmupIterations; i++) {
+      operation.run();
+    }
+    long overhead = allocatedBytes();
+    overhead = allocatedBytes() - overhead;
+    long start = allocatedBytes();
+    for (int i = 0; i < measuredIterations; i++) {
+      operation.run();
+    }
+    long allocated = allocatedBytes() - start - overhead;
+    return Math.max(allocated, 0L) / (double) measuredIterations;
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
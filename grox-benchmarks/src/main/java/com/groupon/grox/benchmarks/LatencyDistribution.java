@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import java.util.Random;
+
+/** The distribution of the latencies of the simulated network calls of a {@link LoadTest}. */
+public abstract class LatencyDistribution {
+
+  /**
+   * @param random the source of randomness, owned by the caller.
+   * @return the latency of the next call, in milliseconds.
+   */
+  public abstract long nextMillis(Random random);
+
+  /** @return a distribution that always returns {@code millis}. */
+  public static LatencyDistribution fixed(final long millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis must not be negative: " + millis);
+    }
+    return new LatencyDistribution() {
+      @Override
+      public long nextMillis(Random random) {
+        return millis;
+      }
+
+      @Override
+      public String toString() {
+        return "fixed:" + millis;
+      }
+    };
+  }
+
+  /** @return a distribution of latencies uniformly distributed between min and max, inclusive. */
+  public static LatencyDistribution uniform(final long minMillis, final long maxMillis) {
+    if (minMillis < 0 || maxMillis < minMillis) {
+      throw new IllegalArgumentException("Invalid range: " + minMillis + ".." + maxMillis);
+    }
+    return new LatencyDistribution() {
+      @Override
+      public long nextMillis(Random random) {
+        return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+      }
+
+      @Override
+      public String toString() {
+        return "uniform:" + minMillis + ":" + maxMillis;
+      }
+    };
+  }
+
+  /**
+   * @return an exponential distribution of latencies, whose long tail is closer to the one of real
+   *     network calls.
+   */
+  public static LatencyDistribution exponential(final double meanMillis) {
+    if (meanMillis <= 0) {
+      throw new IllegalArgumentException("meanMillis must be positive: " + meanMillis);
+    }
+    return new LatencyDistribution() {
+      @Override
+      public long nextMillis(Random random) {
+        return Math.round(-meanMillis * Math.log(1 - random.nextDouble()));
+      }
+
+      @Override
+      public String toString() {
+        return "exponential:" + meanMillis;
+      }
+    };
+  }
+
+  /**
+   * Parses a distribution, as printed by its {@code toString} method: {@code fixed:<millis>},
+   * {@code uniform:<min>:<max>} or {@code exponential:<mean>}.
+   *
+   * @param spec the distribution to parse.
+   * @return the distribution.
+   */
+  public static LatencyDistribution parse(String spec) {
+    String[] parts = spec.split(":");
+    if (parts[0].equals("fixed") && parts.length == 2) {
+      return fixed(Long.parseLong(parts[1]));
+    }
+    if (parts[0].equals("uniform") && parts.length == 3) {
+      return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+    }
+    if (parts[0].equals("exponential") && parts.length == 2) {
+      return exponential(Double.parseDouble(parts[1]));
+    }
+    throw new IllegalArgumentException("Invalid latency distribution: " + spec);
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies and computes their percentiles. All the samples are kept, which is fine for the
+ * size of a load test. </br> A recorder is not thread safe: it must be used by the listener of a
+ * store, which is notified by one thread at a time.
+ */
+public final class LatencyRecorder {
+  private long[] samples;
+  private int count;
+
+  /** @param expectedCount the expected number of samples, used to size the recorder. */
+  public LatencyRecorder(int expectedCount) {
+    samples = new long[Math.max(expectedCount, 16)];
+  }
+
+  /** @param nanos the latency to record. */
+  public void record(long nanos) {
+    if (count == samples.length) {
+      samples = Arrays.copyOf(samples, count * 2);
+    }
+    samples[count++] = nanos;
+  }
+
+  /** @return the number of recorded latencies. */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Computes percentiles with the nearest rank method.
+   *
+   * @param percentiles the percentiles to compute, between 0 and 100.
+   * @return the latencies at the given percentiles, in nanoseconds, or 0 if nothing was recorded.
+   */
+  public long[] percentiles(double... percentiles) {
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    long[] result = new long[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      if (percentiles[i] < 0 || percentiles[i] > 100) {
+        throw new IllegalArgumentException("Invalid percentile: " + percentiles[i]);
+      }
+      if (count > 0) {
+        int rank = (int) Math.ceil(percentiles[i] / 100 * count);
+        result[i] = sorted[Math.max(rank, 1) - 1];
+      }
+    }
+    return result;
+  }
+}
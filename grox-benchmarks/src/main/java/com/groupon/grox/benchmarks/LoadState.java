@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+/**
+ * The state of the store of a {@link LoadTest}. Like the state of the samples, it holds a color
+ * refreshed by commands, and it also counts the commands.
+ */
+public final class LoadState {
+  public static final int INVALID_COLOR = -1;
+
+  public final int color;
+  public final boolean isRefreshing;
+  public final int succeeded;
+  public final int failed;
+  /** The time the last action applied to this state was created, see {@link System#nanoTime()}. */
+  public final long actionNanos;
+
+  public LoadState(int color, boolean isRefreshing, int succeeded, int failed, long actionNanos) {
+    this.color = color;
+    this.isRefreshing = isRefreshing;
+    this.succeeded = succeeded;
+    this.failed = failed;
+    this.actionNanos = actionNanos;
+  }
+
+  public static LoadState empty() {
+    return new LoadState(INVALID_COLOR, false, 0, 0, 0L);
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import com.groupon.grox.Store;
+import io.reactivex.schedulers.Schedulers;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives thousands of {@link SimulatedCommand}s concurrently into a {@link Store}, and reports the
+ * latency between the creation of each action and the notification of the resulting state, as well
+ * as the throughput of the store. </br> It can be run from the command line, see {@link
+ * #main(String[])}.
+ */
+public class LoadTest {
+  public static final int DEFAULT_COMMAND_COUNT = 10000;
+  public static final int DEFAULT_CONCURRENCY = 256;
+  public static final String DEFAULT_LATENCY = "exponential:20";
+  public static final double DEFAULT_ERROR_RATE = 0.2;
+  public static final long DEFAULT_SEED = 7;
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+  private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99.9", "max"};
+  /** Each command dispatches a refresh action, and then a color change or an error action. */
+  private static final int ACTIONS_PER_COMMAND = 2;
+
+  private final int commandCount;
+  private final int concurrency;
+  private final LatencyDistribution latency;
+  private final double errorRate;
+  private final long seed;
+
+  /**
+   * Creates a load test.
+   *
+   * @param commandCount the number of commands to execute.
+   * @param concurrency the maximum number of commands executed at the same time.
+   * @param latency the distribution of the latencies of the simulated network calls.
+   * @param errorRate the probability of a simulated network call to fail, between 0 and 1.
+   * @param seed the seed of the random latencies, colors and errors.
+   */
+  public LoadTest(
+      int commandCount, int concurrency, LatencyDistribution latency, double errorRate, long seed) {
+    if (commandCount < 1) {
+      throw new IllegalArgumentException("commandCount must be positive: " + commandCount);
+    }
+    if (concurrency < 1) {
+      throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+    }
+    if (latency == null) {
+      throw new IllegalArgumentException("Latency distribution is null");
+    }
+    if (errorRate < 0 || errorRate > 1) {
+      throw new IllegalArgumentException("errorRate must be between 0 and 1: " + errorRate);
+    }
+    this.commandCount = commandCount;
+    this.concurrency = concurrency;
+    this.latency = latency;
+    this.errorRate = errorRate;
+    this.seed = seed;
+  }
+
+  /**
+   * Runs the load test, and waits for all the commands to complete.
+   *
+   * @return the report of the run.
+   * @throws InterruptedException if the thread is interrupted while waiting for the commands.
+   */
+  public Report run() throws InterruptedException {
+    final Store<LoadState> store = new Store<>(LoadState.empty());
+    final LatencyRecorder recorder = new LatencyRecorder(ACTIONS_PER_COMMAND * commandCount);
+    final CountDownLatch notified = new CountDownLatch(ACTIONS_PER_COMMAND * commandCount);
+    store.subscribe(
+        state -> {
+          // the initial state wasn't created by an action.
+          if (state.actionNanos != 0L) {
+            recorder.record(System.nanoTime() - state.actionNanos);
+            notified.countDown();
+          }
+        });
+    final Random random = new Random(seed);
+    final Semaphore permits = new Semaphore(concurrency);
+
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < commandCount; i++) {
+      permits.acquire();
+      new SimulatedCommand(random, latency, errorRate, Schedulers.computation())
+          .actions()
+          .subscribeOn(Schedulers.io())
+          .doFinally(permits::release)
+          .subscribe(store::dispatch);
+    }
+    // an action dispatched while the store is busy is executed after its command completes.
+    notified.await();
+    long elapsedNanos = System.nanoTime() - startNanos;
+
+    LoadState state = store.getState();
+    return new Report(
+        commandCount,
+        state.succeeded,
+        state.failed,
+        recorder.getCount(),
+        elapsedNanos,
+        recorder.percentiles(PERCENTILES));
+  }
+
+  /**
+   * Runs a load test and prints its report. The arguments are optional: {@code --commands=<count>
+   * --concurrency=<count> --latency=<distribution> --error-rate=<rate> --seed=<seed>}, see {@link
+   * LatencyDistribution#parse(String)} for the distributions.
+   *
+   * @param args the arguments of the load test.
+   * @throws InterruptedException if the load test is interrupted.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    int commandCount = DEFAULT_COMMAND_COUNT;
+    int concurrency = DEFAULT_CONCURRENCY;
+    String latency = DEFAULT_LATENCY;
+    double errorRate = DEFAULT_ERROR_RATE;
+    long seed = DEFAULT_SEED;
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Invalid argument: " + arg);
+      }
+      String value = arg.substring(separator + 1);
+      switch (arg.substring(2, separator)) {
+        case "commands":
+          commandCount = Integer.parseInt(value);
+          break;
+        case "concurrency":
+          concurrency = Integer.parseInt(value);
+          break;
+        case "latency":
+          latency = value;
+          break;
+        case "error-rate":
+          errorRate = Double.parseDouble(value);
+          break;
+        case "seed":
+          seed = Long.parseLong(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    LoadTest loadTest =
+        new LoadTest(
+            commandCount, concurrency, LatencyDistribution.parse(latency), errorRate, seed);
+    System.out.println(loadTest.run());
+  }
+
+  /** The results of a {@link LoadTest}. */
+  public static final class Report {
+    private final int commandCount;
+    private final int succeededCount;
+    private final int failedCount;
+    private final int actionCount;
+    private final long elapsedNanos;
+    private final long[] latencyPercentiles;
+
+    Report(
+        int commandCount,
+        int succeededCount,
+        int failedCount,
+        int actionCount,
+        long elapsedNanos,
+        long[] latencyPercentiles) {
+      this.commandCount = commandCount;
+      this.succeededCount = succeededCount;
+      this.failedCount = failedCount;
+      this.actionCount = actionCount;
+      this.elapsedNanos = elapsedNanos;
+      this.latencyPercentiles = latencyPercentiles;
+    }
+
+    public int getCommandCount() {
+      return commandCount;
+    }
+
+    public int getSucceededCount() {
+      return succeededCount;
+    }
+
+    public int getFailedCount() {
+      return failedCount;
+    }
+
+    /** @return the number of actions executed by the store. */
+    public int getActionCount() {
+      return actionCount;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /** @return the number of actions executed by the store per second. */
+    public double getThroughput() {
+      return actionCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @return the latencies between the creation of the actions and the notification of their
+     *     states, at the 50th, 90th, 99th, 99.9th and 100th percentiles, in nanoseconds.
+     */
+    public long[] getLatencyPercentiles() {
+      return latencyPercentiles.clone();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder report = new StringBuilder();
+      report.append(
+          String.format(
+              Locale.US,
+              "commands: %d (%d succeeded, %d failed)%n"
+                  + "actions: %d in %.1f ms, %.0f actions/s%n"
+                  + "action to notification latency (us):",
+              commandCount,
+              succeededCount,
+              failedCount,
+              actionCount,
+              elapsedNanos / 1e6,
+              getThroughput()));
+      for (int i = 0; i < PERCENTILES.length; i++) {
+        report.append(
+            String.format(Locale.US, " %s=%.1f", PERCENTILE_NAMES[i], latencyPercentiles[i] / 1e3));
+      }
+      return report.toString();
+    }
+  }
+}
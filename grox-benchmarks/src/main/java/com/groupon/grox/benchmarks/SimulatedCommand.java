@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import static io.reactivex.Observable.fromCallable;
+import static io.reactivex.Observable.timer;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.commands.rxjava2.Command;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a network call to obtain a color, like the {@code RefreshColorCommand} of the samples,
+ * with a configurable latency and error rate. This command will first ask to refresh, then emit a
+ * color change action or an error action. The actions record the time they are created, to measure
+ * the latency of the store.
+ */
+public class SimulatedCommand implements Command<LoadState> {
+  private static final int MAX_COLOR = 1 << 24;
+  private static final String ERROR_MSG = "Error. Please retry.";
+
+  private final long latencyMillis;
+  private final boolean fails;
+  private final int color;
+  private final Scheduler scheduler;
+
+  /**
+   * Creates a command. Its latency and outcome are drawn at creation, so that a load test doesn't
+   * contend on a shared source of randomness.
+   *
+   * @param random the source of randomness, owned by the caller.
+   * @param latency the distribution of the latency of the simulated call.
+   * @param errorRate the probability of the simulated call to fail, between 0 and 1.
+   * @param scheduler the scheduler emitting the result of the simulated call.
+   */
+  public SimulatedCommand(
+      Random random, LatencyDistribution latency, double errorRate, Scheduler scheduler) {
+    this.latencyMillis = latency.nextMillis(random);
+    this.fails = random.nextDouble() < errorRate;
+    this.color = random.nextInt(MAX_COLOR);
+    this.scheduler = scheduler;
+  }
+
+  // don't forget to convert errors in actions
+  @Override
+  public Observable<? extends Action<LoadState>> actions() {
+    final Observable<Action<LoadState>> refresh =
+        fromCallable(() -> new RefreshAction(System.nanoTime()));
+
+    return refresh.concatWith(refreshColor()).onErrorReturn(error -> new ErrorAction());
+  }
+
+  private Observable<Action<LoadState>> refreshColor() {
+    return getColorFromServer().map(ChangeColorAction::new);
+  }
+
+  // fake network call
+  private Observable<Integer> getColorFromServer() {
+    final Observable<Integer> result =
+        fails ? Observable.<Integer>error(new RuntimeException(ERROR_MSG)) : Observable.just(color);
+    return result.delaySubscription(timer(latencyMillis, TimeUnit.MILLISECONDS, scheduler));
+  }
+
+  static final class RefreshAction implements Action<LoadState> {
+    private final long nanos;
+
+    RefreshAction(long nanos) {
+      this.nanos = nanos;
+    }
+
+    @Override
+    public LoadState newState(LoadState oldState) {
+      return new LoadState(oldState.color, true, oldState.succeeded, oldState.failed, nanos);
+    }
+  }
+
+  static final class ChangeColorAction implements Action<LoadState> {
+    private final int color;
+    private final long nanos = System.nanoTime();
+
+    ChangeColorAction(int color) {
+      this.color = color;
+    }
+
+    @Override
+    public LoadState newState(LoadState oldState) {
+      return new LoadState(color, false, oldState.succeeded + 1, oldState.failed, nanos);
+    }
+  }
+
+  static final class ErrorAction implements Action<LoadState> {
+    private final long nanos = System.nanoTime();
+
+    @Override
+    public LoadState newState(LoadState oldState) {
+      return new LoadState(
+          LoadState.INVALID_COLOR, false, oldState.succeeded, oldState.failed + 1, nanos);
+    }
+  }
+}
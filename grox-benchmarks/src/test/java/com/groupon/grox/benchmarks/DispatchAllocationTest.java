@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.rxjava2.RxStores;
+import io.reactivex.disposables.Disposable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Fails when the bytes allocated by {@link Store#dispatch(Action)} exceed a budget. The budgets
+ * leave some room above the current allocations, which depend on the JIT: they catch the
+ * allocations that are added per dispatch, per middleware or per listener, not small variations.
+ */
+public class DispatchAllocationTest {
+
+  /** The budget of a dispatch, which doesn't depend on the number of listeners. */
+  private static final int DISPATCH_BUDGET_BYTES = 160;
+  /** The additional budget of each middleware. */
+  private static final int MIDDLEWARE_BUDGET_BYTES = 64;
+  /** The additional budget of the Rx subscriptions, for each subscriber. */
+  private static final int RX_SUBSCRIBER_BUDGET_BYTES = 32;
+
+  private static final Logger LOGGER = Logger.getLogger(DispatchAllocationTest.class.getName());
+  /** An action that doesn't allocate, so that only the allocations of the store are measured. */
+  private static final Action<Integer> IDENTITY = oldState -> oldState;
+
+  @Before
+  public void setUp() {
+    assumeTrue(AllocationMeter.isSupported());
+  }
+
+  @Test
+  public void testDispatch_withoutMiddlewareNorListener_shouldStayInBudget() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+
+    //WHEN
+    double bytes = AllocationMeter.bytesPerOperation(() -> store.dispatch(IDENTITY));
+
+    //THEN
+    assertWithinBudget(bytes, DISPATCH_BUDGET_BYTES);
+  }
+
+  @Test
+  public void testDispatch_withLoggingMiddleware_shouldStayInBudget() {
+    //GIVEN
+    Store.Middleware<Integer> loggingMiddleware =
+        chain -> {
+          if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Dispatching " + chain.action());
+          }
+          chain.proceed(chain.action());
+        };
+    Store<Integer> store = new Store<>(0, loggingMiddleware, loggingMiddleware);
+
+    //WHEN
+    double bytes = AllocationMeter.bytesPerOperation(() -> store.dispatch(IDENTITY));
+
+    //THEN
+    assertWithinBudget(bytes, DISPATCH_BUDGET_BYTES + 2 * MIDDLEWARE_BUDGET_BYTES);
+  }
+
+  @Test
+  public void testDispatch_withRxSubscribers_shouldStayInBudget() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    Disposable first = RxStores.states(store).subscribe(state -> {});
+    Disposable second = RxStores.states(store).subscribe(state -> {});
+
+    //WHEN
+    double bytes = AllocationMeter.bytesPerOperation(() -> store.dispatch(IDENTITY));
+    first.dispose();
+    second.dispose();
+
+    //THEN
+    assertWithinBudget(bytes, DISPATCH_BUDGET_BYTES + 2 * RX_SUBSCRIBER_BUDGET_BYTES);
+  }
+
+  @Test
+  public void testDispatch_withManyListeners_shouldNotAllocatePerListener() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    for (int i = 0; i < 100; i++) {
+      store.subscribe(state -> {});
+    }
+
+    //WHEN
+    double bytes = AllocationMeter.bytesPerOperation(() -> store.dispatch(IDENTITY));
+
+    //THEN
+    assertWithinBudget(bytes, DISPATCH_BUDGET_BYTES);
+  }
+
+  private static void assertWithinBudget(double bytes, int budget) {
+    assertThat(
+        "allocated " + bytes + " bytes per dispatch, the budget is " + budget,
+        bytes <= budget,
+        is(true));
+  }
+}
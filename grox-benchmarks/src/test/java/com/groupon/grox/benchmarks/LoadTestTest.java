@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.benchmarks;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class LoadTestTest {
+
+  @Test
+  public void testRun_shouldExecuteAllCommandsAndMeasureAllActions() throws Exception {
+    //GIVEN
+    LoadTest loadTest = new LoadTest(500, 32, LatencyDistribution.uniform(0, 2), 0.2, 7);
+
+    //WHEN
+    LoadTest.Report report = loadTest.run();
+
+    //THEN
+    assertThat(report.getSucceededCount() + report.getFailedCount(), is(500));
+    assertThat(report.getFailedCount() > 0, is(true));
+    assertThat(report.getActionCount(), is(1000));
+    long[] percentiles = report.getLatencyPercentiles();
+    assertThat(percentiles[0] <= percentiles[percentiles.length - 1], is(true));
+  }
+
+  @Test
+  public void testPercentiles_shouldUseNearestRank() {
+    //GIVEN
+    LatencyRecorder recorder = new LatencyRecorder(4);
+    for (long latency = 100; latency >= 1; latency--) {
+      recorder.record(latency);
+    }
+
+    //WHEN
+    long[] percentiles = recorder.percentiles(0, 50, 99, 100);
+
+    //THEN
+    assertThat(percentiles[0], is(1L));
+    assertThat(percentiles[1], is(50L));
+    assertThat(percentiles[2], is(99L));
+    assertThat(percentiles[3], is(100L));
+  }
+
+  @Test
+  public void testParse_shouldParseDistributions() {
+    //GIVEN
+    Random random = new Random(7);
+
+    //WHEN
+    long fixed = LatencyDistribution.parse("fixed:5").nextMillis(random);
+    long uniform = LatencyDistribution.parse("uniform:3:4").nextMillis(random);
+    LatencyDistribution exponential = LatencyDistribution.parse("exponential:2.5");
+
+    //THEN
+    assertThat(fixed, is(5L));
+    assertThat(uniform >= 3 && uniform <= 4, is(true));
+    assertThat(exponential.toString(), is("exponential:2.5"));
+  }
+}
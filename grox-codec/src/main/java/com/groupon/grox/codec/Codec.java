@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.codec;
+
+import java.io.IOException;
+
+/**
+ * Converts values, typically states and actions, to and from bytes, so that they can be sent to
+ * another process.
+ *
+ * @param <T> the class of the values.
+ * @see SerializationCodec
+ */
+public interface Codec<T> {
+  byte[] encode(T value) throws IOException;
+
+  T decode(byte[] bytes) throws IOException;
+}
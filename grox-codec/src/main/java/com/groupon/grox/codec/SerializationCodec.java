@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * A codec based on Java serialization: values must be {@link java.io.Serializable}. Note that
+ * lambdas are only serializable when their target type is. </br> <em>Warning:</em> Java
+ * serialization must only be used with trusted peers, as decoding bytes can execute code of any
+ * serializable class of the class path.
+ *
+ * @param <T> the class of the values.
+ */
+public final class SerializationCodec<T> implements Codec<T> {
+
+  @Override
+  public byte[] encode(T value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream output = new ObjectOutputStream(bytes);
+    try {
+      output.writeObject(value);
+    } finally {
+      output.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T decode(byte[] bytes) throws IOException {
+    ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes));
+    try {
+      return (T) input.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Unknown class", e);
+    } finally {
+      input.close();
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates the {@code Grox_<Name>} class of each class annotated with {@code
+ * com.groupon.grox.ImmutableState}. The annotation is referred to by name, so that the processor
+ * doesn't depend on grox-core.
+ *
+ * @see StateClassWriter
+ */
+public final class ImmutableStateProcessor extends AbstractProcessor {
+  static final String ANNOTATION = "com.groupon.grox.ImmutableState";
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(ANNOTATION);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        process(element);
+      }
+    }
+    return true;
+  }
+
+  private void process(Element element) {
+    if (element.getKind() != ElementKind.CLASS) {
+      error(element, "@ImmutableState only applies to classes");
+      return;
+    }
+    TypeElement stateClass = (TypeElement) element;
+    if (!stateClass.getTypeParameters().isEmpty()) {
+      error(stateClass, "@ImmutableState classes can't be generic");
+      return;
+    }
+    if (stateClass.getModifiers().contains(Modifier.PRIVATE)
+        || stateClass.getNestingKind().isNested()
+            && !stateClass.getModifiers().contains(Modifier.STATIC)) {
+      error(stateClass, "@ImmutableState classes must be top level or static, and not private");
+      return;
+    }
+    List<VariableElement> fields = new ArrayList<>();
+    for (VariableElement field : ElementFilter.fieldsIn(stateClass.getEnclosedElements())) {
+      if (field.getModifiers().contains(Modifier.STATIC)) {
+        continue;
+      }
+      if (!field.getModifiers().contains(Modifier.FINAL)
+          || field.getModifiers().contains(Modifier.PRIVATE)) {
+        error(field, "The fields of an @ImmutableState class must be final and not private");
+        return;
+      }
+      if (field.getSimpleName().toString().startsWith(StateClassWriter.RESERVED_PREFIX)) {
+        error(
+            field,
+            "The names of the fields of an @ImmutableState class can't start with "
+                + StateClassWriter.RESERVED_PREFIX
+                + ", it is reserved for the generated code");
+        return;
+      }
+      fields.add(field);
+    }
+    if (fields.isEmpty()) {
+      error(stateClass, "An @ImmutableState class must have fields");
+      return;
+    }
+    if (!hasFieldsConstructor(stateClass, fields)) {
+      error(
+          stateClass,
+          "An @ImmutableState class must have a constructor whose parameters are its fields,"
+              + " in the order of their declarations");
+      return;
+    }
+    write(stateClass, fields);
+  }
+
+  private boolean hasFieldsConstructor(TypeElement stateClass, List<VariableElement> fields) {
+    for (ExecutableElement constructor :
+        ElementFilter.constructorsIn(stateClass.getEnclosedElements())) {
+      List<? extends VariableElement> parameters = constructor.getParameters();
+      if (constructor.getModifiers().contains(Modifier.PRIVATE)
+          || parameters.size() != fields.size()) {
+        continue;
+      }
+      boolean matches = true;
+      for (int i = 0; i < fields.size() && matches; i++) {
+        matches =
+            processingEnv
+                .getTypeUtils()
+                .isSameType(parameters.get(i).asType(), fields.get(i).asType());
+      }
+      if (matches) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void write(TypeElement stateClass, List<VariableElement> fields) {
+    PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(stateClass);
+    StateClassWriter writer = new StateClassWriter(packageElement, stateClass, fields);
+    try {
+      JavaFileObject file =
+          processingEnv.getFiler().createSourceFile(writer.getQualifiedName(), stateClass);
+      try (Writer out = file.openWriter()) {
+        out.write(writer.write());
+      }
+    } catch (IOException e) {
+      error(stateClass, "Could not write " + writer.getQualifiedName() + ": " + e.getMessage());
+    }
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.compiler;
+
+import java.util.List;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Writes the source of the {@code Grox_<Name>} class of a state class. The generated code only
+ * allocates a new state when a value actually changes, and compares the fields directly, without
+ * reflection. </br> Values are compared like their boxed types do: {@code ==} for the primitives
+ * but floats and doubles, which are compared by their bits, {@code equals} for the objects, and the
+ * contents for the arrays.
+ */
+final class StateClassWriter {
+  private static final String INDENT = "  ";
+  /**
+   * The names of the parameters and variables of the generated code. They start with a {@code $}
+   * so that they can't clash with the fields of the state, see {@link ImmutableStateProcessor}.
+   */
+  static final String RESERVED_PREFIX = "$";
+
+  private static final String STATE = RESERVED_PREFIX + "state";
+  private static final String OTHER = RESERVED_PREFIX + "other";
+  private static final String THAT = RESERVED_PREFIX + "that";
+  private static final String RESULT = RESERVED_PREFIX + "result";
+
+  private final String packageName;
+  private final String stateName;
+  private final String generatedName;
+  /** The generated class is public only if the state class is. */
+  private final String visibility;
+
+  private final List<VariableElement> fields;
+
+  StateClassWriter(
+      PackageElement packageElement, TypeElement stateClass, List<VariableElement> fields) {
+    this.packageName =
+        packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    this.stateName = stateClass.getQualifiedName().toString();
+    this.generatedName = "Grox_" + flatName(stateClass);
+    this.visibility = stateClass.getModifiers().contains(Modifier.PUBLIC) ? "public " : "";
+    this.fields = fields;
+  }
+
+  /** @return the qualified name of the generated class. */
+  String getQualifiedName() {
+    return packageName.isEmpty() ? generatedName : packageName + "." + generatedName;
+  }
+
+  /** @return the source of the generated class. */
+  String write() {
+    StringBuilder out = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      out.append("package ").append(packageName).append(";\n\n");
+    }
+    out.append("/** Generated by the grox compiler for {@link ")
+        .append(stateName)
+        .append("}, do not edit. */\n");
+    out.append(visibility).append("final class ").append(generatedName).append(" {\n");
+    line(out, 1, "private " + generatedName + "() {");
+    line(out, 2, "throw new AssertionError();");
+    line(out, 1, "}");
+    for (VariableElement field : fields) {
+      writeWith(out, field);
+    }
+    writeBuilderFactory(out);
+    writeEquals(out);
+    writeHashCode(out);
+    writeBuilder(out);
+    out.append("}\n");
+    return out.toString();
+  }
+
+  private void writeWith(StringBuilder out, VariableElement field) {
+    String name = name(field);
+    out.append('\n');
+    line(
+        out,
+        1,
+        "public static "
+            + stateName
+            + " with"
+            + capitalize(name)
+            + "("
+            + stateName
+            + " "
+            + STATE
+            + ", "
+            + type(field)
+            + " "
+            + name
+            + ") {");
+    line(out, 2, "if (" + same(field, STATE + "." + name, name) + ") {");
+    line(out, 3, "return " + STATE + ";");
+    line(out, 2, "}");
+    StringBuilder arguments = new StringBuilder();
+    for (VariableElement other : fields) {
+      if (arguments.length() > 0) {
+        arguments.append(", ");
+      }
+      arguments.append(other == field ? name : STATE + "." + name(other));
+    }
+    line(out, 2, "return new " + stateName + "(" + arguments + ");");
+    line(out, 1, "}");
+  }
+
+  private void writeBuilderFactory(StringBuilder out) {
+    out.append('\n');
+    line(out, 1, "public static Builder builder(" + stateName + " " + STATE + ") {");
+    line(out, 2, "return new Builder(" + STATE + ");");
+    line(out, 1, "}");
+  }
+
+  private void writeEquals(StringBuilder out) {
+    out.append('\n');
+    line(
+        out,
+        1,
+        "public static boolean equals(" + stateName + " " + STATE + ", Object " + OTHER + ") {");
+    line(out, 2, "if (" + STATE + " == " + OTHER + ") {");
+    line(out, 3, "return true;");
+    line(out, 2, "}");
+    line(
+        out,
+        2,
+        "if (" + OTHER + " == null || " + OTHER + ".getClass() != " + STATE + ".getClass()) {");
+    line(out, 3, "return false;");
+    line(out, 2, "}");
+    line(out, 2, stateName + " " + THAT + " = (" + stateName + ") " + OTHER + ";");
+    StringBuilder condition = new StringBuilder();
+    for (VariableElement field : fields) {
+      if (condition.length() > 0) {
+        condition.append("\n").append(indent(4));
+        condition.append("&& ");
+      }
+      condition.append(term(field, STATE + "." + name(field), THAT + "." + name(field)));
+    }
+    line(out, 2, "return " + condition + ";");
+    line(out, 1, "}");
+  }
+
+  private void writeHashCode(StringBuilder out) {
+    out.append('\n');
+    line(out, 1, "public static int hashCode(" + stateName + " " + STATE + ") {");
+    line(out, 2, "int " + RESULT + " = 1;");
+    for (VariableElement field : fields) {
+      line(
+          out,
+          2,
+          RESULT + " = 31 * " + RESULT + " + " + hash(field, STATE + "." + name(field)) + ";");
+    }
+    line(out, 2, "return " + RESULT + ";");
+    line(out, 1, "}");
+  }
+
+  private void writeBuilder(StringBuilder out) {
+    out.append('\n');
+    line(out, 1, "/** Changes several fields of a state, with a single copy. */");
+    line(out, 1, "public static final class Builder {");
+    line(out, 2, "private final " + stateName + " " + STATE + ";");
+    for (VariableElement field : fields) {
+      line(out, 2, "private " + type(field) + " " + name(field) + ";");
+    }
+    out.append('\n');
+    line(out, 2, "private Builder(" + stateName + " " + STATE + ") {");
+    line(out, 3, "this." + STATE + " = " + STATE + ";");
+    for (VariableElement field : fields) {
+      line(out, 3, "this." + name(field) + " = " + STATE + "." + name(field) + ";");
+    }
+    line(out, 2, "}");
+    for (VariableElement field : fields) {
+      String name = name(field);
+      out.append('\n');
+      line(out, 2, "public Builder " + name + "(" + type(field) + " " + name + ") {");
+      line(out, 3, "this." + name + " = " + name + ";");
+      line(out, 3, "return this;");
+      line(out, 2, "}");
+    }
+    out.append('\n');
+    line(out, 2, "/** @return the new state, or the initial one if no value changed. */");
+    line(out, 2, "public " + stateName + " build() {");
+    StringBuilder unchanged = new StringBuilder();
+    StringBuilder arguments = new StringBuilder();
+    for (VariableElement field : fields) {
+      if (unchanged.length() > 0) {
+        unchanged.append("\n").append(indent(5));
+        unchanged.append("&& ");
+        arguments.append(", ");
+      }
+      unchanged.append(term(field, STATE + "." + name(field), name(field)));
+      arguments.append(name(field));
+    }
+    line(out, 3, "if (" + unchanged + ") {");
+    line(out, 4, "return " + STATE + ";");
+    line(out, 3, "}");
+    line(out, 3, "return new " + stateName + "(" + arguments + ");");
+    line(out, 2, "}");
+    line(out, 1, "}");
+  }
+
+  /**
+   * @return the expression that compares two values of the type of a field, as a term of a
+   *     conjunction.
+   */
+  private static String term(VariableElement field, String left, String right) {
+    String same = same(field, left, right);
+    return field.asType().getKind().isPrimitive() || field.asType().getKind() == TypeKind.ARRAY
+        ? same
+        : "(" + same + ")";
+  }
+
+  /** @return the expression that compares two values of the type of a field. */
+  private static String same(VariableElement field, String left, String right) {
+    TypeMirror type = field.asType();
+    switch (type.getKind()) {
+      case FLOAT:
+        return "Float.floatToIntBits(" + left + ") == Float.floatToIntBits(" + right + ")";
+      case DOUBLE:
+        return "Double.doubleToLongBits(" + left + ") == Double.doubleToLongBits(" + right + ")";
+      case ARRAY:
+        return "java.util.Arrays.equals(" + left + ", " + right + ")";
+      default:
+        if (type.getKind().isPrimitive()) {
+          return left + " == " + right;
+        }
+        return left
+            + " == "
+            + right
+            + " || "
+            + left
+            + " != null && "
+            + left
+            + ".equals("
+            + right
+            + ")";
+    }
+  }
+
+  /** @return the expression of the hash code of a value of the type of a field. */
+  private static String hash(VariableElement field, String value) {
+    TypeMirror type = field.asType();
+    switch (type.getKind()) {
+      case BOOLEAN:
+        return "(" + value + " ? 1231 : 1237)";
+      case LONG:
+        return "(int) (" + value + " ^ (" + value + " >>> 32))";
+      case FLOAT:
+        return "Float.floatToIntBits(" + value + ")";
+      case DOUBLE:
+        return "(int) (Double.doubleToLongBits("
+            + value
+            + ") ^ (Double.doubleToLongBits("
+            + value
+            + ") >>> 32))";
+      case ARRAY:
+        return "java.util.Arrays.hashCode(" + value + ")";
+      default:
+        if (type.getKind().isPrimitive()) {
+          return value;
+        }
+        return "(" + value + " == null ? 0 : " + value + ".hashCode())";
+    }
+  }
+
+  private static String name(VariableElement field) {
+    return field.getSimpleName().toString();
+  }
+
+  private static String type(VariableElement field) {
+    return field.asType().toString();
+  }
+
+  private static String capitalize(String name) {
+    return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+  }
+
+  /** @return the simple names of a class and of its enclosing classes, joined by underscores. */
+  private static String flatName(TypeElement type) {
+    Element enclosing = type.getEnclosingElement();
+    if (enclosing instanceof TypeElement) {
+      return flatName((TypeElement) enclosing) + "_" + type.getSimpleName();
+    }
+    return type.getSimpleName().toString();
+  }
+
+  private static void line(StringBuilder out, int indent, String line) {
+    out.append(indent(indent)).append(line).append('\n');
+  }
+
+  private static String indent(int indent) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < indent; i++) {
+      result.append(INDENT);
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.compiler;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImmutableStateProcessorTest {
+
+  private static final String STATE_SOURCE =
+      "package test;\n"
+          + "@com.groupon.grox.ImmutableState\n"
+          + "public class State {\n"
+          + "  public final int color;\n"
+          + "  public final String error;\n"
+          + "  public final double ratio;\n"
+          + "  public State(int color, String error, double ratio) {\n"
+          + "    this.color = color;\n"
+          + "    this.error = error;\n"
+          + "    this.ratio = ratio;\n"
+          + "  }\n"
+          + "}\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testWith_whenValueIsUnchanged_shouldReturnSameState() throws Exception {
+    //GIVEN
+    Class<?> generated = compile(STATE_SOURCE).loadClass("test.Grox_State");
+    Object state = newState(generated, 1, "error", 0.5);
+    Method withColor =
+        generated.getMethod(
+            "withColor", generated.getClassLoader().loadClass("test.State"), int.class);
+
+    //WHEN
+    Object unchanged = withColor.invoke(null, state, 1);
+    Object changed = withColor.invoke(null, state, 2);
+
+    //THEN
+    assertThat(unchanged, sameInstance(state));
+    assertThat(changed, not(sameInstance(state)));
+    assertThat(changed.getClass().getField("color").get(changed), is((Object) 2));
+    assertThat(changed.getClass().getField("error").get(changed), is((Object) "error"));
+  }
+
+  @Test
+  public void testBuilder_shouldCopyOnlyWhenAValueChanges() throws Exception {
+    //GIVEN
+    ClassLoader classLoader = compile(STATE_SOURCE);
+    Class<?> generated = classLoader.loadClass("test.Grox_State");
+    Class<?> stateClass = classLoader.loadClass("test.State");
+    Object state = newState(generated, 1, "error", 0.5);
+    Method builder = generated.getMethod("builder", stateClass);
+    Class<?> builderClass = classLoader.loadClass("test.Grox_State$Builder");
+
+    //WHEN
+    Object unchangedBuilder = builder.invoke(null, state);
+    builderClass.getMethod("error", String.class).invoke(unchangedBuilder, new String("error"));
+    Object unchanged = builderClass.getMethod("build").invoke(unchangedBuilder);
+    Object changedBuilder = builder.invoke(null, state);
+    builderClass.getMethod("color", int.class).invoke(changedBuilder, 3);
+    builderClass.getMethod("ratio", double.class).invoke(changedBuilder, 1.5);
+    Object changed = builderClass.getMethod("build").invoke(changedBuilder);
+
+    //THEN
+    assertThat(unchanged, sameInstance(state));
+    assertThat(stateClass.getField("color").get(changed), is((Object) 3));
+    assertThat(stateClass.getField("ratio").get(changed), is((Object) 1.5));
+  }
+
+  @Test
+  public void testEqualsAndHashCode_shouldCompareFields() throws Exception {
+    //GIVEN
+    ClassLoader classLoader = compile(STATE_SOURCE);
+    Class<?> generated = classLoader.loadClass("test.Grox_State");
+    Class<?> stateClass = classLoader.loadClass("test.State");
+    Method equals = generated.getMethod("equals", stateClass, Object.class);
+    Method hashCode = generated.getMethod("hashCode", stateClass);
+    Object state = newState(generated, 1, null, Double.NaN);
+    Object same = newState(generated, 1, null, Double.NaN);
+    Object other = newState(generated, 1, "error", Double.NaN);
+
+    //WHEN
+    Object equalsSame = equals.invoke(null, state, same);
+    Object equalsOther = equals.invoke(null, state, other);
+
+    //THEN
+    assertThat(equalsSame, is((Object) true));
+    assertThat(equalsOther, is((Object) false));
+    assertThat(hashCode.invoke(null, state), is(hashCode.invoke(null, same)));
+  }
+
+  @Test
+  public void testProcess_whenFieldIsNotFinal_shouldFail() throws Exception {
+    //GIVEN
+    String source =
+        "package test;\n"
+            + "@com.groupon.grox.ImmutableState\n"
+            + "public class State {\n"
+            + "  public int color;\n"
+            + "  public State(int color) {\n"
+            + "    this.color = color;\n"
+            + "  }\n"
+            + "}\n";
+
+    //WHEN
+    String errors = compileWithErrors(source);
+
+    //THEN
+    assertThat(errors, containsString("must be final and not private"));
+  }
+
+  @Test
+  public void testProcess_whenFieldsHaveTheNamesOfGeneratedVariables_shouldCompile()
+      throws Exception {
+    //GIVEN
+    String source =
+        "package test;\n"
+            + "@com.groupon.grox.ImmutableState\n"
+            + "public class State {\n"
+            + "  public final int state;\n"
+            + "  public final String other;\n"
+            + "  public final String that;\n"
+            + "  public final int result;\n"
+            + "  public State(int state, String other, String that, int result) {\n"
+            + "    this.state = state;\n"
+            + "    this.other = other;\n"
+            + "    this.that = that;\n"
+            + "    this.result = result;\n"
+            + "  }\n"
+            + "}\n";
+    ClassLoader classLoader = compile(source);
+    Class<?> generated = classLoader.loadClass("test.Grox_State");
+    Class<?> stateClass = classLoader.loadClass("test.State");
+    Object state =
+        stateClass
+            .getConstructor(int.class, String.class, String.class, int.class)
+            .newInstance(1, "a", "b", 2);
+
+    //WHEN
+    Object changed =
+        generated.getMethod("withState", stateClass, int.class).invoke(null, state, 3);
+    Object equalsChanged =
+        generated.getMethod("equals", stateClass, Object.class).invoke(null, state, changed);
+
+    //THEN
+    assertThat(stateClass.getField("state").get(changed), is((Object) 3));
+    assertThat(stateClass.getField("result").get(changed), is((Object) 2));
+    assertThat(equalsChanged, is((Object) false));
+  }
+
+  @Test
+  public void testProcess_whenFieldNameStartsWithReservedPrefix_shouldFail() throws Exception {
+    //GIVEN
+    String source =
+        "package test;\n"
+            + "@com.groupon.grox.ImmutableState\n"
+            + "public class State {\n"
+            + "  public final int $state;\n"
+            + "  public State(int $state) {\n"
+            + "    this.$state = $state;\n"
+            + "  }\n"
+            + "}\n";
+
+    //WHEN
+    String errors = compileWithErrors(source);
+
+    //THEN
+    assertThat(errors, containsString("it is reserved for the generated code"));
+  }
+
+  private Object newState(Class<?> generated, int color, String error, double ratio)
+      throws Exception {
+    Class<?> stateClass = generated.getClassLoader().loadClass("test.State");
+    return stateClass
+        .getConstructor(int.class, String.class, double.class)
+        .newInstance(color, error, ratio);
+  }
+
+  private ClassLoader compile(String source) throws IOException {
+    File output = temporaryFolder.newFolder();
+    String errors = compile(source, output);
+    assertThat(errors, is(""));
+    return new URLClassLoader(new URL[] {output.toURI().toURL()}, getClass().getClassLoader());
+  }
+
+  private String compileWithErrors(String source) throws IOException {
+    return compile(source, temporaryFolder.newFolder());
+  }
+
+  /** @return the errors of the compilation. */
+  private String compile(String source, File output) throws IOException {
+    File sourceFile = new File(temporaryFolder.newFolder("test"), "State.java");
+    Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StringWriter errors = new StringWriter();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(
+              errors,
+              fileManager,
+              null,
+              Arrays.asList(
+                  "-d",
+                  output.getPath(),
+                  "-s",
+                  output.getPath(),
+                  "-classpath",
+                  System.getProperty("java.class.path")),
+              null,
+              fileManager.getJavaFileObjects(sourceFile));
+      task.setProcessors(Collections.singletonList(new ImmutableStateProcessor()));
+      task.call();
+    }
+    return errors.toString();
+  }
+}
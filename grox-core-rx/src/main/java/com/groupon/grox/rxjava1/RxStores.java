@@ -33,14 +33,40 @@ public final class RxStores {
    * <p><em>Warning:</em> The created observable keeps a strong reference to {@code store}.
    * Unsubscribe to free this reference.
    *
+   * <p>A subscriber that doesn't keep up with the states, typically a slow {@code observeOn}, fails
+   * with a {@link rx.exceptions.MissingBackpressureException}, see {@link #states(Store,
+   * BackpressureMode)}.
+   *
    * @param store the store to observe states from.
    * @param <STATE> the class of the state.
    * @return an observable of the states.
    */
   public static <STATE> Observable<STATE> states(Store<STATE> store) {
+    return states(store, BackpressureMode.ERROR);
+  }
+
+  /**
+   * Creates an observable of states out of a store, that handles the backpressure of its
+   * subscribers with a given mode. {@link BackpressureMode#LATEST} is usually the right mode for
+   * states: a slow subscriber only receives the latest state when it requests more, and the memory
+   * used by the observable stays bounded, whatever the rate of the dispatched actions.
+   *
+   * <p><em>Warning:</em> The created observable keeps a strong reference to {@code store}.
+   * Unsubscribe to free this reference.
+   *
+   * @param store the store to observe states from.
+   * @param backpressureMode what to do with the states the subscribers are not ready to receive.
+   * @param <STATE> the class of the state.
+   * @return an observable of the states.
+   */
+  public static <STATE> Observable<STATE> states(
+      Store<STATE> store, BackpressureMode backpressureMode) {
     if (store == null) {
       throw new IllegalArgumentException("Store is null");
     }
-    return Observable.create(new StoreOnSubscribe<>(store), BackpressureMode.ERROR);
+    if (backpressureMode == null) {
+      throw new IllegalArgumentException("Backpressure mode is null");
+    }
+    return Observable.create(new StoreOnSubscribe<>(store), backpressureMode);
   }
 }
@@ -25,7 +25,9 @@ import static org.junit.Assert.assertThat;
 
 import com.groupon.grox.Store;
 import org.junit.Test;
+import rx.Emitter.BackpressureMode;
 import rx.Subscription;
+import rx.exceptions.MissingBackpressureException;
 import rx.observers.TestSubscriber;
 import static org.junit.Assert.fail;
 
@@ -94,6 +96,49 @@ public class RxStoresTest {
     verify(mockStore);
   }
 
+  @Test
+  public void states_should_emitLatestState_when_subscriberIsSlowAndModeIsLatest() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    TestSubscriber<Integer> testSubscriber = new TestSubscriber<>(1L);
+    states(store, BackpressureMode.LATEST).subscribe(testSubscriber);
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+    store.dispatch(integer -> integer + 1);
+    store.dispatch(integer -> integer + 1);
+    testSubscriber.requestMore(1);
+
+    //THEN
+    testSubscriber.assertNoTerminalEvent();
+    testSubscriber.assertValues(0, 3);
+  }
+
+  @Test
+  public void states_should_fail_when_subscriberIsSlowAndModeIsError() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    TestSubscriber<Integer> testSubscriber = new TestSubscriber<>(1L);
+    states(store).subscribe(testSubscriber);
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    testSubscriber.assertValue(0);
+    testSubscriber.assertError(MissingBackpressureException.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void states_should_throw_when_backpressureModeIsNull() {
+
+    //WHEN
+    states(new Store<>(0), null);
+
+    //THEN
+    fail("Should have thrown an exception");
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void states_should_throw_when_storeIsNull() {
 
@@ -26,7 +26,19 @@ package com.groupon.grox;
  *   <li>they are fully testable.
  * </ul>
  *
- * Typically, an action is a state less object, has no dependencies and is tested.
+ * Typically, an action is a state less object, has no dependencies and is tested. An action that
+ * carries no data can then be a singleton, which saves an allocation per dispatch:
+ *
+ * <pre>{@code
+ * public final class RefreshAction implements Action<State> {
+ *   public static final RefreshAction INSTANCE = new RefreshAction();
+ *
+ *   private RefreshAction() {}
+ *   ...
+ * }
+ * }</pre>
+ *
+ * The actions that carry a small value can be shared through an {@link ActionCache}.
  *
  * @param <STATE> the class of the state.
  */
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the actions created out of a parameter, typically a small value like an id or
+ * an enum constant. Actions being immutable, an action can be shared by all the dispatches that use
+ * the same parameter: for high frequency streams of actions, such as clicks or the emissions of a
+ * command, the cache saves an allocation per dispatch. The least recently used actions are evicted
+ * when the cache is full. </br> Actions that carry no data at all don't need a cache: declare them
+ * as singletons, see {@link Action}. </br> A cache is thread safe.
+ *
+ * @param <PARAM> the class of the parameters of the actions, which must implement {@link
+ *     Object#equals(Object)} and {@link Object#hashCode()}.
+ * @param <STATE> the class of the state.
+ */
+public final class ActionCache<PARAM, STATE> {
+
+  /** Creates the action of a parameter, when it is not in the cache. */
+  public interface Factory<PARAM, STATE> {
+    Action<STATE> create(PARAM param);
+  }
+
+  private final Factory<PARAM, STATE> factory;
+  private final int maxSize;
+  /** The cached actions, from the least to the most recently used, guarded by this. */
+  private final Map<PARAM, Action<STATE>> actions;
+
+  private long hitCount;
+  private long missCount;
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxSize the maximum number of actions in the cache.
+   * @param factory creates the actions that are not in the cache.
+   */
+  public ActionCache(final int maxSize, Factory<PARAM, STATE> factory) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    if (factory == null) {
+      throw new IllegalArgumentException("Factory is null");
+    }
+    this.factory = factory;
+    this.maxSize = maxSize;
+    this.actions =
+        new LinkedHashMap<PARAM, Action<STATE>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<PARAM, Action<STATE>> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /**
+   * @param param the parameter of the action.
+   * @return the cached action of {@code param}, or a new one if it is not in the cache.
+   */
+  public synchronized Action<STATE> get(PARAM param) {
+    Action<STATE> action = actions.get(param);
+    if (action != null) {
+      hitCount++;
+      return action;
+    }
+    missCount++;
+    action = factory.create(param);
+    if (action == null) {
+      throw new IllegalStateException("The factory created a null action for " + param);
+    }
+    actions.put(param, action);
+    return action;
+  }
+
+  /** @return the maximum number of actions in the cache. */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** @return the number of actions in the cache. */
+  public synchronized int size() {
+    return actions.size();
+  }
+
+  /** @return the number of times an action was found in the cache. */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /** @return the number of times an action was created. */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+}
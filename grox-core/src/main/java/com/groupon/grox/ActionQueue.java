@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.Store.Priority;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The queue of the actions waiting to be dispatched in a {@link Store}. Actions are kept in one
+ * FIFO lane per {@link Priority}, and higher priority lanes are served first. </br> To prevent
+ * starvation, a non empty lane that has been passed over {@code starvationLimit} times in a row is
+ * served next, regardless of the content of the higher priority lanes. </br> A queue can be
+ * bounded, in which case its {@link OverflowPolicy} decides what happens to the actions dispatched
+ * while it is full. The queue keeps count of these events, see {@link #getBlockedCount()}, {@link
+ * #getDroppedCount()} and {@link #getConflatedCount()}. </br> A queue belongs to a single store,
+ * which guards all its operations but the metrics getters.
+ *
+ * @param <STATE> the class of the state.
+ * @see Store#Store(Object, ActionQueue, Store.Middleware[])
+ */
+public final class ActionQueue<STATE> {
+
+  /** The capacity of an unbounded queue. */
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+  /** Default number of times a lane can be passed over before it gets served. */
+  public static final int DEFAULT_STARVATION_LIMIT = 16;
+
+  private static final Priority[] PRIORITIES = Priority.values();
+
+  /** One FIFO lane per priority, indexed by {@link Priority#ordinal()}. */
+  private final ArrayDeque<Action<STATE>>[] lanes;
+  /** The times the actions of each lane were queued, in the same order as the lanes. */
+  private final TimeQueue[] enqueueTimes;
+  /** Number of times in a row each lane was passed over while it was not empty. */
+  private final int[] skips;
+  /**
+   * The latest action for each conflation key in the queue. The lanes only contain the first
+   * action queued for a key, which is replaced by the latest one when it is polled.
+   */
+  private final Map<Object, Action<STATE>> conflatedActions;
+
+  private final int capacity;
+  private final OverflowPolicy overflowPolicy;
+  private final int starvationLimit;
+  private int size;
+  /** The time the last polled action was queued. */
+  private long polledEnqueueNanos;
+
+  private final AtomicLong blockedCount = new AtomicLong();
+  private final AtomicLong blockedTimeNanos = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final AtomicLong conflatedCount = new AtomicLong();
+
+  /** Creates an unbounded queue. */
+  public ActionQueue() {
+    this(UNBOUNDED, OverflowPolicy.BLOCK, DEFAULT_STARVATION_LIMIT);
+  }
+
+  /**
+   * Creates a bounded queue.
+   *
+   * @param capacity the maximum number of actions in the queue.
+   * @param overflowPolicy what to do when an action is dispatched while the queue is full.
+   */
+  public ActionQueue(int capacity, OverflowPolicy overflowPolicy) {
+    this(capacity, overflowPolicy, DEFAULT_STARVATION_LIMIT);
+  }
+
+  /**
+   * Creates a bounded queue.
+   *
+   * @param capacity the maximum number of actions in the queue.
+   * @param overflowPolicy what to do when an action is dispatched while the queue is full.
+   * @param starvationLimit the number of times in a row a lane of lower priority can be passed
+   *     over before it is served.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ActionQueue(int capacity, OverflowPolicy overflowPolicy, int starvationLimit) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    if (overflowPolicy == null) {
+      throw new IllegalArgumentException("Overflow policy is null");
+    }
+    if (starvationLimit < 1) {
+      throw new IllegalArgumentException("starvationLimit must be positive: " + starvationLimit);
+    }
+    this.capacity = capacity;
+    this.overflowPolicy = overflowPolicy;
+    this.starvationLimit = starvationLimit;
+    this.lanes = new ArrayDeque[PRIORITIES.length];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new ArrayDeque<>();
+    }
+    this.enqueueTimes = new TimeQueue[PRIORITIES.length];
+    for (int i = 0; i < enqueueTimes.length; i++) {
+      enqueueTimes[i] = new TimeQueue();
+    }
+    this.skips = new int[PRIORITIES.length];
+    this.conflatedActions = overflowPolicy == OverflowPolicy.CONFLATE ? new HashMap<>() : null;
+  }
+
+  /**
+   * Adds an action at the end of the lane of its priority, applying the overflow policy if the
+   * queue is full. The queue must not be full when the policy is {@link OverflowPolicy#BLOCK}, see
+   * {@link #mustBlock()}.
+   *
+   * @param action the action to enqueue.
+   * @param priority the lane of the action.
+   */
+  void add(Action<STATE> action, Priority priority) {
+    add(action, priority, 0L);
+  }
+
+  /**
+   * Adds an action at the end of the lane of its priority, see {@link #add(Action, Priority)}.
+   *
+   * @param action the action to enqueue.
+   * @param priority the lane of the action.
+   * @param enqueueNanos the time the action is queued, see {@link #getPolledEnqueueNanos()}.
+   */
+  void add(Action<STATE> action, Priority priority, long enqueueNanos) {
+    if (conflatedActions != null && action instanceof ConflatableAction) {
+      Object key = ((ConflatableAction<STATE>) action).conflationKey();
+      if (conflatedActions.containsKey(key)) {
+        conflatedActions.put(key, action);
+        conflatedCount.incrementAndGet();
+        return;
+      }
+      if (size < capacity) {
+        conflatedActions.put(key, action);
+      }
+    }
+    if (size >= capacity) {
+      switch (overflowPolicy) {
+        case DROP_OLDEST:
+          dropOldest();
+          break;
+        case DROP_NEWEST:
+        case CONFLATE:
+          droppedCount.incrementAndGet();
+          return;
+        default:
+          throw new IllegalStateException("The action queue is full");
+      }
+    }
+    lanes[priority.ordinal()].addLast(action);
+    enqueueTimes[priority.ordinal()].addLast(enqueueNanos);
+    size++;
+  }
+
+  /** @return the next action to dispatch, or {@code null} if the queue is empty. */
+  Action<STATE> poll() {
+    if (size == 0) {
+      return null;
+    }
+    int served = -1;
+    for (int i = 0; i < lanes.length; i++) {
+      if (lanes[i].isEmpty()) {
+        continue;
+      }
+      // a starving lane takes precedence over the higher priority lanes.
+      if (skips[i] >= starvationLimit) {
+        served = i;
+        break;
+      }
+      if (served == -1) {
+        served = i;
+      }
+    }
+    for (int i = 0; i < lanes.length; i++) {
+      if (i == served || lanes[i].isEmpty()) {
+        skips[i] = 0;
+      } else {
+        skips[i]++;
+      }
+    }
+    size--;
+    polledEnqueueNanos = enqueueTimes[served].pollFirst();
+    Action<STATE> action = lanes[served].pollFirst();
+    if (conflatedActions != null && action instanceof ConflatableAction) {
+      return conflatedActions.remove(((ConflatableAction<STATE>) action).conflationKey());
+    }
+    return action;
+  }
+
+  /** Drops the oldest action of the lowest priority. */
+  private void dropOldest() {
+    for (int i = lanes.length - 1; i >= 0; i--) {
+      if (!lanes[i].isEmpty()) {
+        lanes[i].pollFirst();
+        enqueueTimes[i].pollFirst();
+        size--;
+        droppedCount.incrementAndGet();
+        return;
+      }
+    }
+  }
+
+  /** @return the time the last action returned by {@link #poll()} was queued. */
+  long getPolledEnqueueNanos() {
+    return polledEnqueueNanos;
+  }
+
+  /** @return true if a producer must wait before adding an action to this queue. */
+  boolean mustBlock() {
+    return overflowPolicy == OverflowPolicy.BLOCK && size >= capacity;
+  }
+
+  /**
+   * Records that a producer had to wait for the queue to have some room.
+   *
+   * @param nanos the time the producer waited.
+   */
+  void recordBlocked(long nanos) {
+    blockedCount.incrementAndGet();
+    blockedTimeNanos.addAndGet(nanos);
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** @return the maximum number of actions in the queue. */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** @return the policy applied when an action is dispatched while the queue is full. */
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  /** @return the number of times a producer had to wait for the queue to have some room. */
+  public long getBlockedCount() {
+    return blockedCount.get();
+  }
+
+  /** @return the cumulated time producers waited for the queue to have some room. */
+  public long getBlockedTimeNanos() {
+    return blockedTimeNanos.get();
+  }
+
+  /** @return the number of actions that were dropped because the queue was full. */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /** @return the number of queued actions that were replaced by a more recent one. */
+  public long getConflatedCount() {
+    return conflatedCount.get();
+  }
+
+  /** A growable FIFO ring of times, that doesn't box them. */
+  private static final class TimeQueue {
+    private long[] times = new long[8];
+    private int head;
+    private int count;
+
+    void addLast(long time) {
+      if (count == times.length) {
+        long[] newTimes = new long[times.length * 2];
+        for (int i = 0; i < count; i++) {
+          newTimes[i] = times[(head + i) % times.length];
+        }
+        times = newTimes;
+        head = 0;
+      }
+      times[(head + count) % times.length] = time;
+      count++;
+    }
+
+    long pollFirst() {
+      long time = times[head];
+      head = (head + 1) % times.length;
+      count--;
+      return time;
+    }
+  }
+
+  /** What a bounded {@link ActionQueue} does when an action is dispatched while it is full. */
+  public enum OverflowPolicy {
+    /**
+     * The producer waits until the queue has some room. Note that the thread dispatching the
+     * actions of the queue can't wait for itself: an action it dispatches while the queue is full
+     * fails with an {@link IllegalStateException}.
+     */
+    BLOCK,
+    /** The dispatched action is dropped. */
+    DROP_NEWEST,
+    /** The oldest action of the lowest priority in the queue is dropped. */
+    DROP_OLDEST,
+    /**
+     * The queue only keeps the latest {@link ConflatableAction} for each conflation key, even when
+     * it is not full. The latest action replaces the previous one, and takes its place in the
+     * queue. The other actions dispatched while the queue is full are dropped.
+     */
+    CONFLATE
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * An action that can be replaced by a more recent action of the same key while it waits in a
+ * conflating {@link ActionQueue}. Typically, actions that set a value rather than update it, like
+ * the latest progress of a download, can be conflated.
+ *
+ * @param <STATE> the class of the state.
+ * @see ActionQueue.OverflowPolicy#CONFLATE
+ */
+public interface ConflatableAction<STATE> extends Action<STATE> {
+  /**
+   * @return the conflation key of this action. Only the latest action of a given key is kept in
+   *     the queue. Keys are compared using {@link Object#equals(Object)}.
+   */
+  Object conflationKey();
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * A store whose state is a primitive {@code double}, typically a gauge. The state is never boxed,
+ * and dispatching a state less action to a store that has no new subscriber allocates nothing: the
+ * middle ware chains are reused, and the listeners are notified by iterating over an array. </br>
+ * It is not a {@link Store}, but it has the same threading model and middle ware semantics, except
+ * that its queue is unbounded, it has no priorities and it notifies its listeners sequentially.
+ */
+public class DoubleStore
+    extends PrimitiveStore<
+        DoubleAction, DoubleStore.DoubleStateChangeListener, DoubleStore.DoubleMiddleware> {
+
+  /** The current state of the store. */
+  private volatile double state;
+
+  public DoubleStore(double initialState, DoubleMiddleware... middlewares) {
+    super(middlewares);
+    this.state = initialState;
+  }
+
+  /** @return the current state of the store. */
+  public double getState() {
+    return state;
+  }
+
+  @Override
+  Link newChain(int index) {
+    return new RealChain(index);
+  }
+
+  @Override
+  void reduce(DoubleAction action) {
+    state = action.newState(state);
+  }
+
+  @Override
+  void intercept(DoubleMiddleware middleware, Link chain) {
+    middleware.intercept((RealChain) chain);
+  }
+
+  @Override
+  long encodeState() {
+    return Double.doubleToRawLongBits(state);
+  }
+
+  @Override
+  void notifyListener(DoubleStateChangeListener listener, long encodedState) {
+    listener.onStateChanged(Double.longBitsToDouble(encodedState));
+  }
+
+  /**
+   * A middle ware of a {@link DoubleStore}, see {@link Store.Middleware}. The chain passed to
+   * {@link #intercept(Chain)} is reused for the next actions, and must not be kept.
+   */
+  public interface DoubleMiddleware {
+    void intercept(Chain chain);
+
+    /**
+     * The chain of the middle wares of a {@link DoubleStore}, see {@link Store.Middleware.Chain}.
+     */
+    interface Chain {
+      /** @return the action being dispatched. */
+      DoubleAction action();
+
+      /** @return the current state of the store. */
+      double state();
+
+      /**
+       * Triggers the rest of the middle wares to be executed, and ultimately the action to be
+       * executed.
+       *
+       * @param action the action being dispatched in the store.
+       */
+      void proceed(DoubleAction action);
+    }
+  }
+
+  /**
+   * A listener that will be notified of all state changes taking place in a {@link DoubleStore}.
+   */
+  public interface DoubleStateChangeListener {
+    void onStateChanged(double newState);
+  }
+
+  /** A link of the middle ware chain, that reads the state of this store. */
+  private final class RealChain extends Link implements DoubleMiddleware.Chain {
+    RealChain(int index) {
+      super(index);
+    }
+
+    @Override
+    public double state() {
+      return state;
+    }
+  }
+}
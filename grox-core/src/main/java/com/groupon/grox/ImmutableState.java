@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an immutable state class, for which the grox compiler generates a {@code Grox_<Name>}
+ * class. The generated class has:
+ *
+ * <ul>
+ *   <li>a {@code with<Field>(state, value)} method per field, that returns a copy of the state with
+ *       a new value for the field, or the state itself if the value is unchanged.
+ *   <li>a {@code builder(state)} method, to change several fields with a single copy.
+ *   <li>field-wise {@code equals(state, other)} and {@code hashCode(state)} methods, that the state
+ *       class can delegate to.
+ * </ul>
+ *
+ * The fields of the state are its non static fields. They must be final and not private, and the
+ * class must have a constructor whose parameters are the fields, in the order of their
+ * declarations. No reflection is used at runtime.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ImmutableState {}
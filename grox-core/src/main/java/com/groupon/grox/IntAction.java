@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * An {@link Action} of a {@link IntStore}, whose state is a primitive {@code int}. Typically, an
+ * action is a state less object: a single instance can then be dispatched again and again without
+ * any allocation.
+ */
+public interface IntAction {
+  int newState(int oldState);
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * A store whose state is a primitive {@code int}, typically a counter or a gauge. The state is
+ * never boxed, and dispatching a state less action to a store that has no new subscriber allocates
+ * nothing: the middle ware chains are reused, and the listeners are notified by iterating over an
+ * array. </br> It is not a {@link Store}, but it has the same threading model and middle ware
+ * semantics, except that its queue is unbounded, it has no priorities and it notifies its listeners
+ * sequentially.
+ */
+public class IntStore
+    extends PrimitiveStore<IntAction, IntStore.IntStateChangeListener, IntStore.IntMiddleware> {
+
+  /** The current state of the store. */
+  private volatile int state;
+
+  public IntStore(int initialState, IntMiddleware... middlewares) {
+    super(middlewares);
+    this.state = initialState;
+  }
+
+  /** @return the current state of the store. */
+  public int getState() {
+    return state;
+  }
+
+  @Override
+  Link newChain(int index) {
+    return new RealChain(index);
+  }
+
+  @Override
+  void reduce(IntAction action) {
+    state = action.newState(state);
+  }
+
+  @Override
+  void intercept(IntMiddleware middleware, Link chain) {
+    middleware.intercept((RealChain) chain);
+  }
+
+  @Override
+  long encodeState() {
+    return state;
+  }
+
+  @Override
+  void notifyListener(IntStateChangeListener listener, long encodedState) {
+    listener.onStateChanged((int) encodedState);
+  }
+
+  /**
+   * A middle ware of an {@link IntStore}, see {@link Store.Middleware}. The chain passed to {@link
+   * #intercept(Chain)} is reused for the next actions, and must not be kept.
+   */
+  public interface IntMiddleware {
+    void intercept(Chain chain);
+
+    /**
+     * The chain of the middle wares of an {@link IntStore}, see {@link Store.Middleware.Chain}.
+     */
+    interface Chain {
+      /** @return the action being dispatched. */
+      IntAction action();
+
+      /** @return the current state of the store. */
+      int state();
+
+      /**
+       * Triggers the rest of the middle wares to be executed, and ultimately the action to be
+       * executed.
+       *
+       * @param action the action being dispatched in the store.
+       */
+      void proceed(IntAction action);
+    }
+  }
+
+  /** A listener that will be notified of all state changes taking place in an {@link IntStore}. */
+  public interface IntStateChangeListener {
+    void onStateChanged(int newState);
+  }
+
+  /** A link of the middle ware chain, that reads the state of this store. */
+  private final class RealChain extends Link implements IntMiddleware.Chain {
+    RealChain(int index) {
+      super(index);
+    }
+
+    @Override
+    public int state() {
+      return state;
+    }
+  }
+}
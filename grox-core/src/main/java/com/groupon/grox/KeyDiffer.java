@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.Collection;
+
+/**
+ * Computes the keys of the entries that differ between two states of a store, for the states that
+ * hold keyed collections. Like a {@link StateDiffer}, a key differ must be a pure function, and
+ * should compare the entries by reference before comparing them by value.
+ *
+ * @param <STATE> the class of the state.
+ * @param <K> the class of the keys.
+ * @see ListenerIndex
+ * @see MapKeyDiffer
+ */
+public interface KeyDiffer<STATE, K> {
+  /**
+   * @param oldState the previous state.
+   * @param newState the new state.
+   * @return the keys of the entries that were added, removed or changed.
+   */
+  Collection<K> changedKeys(STATE oldState, STATE newState);
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.Collection;
+
+/**
+ * An action that declares the keys of the entries of the state it changes. When it is dispatched
+ * through a {@link ListenerIndex}, the index notifies the listeners of these keys without diffing
+ * the states.
+ *
+ * @param <STATE> the class of the state.
+ * @param <K> the class of the keys.
+ * @see ListenerIndex#dispatch(KeyedAction)
+ */
+public interface KeyedAction<STATE, K> extends Action<STATE> {
+  /**
+   * @return the keys of all the entries the action may add, remove or change. The action must not
+   *     change any other entry.
+   */
+  Collection<K> changedKeys();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * Focuses on a slice of a state, like the state of a feature in the state of an app. A lens reads
+ * the slice of a state, and creates a copy of a state with a new slice. Like actions, lenses must
+ * be pure functions.
+ *
+ * @param <STATE> the class of the state.
+ * @param <SLICE> the class of the slice.
+ * @see Store#scope(Lens)
+ */
+public interface Lens<STATE, SLICE> {
+  /** @return the slice of {@code state}. */
+  SLICE get(STATE state);
+
+  /** @return a copy of {@code state} whose slice is {@code slice}. */
+  STATE set(STATE state, SLICE slice);
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.SharedStoreListener.Subscription;
+import com.groupon.grox.Store.Priority;
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An index of the listeners of a store by key, for the states that hold keyed collections,
+ * typically with one listener per entity displayed. A listener subscribed under a key is only
+ * notified when the entry of this key changes, so that the cost of a notification depends on the
+ * number of changed keys, not on the number of listeners:
+ *
+ * <ul>
+ *   <li>the keys changed by a {@link KeyedAction} dispatched through the index are the keys it
+ *       declares.
+ *   <li>the keys changed by any other state change are computed by a {@link KeyDiffer}.
+ * </ul>
+ *
+ * All the listeners of an index share a single listener of the store, and are looked up in a
+ * concurrent hash map. Like the listeners of a store, a listener is first notified of the current
+ * state, by the dispatching thread of the store.
+ *
+ * @param <STATE> the class of the state of the store.
+ * @param <K> the class of the keys.
+ * @see Store#index(KeyDiffer)
+ */
+public final class ListenerIndex<STATE, K> {
+
+  private final Store<STATE> store;
+  private final KeyDiffer<STATE, K> keyDiffer;
+  /** The subscriptions of each key. Modified while holding the monitor of this. */
+  private final Map<K, List<Subscription<STATE, STATE>>> subscriptionsByKey =
+      new ConcurrentHashMap<>();
+  /**
+   * The change of the last keyed action executed by the store, cleared once the index listener has
+   * read it so that the index doesn't retain an obsolete state.
+   */
+  private volatile KeyedChange lastKeyedChange;
+  /** The listeners of a key are notified of the whole state. */
+  private final Selector<STATE, STATE> stateSelector =
+      new Selector<STATE, STATE>() {
+        @Override
+        public STATE select(STATE state) {
+          return state;
+        }
+      };
+  /** The listener of the store shared by the subscriptions. */
+  private final SharedStoreListener<STATE> sharedListener;
+
+  ListenerIndex(Store<STATE> store, KeyDiffer<STATE, K> keyDiffer) {
+    this.store = store;
+    this.keyDiffer = keyDiffer;
+    this.sharedListener =
+        new SharedStoreListener<STATE>(store) {
+          @Override
+          StateChangeListener<STATE> newStoreListener() {
+            return new IndexListener();
+          }
+        };
+  }
+
+  /**
+   * Dispatches a keyed action in the store. If the action is the only one to change the state, the
+   * listeners of its keys are notified without diffing the states.
+   *
+   * @param action the action to be executed.
+   * @see Store#dispatch(Action)
+   */
+  public void dispatch(KeyedAction<STATE, K> action) {
+    store.dispatch(new KeyRecordingAction(action));
+  }
+
+  /**
+   * Dispatches a keyed action in the store with a given priority.
+   *
+   * @param action the action to be executed.
+   * @param priority the priority of the action.
+   * @see #dispatch(KeyedAction)
+   * @see Store#dispatch(Action, Priority)
+   */
+  public void dispatch(KeyedAction<STATE, K> action, Priority priority) {
+    store.dispatch(new KeyRecordingAction(action), priority);
+  }
+
+  /**
+   * Adds a listener of a key, that will be notified of the current state, and then of the state
+   * changes that change the entry of the key.
+   *
+   * @param key the key of the entry.
+   * @param listener the listener to be added.
+   * @see Store#subscribe(StateChangeListener)
+   */
+  public void subscribe(K key, StateChangeListener<STATE> listener) {
+    if (key == null) {
+      throw new IllegalArgumentException("Key is null");
+    }
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener is null");
+    }
+    Subscription<STATE, STATE> subscription =
+        new Subscription<>(sharedListener, listener, stateSelector);
+    synchronized (this) {
+      List<Subscription<STATE, STATE>> subscriptions = subscriptionsByKey.get(key);
+      if (subscriptions == null) {
+        subscriptions = new CopyOnWriteArrayList<>();
+        subscriptionsByKey.put(key, subscriptions);
+      }
+      subscriptions.add(subscription);
+    }
+    sharedListener.subscribe(subscription);
+  }
+
+  /**
+   * Removes a previously added listener of a key.
+   *
+   * @param key the key the listener was added with.
+   * @param listener the listener to be removed.
+   */
+  public void unsubscribe(K key, StateChangeListener<STATE> listener) {
+    Subscription<STATE, STATE> unsubscribed = null;
+    synchronized (this) {
+      List<Subscription<STATE, STATE>> subscriptions = subscriptionsByKey.get(key);
+      if (subscriptions == null) {
+        return;
+      }
+      for (Subscription<STATE, STATE> subscription : subscriptions) {
+        if (subscription.listener == listener) {
+          unsubscribed = subscription;
+          break;
+        }
+      }
+      if (unsubscribed == null) {
+        return;
+      }
+      subscriptions.remove(unsubscribed);
+      if (subscriptions.isEmpty()) {
+        subscriptionsByKey.remove(key);
+      }
+    }
+    sharedListener.unsubscribe(unsubscribed);
+  }
+
+  /** @return the store of the index. */
+  public Store<STATE> getStore() {
+    return store;
+  }
+
+  private void notifyKeys(Collection<K> changedKeys, STATE newState) {
+    for (K key : changedKeys) {
+      List<Subscription<STATE, STATE>> subscriptions = subscriptionsByKey.get(key);
+      if (subscriptions != null) {
+        notifySubscriptions(subscriptions, newState);
+      }
+    }
+  }
+
+  private void notifySubscriptions(
+      List<Subscription<STATE, STATE>> subscriptions, STATE newState) {
+    for (Subscription<STATE, STATE> subscription : subscriptions) {
+      if (subscription.active) {
+        subscription.notifyIfChanged(newState);
+      }
+    }
+  }
+
+  /** Notifies the active subscriptions of the keys that changed. */
+  private final class IndexListener implements StateChangeListener<STATE> {
+    /** The state of the previous notification, only accessed by the dispatching thread. */
+    private STATE previousState;
+
+    @Override
+    public void onStateChanged(STATE newState) {
+      KeyedChange keyedChange = lastKeyedChange;
+      lastKeyedChange = null;
+      STATE oldState = previousState;
+      previousState = newState;
+      if (oldState == null) {
+        // the subscriptions activated before this listener was notified may have missed a change.
+        for (List<Subscription<STATE, STATE>> subscriptions : subscriptionsByKey.values()) {
+          notifySubscriptions(subscriptions, newState);
+        }
+        return;
+      }
+      if (oldState == newState) {
+        return;
+      }
+      if (keyedChange != null
+          && keyedChange.oldState == oldState
+          && keyedChange.newState == newState) {
+        notifyKeys(keyedChange.changedKeys, newState);
+      } else {
+        notifyKeys(keyDiffer.changedKeys(oldState, newState), newState);
+      }
+    }
+  }
+
+  /** Records the keys changed by a keyed action when it is executed. */
+  private final class KeyRecordingAction implements Action<STATE> {
+    private final KeyedAction<STATE, K> action;
+
+    KeyRecordingAction(KeyedAction<STATE, K> action) {
+      this.action = action;
+    }
+
+    @Override
+    public STATE newState(STATE oldState) {
+      STATE newState = action.newState(oldState);
+      // without index listener, nothing would read and clear the change.
+      lastKeyedChange =
+          sharedListener.isSubscribed()
+              ? new KeyedChange(oldState, newState, action.changedKeys())
+              : null;
+      return newState;
+    }
+  }
+
+  /** A state change made by a keyed action. */
+  private final class KeyedChange {
+    final STATE oldState;
+    final STATE newState;
+    final Collection<K> changedKeys;
+
+    KeyedChange(STATE oldState, STATE newState, Collection<K> changedKeys) {
+      this.oldState = oldState;
+      this.newState = newState;
+      this.changedKeys = changedKeys;
+    }
+  }
+}
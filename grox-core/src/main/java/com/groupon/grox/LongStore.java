@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * A store whose state is a primitive {@code long}, typically a counter or a gauge. The state is
+ * never boxed, and dispatching a state less action to a store that has no new subscriber allocates
+ * nothing: the middle ware chains are reused, and the listeners are notified by iterating over an
+ * array. </br> It is not a {@link Store}, but it has the same threading model and middle ware
+ * semantics, except that its queue is unbounded, it has no priorities and it notifies its listeners
+ * sequentially.
+ */
+public class LongStore
+    extends PrimitiveStore<
+        LongAction, LongStore.LongStateChangeListener, LongStore.LongMiddleware> {
+
+  /** The current state of the store. */
+  private volatile long state;
+
+  public LongStore(long initialState, LongMiddleware... middlewares) {
+    super(middlewares);
+    this.state = initialState;
+  }
+
+  /** @return the current state of the store. */
+  public long getState() {
+    return state;
+  }
+
+  @Override
+  Link newChain(int index) {
+    return new RealChain(index);
+  }
+
+  @Override
+  void reduce(LongAction action) {
+    state = action.newState(state);
+  }
+
+  @Override
+  void intercept(LongMiddleware middleware, Link chain) {
+    middleware.intercept((RealChain) chain);
+  }
+
+  @Override
+  long encodeState() {
+    return state;
+  }
+
+  @Override
+  void notifyListener(LongStateChangeListener listener, long encodedState) {
+    listener.onStateChanged(encodedState);
+  }
+
+  /**
+   * A middle ware of a {@link LongStore}, see {@link Store.Middleware}. The chain passed to {@link
+   * #intercept(Chain)} is reused for the next actions, and must not be kept.
+   */
+  public interface LongMiddleware {
+    void intercept(Chain chain);
+
+    /**
+     * The chain of the middle wares of a {@link LongStore}, see {@link Store.Middleware.Chain}.
+     */
+    interface Chain {
+      /** @return the action being dispatched. */
+      LongAction action();
+
+      /** @return the current state of the store. */
+      long state();
+
+      /**
+       * Triggers the rest of the middle wares to be executed, and ultimately the action to be
+       * executed.
+       *
+       * @param action the action being dispatched in the store.
+       */
+      void proceed(LongAction action);
+    }
+  }
+
+  /** A listener that will be notified of all state changes taking place in a {@link LongStore}. */
+  public interface LongStateChangeListener {
+    void onStateChanged(long newState);
+  }
+
+  /** A link of the middle ware chain, that reads the state of this store. */
+  private final class RealChain extends Link implements LongMiddleware.Chain {
+    RealChain(int index) {
+      super(index);
+    }
+
+    @Override
+    public long state() {
+      return state;
+    }
+  }
+}
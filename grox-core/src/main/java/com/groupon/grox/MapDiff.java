@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The diff between two maps, as computed by a {@link MapDiffer}. Diffs are immutable.
+ *
+ * @param <K> the class of the keys of the maps.
+ */
+public final class MapDiff<K> {
+
+  private static final MapDiff<?> EMPTY =
+      new MapDiff<>(Collections.emptySet(), Collections.emptySet(), Collections.emptySet());
+
+  private final Set<K> addedKeys;
+  private final Set<K> removedKeys;
+  private final Set<K> changedKeys;
+
+  MapDiff(Set<K> addedKeys, Set<K> removedKeys, Set<K> changedKeys) {
+    this.addedKeys = Collections.unmodifiableSet(addedKeys);
+    this.removedKeys = Collections.unmodifiableSet(removedKeys);
+    this.changedKeys = Collections.unmodifiableSet(changedKeys);
+  }
+
+  /**
+   * @return the diff of two identical maps.
+   * @param <K> the class of the keys of the maps.
+   */
+  @SuppressWarnings("unchecked")
+  public static <K> MapDiff<K> empty() {
+    return (MapDiff<K>) EMPTY;
+  }
+
+  /** @return the keys of the new map that are not in the previous map. */
+  public Set<K> getAddedKeys() {
+    return addedKeys;
+  }
+
+  /** @return the keys of the previous map that are not in the new map. */
+  public Set<K> getRemovedKeys() {
+    return removedKeys;
+  }
+
+  /** @return the keys of both maps whose value changed. */
+  public Set<K> getChangedKeys() {
+    return changedKeys;
+  }
+
+  /** @return true if both maps are equal. */
+  public boolean isEmpty() {
+    return addedKeys.isEmpty() && removedKeys.isEmpty() && changedKeys.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "MapDiff{added="
+        + addedKeys
+        + ", removed="
+        + removedKeys
+        + ", changed="
+        + changedKeys
+        + '}';
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link StateDiffer} for states that are maps. Two maps that are the same instance are equal
+ * without being traversed, and values are compared by reference before being compared using {@link
+ * Object#equals(Object)}. This makes it fast with persistent maps, whose unchanged values are the
+ * same instances between versions. </br> A {@code null} previous state is considered empty.
+ * </br> <em>Limit:</em> identity of the whole maps is the only shortcut. Whenever the two maps are
+ * different instances, even if a single entry changed, the diff looks up every key of both maps
+ * and costs O(n) in the size of the maps. The diff is computed once per state change for all the
+ * listeners of the differ, but it does not make a change to a large map cheap. When the actions
+ * know the keys they change, a {@link ListenerIndex} fed with {@link KeyedAction}s avoids the
+ * traversal.
+ *
+ * @param <K> the class of the keys of the maps.
+ * @param <V> the class of the values of the maps.
+ * @see ListenerIndex
+ */
+public final class MapDiffer<K, V> implements StateDiffer<Map<K, V>, MapDiff<K>> {
+
+  @Override
+  public MapDiff<K> diff(Map<K, V> oldState, Map<K, V> newState) {
+    if (oldState == newState) {
+      return MapDiff.empty();
+    }
+    Set<K> addedKeys = new HashSet<>();
+    Set<K> removedKeys = new HashSet<>();
+    Set<K> changedKeys = new HashSet<>();
+    if (newState != null) {
+      for (Map.Entry<K, V> entry : newState.entrySet()) {
+        K key = entry.getKey();
+        V newValue = entry.getValue();
+        V oldValue = oldState == null ? null : oldState.get(key);
+        if (oldValue == null && (oldState == null || !oldState.containsKey(key))) {
+          addedKeys.add(key);
+        } else if (oldValue != newValue && (oldValue == null || !oldValue.equals(newValue))) {
+          changedKeys.add(key);
+        }
+      }
+    }
+    if (oldState != null) {
+      for (K key : oldState.keySet()) {
+        if (newState == null || !newState.containsKey(key)) {
+          removedKeys.add(key);
+        }
+      }
+    }
+    if (addedKeys.isEmpty() && removedKeys.isEmpty() && changedKeys.isEmpty()) {
+      return MapDiff.empty();
+    }
+    return new MapDiff<>(addedKeys, removedKeys, changedKeys);
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link KeyDiffer} for states that are maps, based on a {@link MapDiffer}. The keys of the
+ * entries that were added, removed or changed are all considered changed.
+ *
+ * @param <K> the class of the keys of the maps.
+ * @param <V> the class of the values of the maps.
+ */
+public final class MapKeyDiffer<K, V> implements KeyDiffer<Map<K, V>, K> {
+
+  private final MapDiffer<K, V> mapDiffer = new MapDiffer<>();
+
+  @Override
+  public Collection<K> changedKeys(Map<K, V> oldState, Map<K, V> newState) {
+    MapDiff<K> diff = mapDiffer.diff(oldState, newState);
+    if (diff.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<K> changedKeys =
+        new ArrayList<>(
+            diff.getAddedKeys().size()
+                + diff.getRemovedKeys().size()
+                + diff.getChangedKeys().size());
+    changedKeys.addAll(diff.getAddedKeys());
+    changedKeys.addAll(diff.getRemovedKeys());
+    changedKeys.addAll(diff.getChangedKeys());
+    return changedKeys;
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Selector} that caches its latest results. It computes the values of its inputs, and only
+ * calls its combiner when they are not, by reference, the values of a cached result. The cache
+ * holds a bounded number of results, and evicts the least recently used one when it is full. </br>
+ * A memoized selector is thread safe, and can be read lazily from any thread, typically with {@code
+ * selector.select(store.getState())}. Two threads may occasionally compute the same result
+ * concurrently, which is harmless as combiners are pure.
+ *
+ * @param <STATE> the class of the state.
+ * @param <RESULT> the class of the derived value.
+ * @see Selectors
+ */
+public final class MemoizedSelector<STATE, RESULT> implements Selector<STATE, RESULT> {
+
+  private final Selector<?, ?>[] inputs;
+  private final Combiner<RESULT> combiner;
+  private final int cacheSize;
+
+  /**
+   * The values of the inputs of the cached results, the most recently used first. The cache is
+   * guarded by this.
+   */
+  private final Object[][] cachedValues;
+  /** The cached results, in the same order as {@link #cachedValues}. */
+  private final Object[] cachedResults;
+
+  private int cachedCount;
+  private final AtomicLong recomputations = new AtomicLong();
+
+  MemoizedSelector(Selector<?, ?>[] inputs, Combiner<RESULT> combiner, int cacheSize) {
+    if (cacheSize < 1) {
+      throw new IllegalArgumentException("cacheSize must be positive: " + cacheSize);
+    }
+    for (Selector<?, ?> input : inputs) {
+      if (input == null) {
+        throw new IllegalArgumentException("Input is null");
+      }
+    }
+    this.inputs = inputs;
+    this.combiner = combiner;
+    this.cacheSize = cacheSize;
+    this.cachedValues = new Object[cacheSize][];
+    this.cachedResults = new Object[cacheSize];
+  }
+
+  /**
+   * Creates a selector like this one, with its own cache. A cache of size {@code n} is useful when
+   * a selector is read alternately with {@code n} different inputs.
+   *
+   * @param cacheSize the maximum number of cached results.
+   * @return a new memoized selector, with the same inputs and combiner as this one.
+   */
+  public MemoizedSelector<STATE, RESULT> withCacheSize(int cacheSize) {
+    return new MemoizedSelector<>(inputs, combiner, cacheSize);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public RESULT select(STATE state) {
+    Object[] latestValues;
+    Object latestResult;
+    synchronized (this) {
+      latestValues = cachedCount == 0 ? null : cachedValues[0];
+      latestResult = cachedResults[0];
+    }
+    // the values are first compared to the ones of the latest result, one input at a time, so
+    // that the common case of a hit on the latest result doesn't allocate a key.
+    int sameCount = 0;
+    Object otherValue = null;
+    if (latestValues != null) {
+      while (sameCount < inputs.length) {
+        otherValue = ((Selector<STATE, ?>) inputs[sameCount]).select(state);
+        if (otherValue != latestValues[sameCount]) {
+          break;
+        }
+        sameCount++;
+      }
+      if (sameCount == inputs.length) {
+        return (RESULT) latestResult;
+      }
+    }
+    Object[] values = new Object[inputs.length];
+    int selectedCount = 0;
+    if (latestValues != null) {
+      System.arraycopy(latestValues, 0, values, 0, sameCount);
+      values[sameCount] = otherValue;
+      selectedCount = sameCount + 1;
+    }
+    for (int i = selectedCount; i < inputs.length; i++) {
+      values[i] = ((Selector<STATE, ?>) inputs[i]).select(state);
+    }
+    synchronized (this) {
+      for (int i = 0; i < cachedCount; i++) {
+        if (sameValues(cachedValues[i], values)) {
+          RESULT result = (RESULT) cachedResults[i];
+          moveToFront(i, cachedValues[i], result);
+          return result;
+        }
+      }
+    }
+    RESULT result = combiner.combine(values);
+    recomputations.incrementAndGet();
+    synchronized (this) {
+      if (cachedCount < cacheSize) {
+        cachedCount++;
+      }
+      moveToFront(cachedCount - 1, values, result);
+    }
+    return result;
+  }
+
+  /** @return the number of times the combiner was called, useful to test the memoization. */
+  public long getRecomputations() {
+    return recomputations.get();
+  }
+
+  /** @return the maximum number of cached results. */
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  /** Stores a result at the front of the cache, shifting the results before {@code index}. */
+  private void moveToFront(int index, Object[] values, Object result) {
+    System.arraycopy(cachedValues, 0, cachedValues, 1, index);
+    System.arraycopy(cachedResults, 0, cachedResults, 1, index);
+    cachedValues[0] = values;
+    cachedResults[0] = result;
+  }
+
+  private static boolean sameValues(Object[] values, Object[] otherValues) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != otherValues[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Internal combiner of the values of the inputs, see {@link Selectors}. */
+  interface Combiner<RESULT> {
+    RESULT combine(Object[] values);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.List;
+
+/**
+ * Defines how a {@link Store} notifies its listeners of a new state. A strategy must return only
+ * once all the listeners have been notified, so that the next action of the store is executed after
+ * the notifications of the previous one.
+ *
+ * @see Store#Store(Object, ActionQueue, NotificationStrategy, Store.Middleware[])
+ * @see ParallelNotificationStrategy
+ */
+public interface NotificationStrategy {
+
+  /**
+   * The default strategy, notifies the listeners one after the other, in the dispatching thread.
+   */
+  NotificationStrategy SEQUENTIAL =
+      new NotificationStrategy() {
+        @Override
+        public <STATE> void notifyListeners(
+            List<? extends StateChangeListener<STATE>> listeners, STATE newState) {
+          for (StateChangeListener<STATE> listener : listeners) {
+            listener.onStateChanged(newState);
+          }
+        }
+      };
+
+  /**
+   * Notifies listeners of a new state.
+   *
+   * @param listeners the listeners to notify.
+   * @param newState the new state of the store.
+   * @param <STATE> the class of the state.
+   */
+  <STATE> void notifyListeners(
+      List<? extends StateChangeListener<STATE>> listeners, STATE newState);
+}
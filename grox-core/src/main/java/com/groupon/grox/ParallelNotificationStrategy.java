@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A {@link NotificationStrategy} for stores with a very large number of listeners. When a store has
+ * at least {@code threshold} listeners, they are split in chunks that are notified in parallel on a
+ * {@link ForkJoinPool}. The strategy waits for all the chunks to be notified before returning, so
+ * that the next action of the store is still executed after the notifications of the previous one.
+ * </br> With this strategy, listeners are notified in no particular order, and possibly outside of
+ * the dispatching thread. They must be thread safe, and must not dispatch actions that expect to be
+ * executed in the dispatching thread. It is not suited to listeners that update an Android UI.
+ * </br> A listener notified by the pool that dispatches an action into a full {@link
+ * ActionQueue.OverflowPolicy#BLOCK} queue of the store can't wait for the queue to have some room:
+ * the dispatching thread is itself waiting for the listener. The store throws an {@link
+ * IllegalStateException} instead of deadlocking.
+ *
+ * @see Store#Store(Object, ActionQueue, NotificationStrategy, Store.Middleware[])
+ */
+public final class ParallelNotificationStrategy implements NotificationStrategy {
+
+  /** The dispatching thread on behalf of which the current thread notifies listeners. */
+  private static final ThreadLocal<Thread> DISPATCHING_THREAD = new ThreadLocal<>();
+
+  private final ForkJoinPool pool;
+  private final int threshold;
+  private final int chunkSize;
+
+  /**
+   * Creates a parallel notification strategy.
+   *
+   * @param pool the pool that notifies the listeners.
+   * @param threshold the minimum number of listeners to notify them in parallel, at least 1.
+   *     Below this threshold, listeners are notified one after the other in the dispatching
+   *     thread.
+   * @param chunkSize the maximum number of listeners notified by a single task of the pool.
+   */
+  public ParallelNotificationStrategy(ForkJoinPool pool, int threshold, int chunkSize) {
+    if (pool == null) {
+      throw new IllegalArgumentException("Pool is null");
+    }
+    if (threshold < 1) {
+      throw new IllegalArgumentException("threshold must be positive: " + threshold);
+    }
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+    this.pool = pool;
+    this.threshold = threshold;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public <STATE> void notifyListeners(
+      List<? extends StateChangeListener<STATE>> listeners, STATE newState) {
+    if (listeners.size() < threshold) {
+      SEQUENTIAL.notifyListeners(listeners, newState);
+      return;
+    }
+    // a snapshot of the listeners, a copy on write list is not meant to be accessed by index.
+    Object[] snapshot = listeners.toArray();
+    pool.invoke(
+        new NotifyListenersTask<>(
+            snapshot, 0, snapshot.length, newState, chunkSize, Thread.currentThread()));
+  }
+
+  /**
+   * @return the dispatching thread on behalf of which the current thread is notifying listeners,
+   *     or null if it is not notifying listeners for this strategy.
+   */
+  static Thread getDispatchingThread() {
+    return DISPATCHING_THREAD.get();
+  }
+
+  /** Notifies a range of listeners, splitting it until it fits in a chunk. */
+  private static final class NotifyListenersTask<STATE> extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Object[] listeners;
+    private final int from;
+    private final int to;
+    private final transient STATE newState;
+    private final int chunkSize;
+    private final transient Thread dispatchingThread;
+
+    NotifyListenersTask(
+        Object[] listeners,
+        int from,
+        int to,
+        STATE newState,
+        int chunkSize,
+        Thread dispatchingThread) {
+      this.listeners = listeners;
+      this.from = from;
+      this.to = to;
+      this.newState = newState;
+      this.chunkSize = chunkSize;
+      this.dispatchingThread = dispatchingThread;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void compute() {
+      if (to - from <= chunkSize) {
+        Thread previousDispatchingThread = DISPATCHING_THREAD.get();
+        DISPATCHING_THREAD.set(dispatchingThread);
+        try {
+          for (int i = from; i < to; i++) {
+            ((StateChangeListener<STATE>) listeners[i]).onStateChanged(newState);
+          }
+        } finally {
+          DISPATCHING_THREAD.set(previousDispatchingThread);
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(
+          new NotifyListenersTask<>(
+              listeners, from, middle, newState, chunkSize, dispatchingThread),
+          new NotifyListenersTask<>(listeners, middle, to, newState, chunkSize, dispatchingThread));
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The queue, middle ware chain and listeners shared by the stores whose state is a primitive, see
+ * {@link IntStore}, {@link LongStore} and {@link DoubleStore}. Subclasses hold the state, and pass
+ * it to this class encoded in a {@code long}, so that it is never boxed.
+ *
+ * @param <ACTION> the class of the actions of the store.
+ * @param <LISTENER> the class of the listeners of the store.
+ * @param <MIDDLEWARE> the class of the middle wares of the store.
+ */
+abstract class PrimitiveStore<ACTION, LISTENER, MIDDLEWARE> {
+
+  private static final Object[] NO_LISTENERS = new Object[0];
+
+  /** The middle wares of the store, the reducer not included. */
+  private final Object[] middlewares;
+  /**
+   * The chains passed to the middle wares, reused for each action. The chain at index {@code i} is
+   * the one passed to the middle ware {@code i - 1}, the last one calls the reducer.
+   */
+  private final Link[] chains;
+  /** The listeners that get notified of the state changes, copied on write. */
+  private volatile Object[] stateChangeListeners = NO_LISTENERS;
+  /** The actions dispatched while the store is dispatching, guarded by this. */
+  private final ArrayDeque<ACTION> actionQueue = new ArrayDeque<>();
+  /** The listeners that are waiting to be notified of the current state, guarded by this. */
+  private final List<LISTENER> pendingSubscribers = new ArrayList<>();
+  /** The thread executing the actions and notifying the listeners, guarded by this. */
+  private Thread dispatchingThread;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  PrimitiveStore(MIDDLEWARE[] middlewares) {
+    this.middlewares = middlewares.clone();
+    this.chains = new PrimitiveStore.Link[middlewares.length + 1];
+    for (int i = 0; i < chains.length; i++) {
+      // the chains only keep their index, they don't use the state of the subclass yet.
+      chains[i] = newChain(i);
+    }
+  }
+
+  /**
+   * @param index the index of the chain.
+   * @return a new chain, implementing the chain interface of the middle wares of the subclass.
+   */
+  abstract Link newChain(int index);
+
+  /** Applies {@code action} to the state of the store. Called while holding the monitor. */
+  abstract void reduce(ACTION action);
+
+  /** Calls {@code middleware} with {@code chain}, which was created by {@link #newChain(int)}. */
+  abstract void intercept(MIDDLEWARE middleware, Link chain);
+
+  /**
+   * @return the current state of the store, encoded in a long. Called while holding the monitor.
+   */
+  abstract long encodeState();
+
+  /** Notifies {@code listener} of a state returned by {@link #encodeState()}. */
+  abstract void notifyListener(LISTENER listener, long encodedState);
+
+  /**
+   * Dispatches an action in the store, see {@link Store#dispatch(Action)}.
+   *
+   * @param action the action to be executed.
+   */
+  public void dispatch(ACTION action) {
+    synchronized (this) {
+      actionQueue.addLast(action);
+      if (dispatchingThread != null) {
+        return;
+      }
+      dispatchingThread = Thread.currentThread();
+    }
+    emitSequentially();
+  }
+
+  /**
+   * Adds a new listener, see {@link Store#subscribe(Store.StateChangeListener)}. The listener is
+   * first notified of the current state.
+   *
+   * @param listener the listener to be added.
+   */
+  public void subscribe(LISTENER listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener is null");
+    }
+    synchronized (this) {
+      pendingSubscribers.add(listener);
+      if (dispatchingThread != null) {
+        return;
+      }
+      dispatchingThread = Thread.currentThread();
+    }
+    emitSequentially();
+  }
+
+  /**
+   * Removes a previously added listener.
+   *
+   * @param listener the listener to be removed.
+   */
+  public void unsubscribe(LISTENER listener) {
+    synchronized (this) {
+      if (pendingSubscribers.remove(listener)) {
+        return;
+      }
+      Object[] listeners = stateChangeListeners;
+      for (int i = 0; i < listeners.length; i++) {
+        if (listeners[i] == listener) {
+          Object[] newListeners = new Object[listeners.length - 1];
+          System.arraycopy(listeners, 0, newListeners, 0, i);
+          System.arraycopy(listeners, i + 1, newListeners, i, newListeners.length - i);
+          stateChangeListeners = newListeners;
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Executes the queued actions and notifies the listeners, until there is nothing left to do. Must
+   * be called by the dispatching thread, and without holding the monitor of the store. Like {@link
+   * Store}, the actions queued behind a failed action or listener are still executed before the
+   * first failure is rethrown. The primitive stores have no event listener, the next failures are
+   * discarded.
+   */
+  private void emitSequentially() {
+    RuntimeException failure = null;
+    boolean idle = false;
+    try {
+      while (!idle) {
+        try {
+          idle = !emitNext();
+        } catch (RuntimeException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+    } finally {
+      if (!idle) {
+        // an error was thrown, let the next dispatch resume the work.
+        synchronized (this) {
+          dispatchingThread = null;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Executes the next queued action and notifies the listeners, or adds the pending subscribers
+   * and notifies them of the current state. Must be called by the dispatching thread.
+   *
+   * @return false if there was nothing left to do, in which case the dispatching thread has been
+   *     released.
+   */
+  @SuppressWarnings("unchecked")
+  private boolean emitNext() {
+    Object[] listeners;
+    long newState;
+    synchronized (this) {
+      if (!pendingSubscribers.isEmpty()) {
+        listeners = pendingSubscribers.toArray();
+        pendingSubscribers.clear();
+        stateChangeListeners = concat(stateChangeListeners, listeners);
+      } else {
+        ACTION nextAction = actionQueue.pollFirst();
+        if (nextAction == null) {
+          dispatchingThread = null;
+          return false;
+        }
+        Link chain = chains[0];
+        chain.reset(nextAction);
+        chain.proceed(nextAction);
+        listeners = stateChangeListeners;
+      }
+      newState = encodeState();
+    }
+    for (Object listener : listeners) {
+      notifyListener((LISTENER) listener, newState);
+    }
+    return true;
+  }
+
+  private static Object[] concat(Object[] listeners, Object[] newListeners) {
+    Object[] result = new Object[listeners.length + newListeners.length];
+    System.arraycopy(listeners, 0, result, 0, listeners.length);
+    System.arraycopy(newListeners, 0, result, listeners.length, newListeners.length);
+    return result;
+  }
+
+  /**
+   * A link of the middle ware chain, that checks that {@link #proceed(Object)} is called once and
+   * only once, like {@link RealMiddlewareChain}. Subclasses make it implement the chain interface
+   * of their middle wares.
+   */
+  abstract class Link {
+    private final int index;
+    private ACTION action;
+    /** Number of calls to the proceed method for the current action. */
+    private int calls;
+
+    Link(int index) {
+      this.index = index;
+    }
+
+    void reset(ACTION action) {
+      this.action = action;
+      this.calls = 0;
+    }
+
+    /** @return the action being dispatched. */
+    public ACTION action() {
+      return action;
+    }
+
+    /**
+     * Triggers the rest of the middle wares to be executed, and ultimately the action to be
+     * executed.
+     *
+     * @param action the action being dispatched in the store.
+     */
+    @SuppressWarnings("unchecked")
+    public void proceed(ACTION action) {
+      calls++;
+      if (calls > 1) {
+        throw new IllegalStateException(
+            "middleware " + middlewares[index - 1] + " must call proceed() exactly once");
+      }
+      if (index == middlewares.length) {
+        reduce(action);
+        return;
+      }
+      Link next = chains[index + 1];
+      next.reset(action);
+      MIDDLEWARE middleware = (MIDDLEWARE) middlewares[index];
+      intercept(middleware, next);
+      if (next.calls != 1) {
+        throw new IllegalStateException(
+            "middleware " + middleware + " must call proceed() exactly once");
+      }
+    }
+  }
+}
@@ -73,7 +73,19 @@ final class RealMiddlewareChain<STATE> implements Store.Middleware.Chain<STATE>
     RealMiddlewareChain<STATE> next =
         new RealMiddlewareChain<>(store, action, middlewares, index + 1);
     Store.Middleware<STATE> middleware = middlewares.get(index);
-    middleware.intercept(next);
+    // the last middle ware calls the reducer, which has its own events.
+    if (index + 1 < middlewares.size()) {
+      StoreEventListener eventListener = store.getEventListener();
+      long startNanos = store.eventNanos();
+      eventListener.middlewareStart(store, middleware, action);
+      try {
+        middleware.intercept(next);
+      } finally {
+        eventListener.middlewareEnd(store, middleware, action, store.eventNanos() - startNanos);
+      }
+    } else {
+      middleware.intercept(next);
+    }
 
     // Confirm that the next middleware made its required call to chain.proceed().
     if (index + 1 < middlewares.size() && next.calls != 1) {
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * An action of a slice of a state, lifted to the whole state by a {@link Lens}. The state is left
+ * untouched if the action returns the same slice. </br> Middle wares of the store see the scoped
+ * action, and can inspect the action of the slice via {@link #getAction()}.
+ *
+ * @param <STATE> the class of the state.
+ * @param <SLICE> the class of the slice.
+ * @see ScopedStore#dispatch(Action)
+ */
+public final class ScopedAction<STATE, SLICE> implements Action<STATE> {
+
+  private final Lens<STATE, SLICE> lens;
+  private final Action<SLICE> action;
+
+  /**
+   * Creates a scoped action.
+   *
+   * @param lens the lens of the slice.
+   * @param action the action of the slice.
+   */
+  public ScopedAction(Lens<STATE, SLICE> lens, Action<SLICE> action) {
+    if (lens == null) {
+      throw new IllegalArgumentException("Lens is null");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("Action is null");
+    }
+    this.lens = lens;
+    this.action = action;
+  }
+
+  /** @return the lens of the slice. */
+  public Lens<STATE, SLICE> getLens() {
+    return lens;
+  }
+
+  /** @return the action of the slice. */
+  public Action<SLICE> getAction() {
+    return action;
+  }
+
+  @Override
+  public STATE newState(STATE oldState) {
+    SLICE oldSlice = lens.get(oldState);
+    SLICE newSlice = action.newState(oldSlice);
+    return newSlice == oldSlice ? oldState : lens.set(oldState, newSlice);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.SharedStoreListener.Subscription;
+import com.groupon.grox.Store.Priority;
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A view of a slice of the state of a store, typically the part of the state owned by a feature. It
+ * has the API of a store, for this slice:
+ *
+ * <ul>
+ *   <li>its actions are actions of the slice, lifted into actions of the store by a {@link Lens},
+ *       see {@link ScopedAction}.
+ *   <li>its listeners are only notified when the slice changes, i.e. when the lens returns a
+ *       different instance. The actions that don't change the slice don't wake them up.
+ * </ul>
+ *
+ * All the listeners of a scoped store share a single listener of the store, which reads the slice
+ * once per state change. Like the listeners of a store, a listener is first notified of the current
+ * slice, by the dispatching thread of the store.
+ *
+ * @param <STATE> the class of the state of the store.
+ * @param <SLICE> the class of the slice.
+ * @see Store#scope(Lens)
+ */
+public final class ScopedStore<STATE, SLICE> {
+
+  private final Store<STATE> store;
+  private final Lens<STATE, SLICE> lens;
+  /** Reads the slice of a state. */
+  private final Selector<STATE, SLICE> sliceSelector;
+  /** The subscriptions of the listeners, including the ones waiting for the current slice. */
+  private final List<Subscription<STATE, SLICE>> subscriptions = new CopyOnWriteArrayList<>();
+  /** The listener of the store shared by the subscriptions. */
+  private final SharedStoreListener<STATE> sharedListener;
+
+  ScopedStore(Store<STATE> store, final Lens<STATE, SLICE> lens) {
+    this.store = store;
+    this.lens = lens;
+    this.sliceSelector =
+        new Selector<STATE, SLICE>() {
+          @Override
+          public SLICE select(STATE state) {
+            return lens.get(state);
+          }
+        };
+    this.sharedListener =
+        new SharedStoreListener<STATE>(store) {
+          @Override
+          StateChangeListener<STATE> newStoreListener() {
+            return new SliceListener();
+          }
+        };
+  }
+
+  /**
+   * Dispatches an action of the slice in the store.
+   *
+   * @param action the action to be executed.
+   * @see Store#dispatch(Action)
+   */
+  public void dispatch(Action<SLICE> action) {
+    store.dispatch(new ScopedAction<>(lens, action));
+  }
+
+  /**
+   * Dispatches an action of the slice in the store with a given priority.
+   *
+   * @param action the action to be executed.
+   * @param priority the priority of the action.
+   * @see Store#dispatch(Action, Priority)
+   */
+  public void dispatch(Action<SLICE> action, Priority priority) {
+    store.dispatch(new ScopedAction<>(lens, action), priority);
+  }
+
+  /** @return the current slice of the state of the store. */
+  public SLICE getState() {
+    return lens.get(store.getState());
+  }
+
+  /**
+   * Adds a listener, that will be notified of the current slice, and then of the changes of the
+   * slice.
+   *
+   * @param listener the listener to be added.
+   * @see Store#subscribe(StateChangeListener)
+   */
+  public void subscribe(StateChangeListener<SLICE> listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener is null");
+    }
+    Subscription<STATE, SLICE> subscription =
+        new Subscription<>(sharedListener, listener, sliceSelector);
+    subscriptions.add(subscription);
+    sharedListener.subscribe(subscription);
+  }
+
+  /**
+   * Removes a previously added listener.
+   *
+   * @param listener the listener to be removed.
+   */
+  public void unsubscribe(StateChangeListener<SLICE> listener) {
+    for (Subscription<STATE, SLICE> subscription : subscriptions) {
+      if (subscription.listener == listener) {
+        subscriptions.remove(subscription);
+        sharedListener.unsubscribe(subscription);
+        return;
+      }
+    }
+  }
+
+  /** @return the store of the slice. */
+  public Store<STATE> getStore() {
+    return store;
+  }
+
+  /** Reads the slice once per state change, and notifies the active subscriptions. */
+  private final class SliceListener implements StateChangeListener<STATE> {
+    @Override
+    public void onStateChanged(STATE newState) {
+      SLICE slice = lens.get(newState);
+      for (Subscription<STATE, SLICE> subscription : subscriptions) {
+        if (subscription.active) {
+          subscription.notifyIfChanged(slice);
+        }
+      }
+    }
+  }
+}
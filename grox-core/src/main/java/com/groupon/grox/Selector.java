@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * Derives a value from the state of a store, like the total of a cart or the filtered items of a
+ * list. Like actions, selectors must be pure functions. </br> Selectors can be memoized and
+ * combined into a graph of derived values, see {@link Selectors}.
+ *
+ * @param <STATE> the class of the state.
+ * @param <RESULT> the class of the derived value.
+ */
+public interface Selector<STATE, RESULT> {
+  RESULT select(STATE state);
+}
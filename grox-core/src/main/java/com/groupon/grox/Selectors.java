@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * Creates {@link MemoizedSelector}s, in the style of reselect. A memoized selector computes its
+ * inputs, which are selectors themselves, and only calls its combiner when one of the inputs
+ * changed. Inputs are compared by reference, as states are immutable. </br> Memoized selectors can
+ * be the inputs of other memoized selectors, forming a graph of derived values where a node is only
+ * recomputed when a node it depends on changed:
+ *
+ * <pre>{@code
+ * Selector<State, List<Item>> items = state -> state.items;
+ * Selector<State, Filter> filter = state -> state.filter;
+ * MemoizedSelector<State, List<Item>> visibleItems = Selectors.create(items, filter, Item::filter);
+ * MemoizedSelector<State, Integer> total = Selectors.create(visibleItems, Item::total);
+ * Integer currentTotal = total.select(store.getState());
+ * }</pre>
+ */
+public final class Selectors {
+
+  private Selectors() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Memoizes a selector: it is only called again when the state changes.
+   *
+   * @param selector the selector to memoize.
+   * @param <STATE> the class of the state.
+   * @param <RESULT> the class of the derived value.
+   * @return a memoized selector, with a cache of size 1.
+   */
+  public static <STATE, RESULT> MemoizedSelector<STATE, RESULT> memoize(
+      final Selector<STATE, RESULT> selector) {
+    return create(
+        new Selector<STATE, STATE>() {
+          @Override
+          public STATE select(STATE state) {
+            return state;
+          }
+        },
+        selector);
+  }
+
+  /**
+   * Creates a memoized selector with one input.
+   *
+   * @param input the input of the selector.
+   * @param combiner computes the derived value out of the value of the input.
+   * @param <STATE> the class of the state.
+   * @param <A> the class of the value of the input.
+   * @param <RESULT> the class of the derived value.
+   * @return a memoized selector, with a cache of size 1.
+   */
+  public static <STATE, A, RESULT> MemoizedSelector<STATE, RESULT> create(
+      Selector<STATE, A> input, final Selector<A, RESULT> combiner) {
+    return new MemoizedSelector<>(
+        new Selector<?, ?>[] {input},
+        new MemoizedSelector.Combiner<RESULT>() {
+          @Override
+          @SuppressWarnings("unchecked")
+          public RESULT combine(Object[] values) {
+            return combiner.select((A) values[0]);
+          }
+        },
+        1);
+  }
+
+  /**
+   * Creates a memoized selector with two inputs.
+   *
+   * @param inputA the first input of the selector.
+   * @param inputB the second input of the selector.
+   * @param combiner computes the derived value out of the values of the inputs.
+   * @param <STATE> the class of the state.
+   * @param <A> the class of the value of the first input.
+   * @param <B> the class of the value of the second input.
+   * @param <RESULT> the class of the derived value.
+   * @return a memoized selector, with a cache of size 1.
+   */
+  public static <STATE, A, B, RESULT> MemoizedSelector<STATE, RESULT> create(
+      Selector<STATE, A> inputA,
+      Selector<STATE, B> inputB,
+      final Combiner2<A, B, RESULT> combiner) {
+    return new MemoizedSelector<>(
+        new Selector<?, ?>[] {inputA, inputB},
+        new MemoizedSelector.Combiner<RESULT>() {
+          @Override
+          @SuppressWarnings("unchecked")
+          public RESULT combine(Object[] values) {
+            return combiner.combine((A) values[0], (B) values[1]);
+          }
+        },
+        1);
+  }
+
+  /**
+   * Creates a memoized selector with three inputs.
+   *
+   * @param inputA the first input of the selector.
+   * @param inputB the second input of the selector.
+   * @param inputC the third input of the selector.
+   * @param combiner computes the derived value out of the values of the inputs.
+   * @param <STATE> the class of the state.
+   * @param <A> the class of the value of the first input.
+   * @param <B> the class of the value of the second input.
+   * @param <C> the class of the value of the third input.
+   * @param <RESULT> the class of the derived value.
+   * @return a memoized selector, with a cache of size 1.
+   */
+  public static <STATE, A, B, C, RESULT> MemoizedSelector<STATE, RESULT> create(
+      Selector<STATE, A> inputA,
+      Selector<STATE, B> inputB,
+      Selector<STATE, C> inputC,
+      final Combiner3<A, B, C, RESULT> combiner) {
+    return new MemoizedSelector<>(
+        new Selector<?, ?>[] {inputA, inputB, inputC},
+        new MemoizedSelector.Combiner<RESULT>() {
+          @Override
+          @SuppressWarnings("unchecked")
+          public RESULT combine(Object[] values) {
+            return combiner.combine((A) values[0], (B) values[1], (C) values[2]);
+          }
+        },
+        1);
+  }
+
+  /**
+   * Computes a derived value out of the values of two inputs.
+   *
+   * @param <A> the class of the value of the first input.
+   * @param <B> the class of the value of the second input.
+   * @param <RESULT> the class of the derived value.
+   */
+  public interface Combiner2<A, B, RESULT> {
+    RESULT combine(A a, B b);
+  }
+
+  /**
+   * Computes a derived value out of the values of three inputs.
+   *
+   * @param <A> the class of the value of the first input.
+   * @param <B> the class of the value of the second input.
+   * @param <C> the class of the value of the third input.
+   * @param <RESULT> the class of the derived value.
+   */
+  public interface Combiner3<A, B, C, RESULT> {
+    RESULT combine(A a, B b, C c);
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.Store.StateChangeListener;
+
+/**
+ * A listener of a store shared by many listeners of a view of the store, see {@link ScopedStore}
+ * and {@link ListenerIndex}. It is subscribed to the store lazily: only while at least one of the
+ * listeners is active, i.e. has been notified of the current state of the store. </br> Each
+ * listener of the view has a {@link Subscription}, that first notifies it of the current state, by
+ * the dispatching thread of the store, and then activates it. The view then notifies the active
+ * subscriptions from the shared listener.
+ *
+ * @param <STATE> the class of the state of the store.
+ */
+abstract class SharedStoreListener<STATE> {
+
+  private final Store<STATE> store;
+  /** The number of active subscriptions, guarded by this. */
+  private int activeSubscriptionCount;
+  /** The listener subscribed to the store, or null. Modified while holding the monitor of this. */
+  private volatile StateChangeListener<STATE> storeListener;
+  /** True while a thread updates the subscription to the store, guarded by this. */
+  private boolean updatingStoreSubscription;
+  /**
+   * True if the subscriptions changed while the store subscription was updated, guarded by this.
+   */
+  private boolean storeSubscriptionOutdated;
+
+  SharedStoreListener(Store<STATE> store) {
+    this.store = store;
+  }
+
+  /**
+   * @return a new listener to subscribe to the store. A new listener is used for each subscription
+   *     to the store, so that it starts without previous state.
+   */
+  abstract StateChangeListener<STATE> newStoreListener();
+
+  /** @return true if a listener is subscribed to the store, or about to be. */
+  boolean isSubscribed() {
+    return storeListener != null;
+  }
+
+  /**
+   * Starts a subscription: its listener is notified of the current state by the dispatching thread
+   * of the store, and the subscription is then activated.
+   */
+  void subscribe(Subscription<STATE, ?> subscription) {
+    store.subscribe(subscription.initialStateListener);
+  }
+
+  /** Cancels a subscription, and unsubscribes the shared listener if it was the last active one. */
+  void unsubscribe(Subscription<STATE, ?> subscription) {
+    synchronized (this) {
+      subscription.cancelled = true;
+      if (subscription.active) {
+        activeSubscriptionCount--;
+      }
+    }
+    store.unsubscribe(subscription.initialStateListener);
+    updateStoreSubscription();
+  }
+
+  private void activate(Subscription<STATE, ?> subscription) {
+    synchronized (this) {
+      if (subscription.cancelled) {
+        return;
+      }
+      subscription.active = true;
+      activeSubscriptionCount++;
+    }
+    updateStoreSubscription();
+  }
+
+  /**
+   * Subscribes a shared listener to the store if a subscription is active, or unsubscribes it. The
+   * changes are applied one at a time, without holding the monitor of this while calling the store.
+   */
+  private void updateStoreSubscription() {
+    synchronized (this) {
+      if (updatingStoreSubscription) {
+        // the updating thread will apply the latest changes.
+        storeSubscriptionOutdated = true;
+        return;
+      }
+      updatingStoreSubscription = true;
+    }
+    while (true) {
+      StateChangeListener<STATE> subscribedListener;
+      StateChangeListener<STATE> unsubscribedListener;
+      synchronized (this) {
+        boolean hasActiveSubscription = activeSubscriptionCount > 0;
+        if (hasActiveSubscription == (storeListener != null)) {
+          if (!storeSubscriptionOutdated) {
+            updatingStoreSubscription = false;
+            return;
+          }
+          storeSubscriptionOutdated = false;
+          continue;
+        }
+        unsubscribedListener = storeListener;
+        storeListener = hasActiveSubscription ? newStoreListener() : null;
+        subscribedListener = storeListener;
+      }
+      if (subscribedListener != null) {
+        // the shared listener is first notified of the current state, which the active
+        // subscriptions already received.
+        store.subscribe(subscribedListener);
+      } else {
+        store.unsubscribe(unsubscribedListener);
+      }
+    }
+  }
+
+  /**
+   * The subscription of a listener of a view, that is notified of a value derived from the state.
+   *
+   * @param <STATE> the class of the state of the store.
+   * @param <VALUE> the class of the values the listener is notified of.
+   */
+  static final class Subscription<STATE, VALUE> {
+    final StateChangeListener<VALUE> listener;
+    private final Selector<STATE, VALUE> selector;
+    /** Notifies the listener of the current value, once, and then activates the subscription. */
+    final StateChangeListener<STATE> initialStateListener;
+    /** The last value the listener was notified of, guarded by this. */
+    private VALUE lastValue;
+
+    private boolean notified;
+    /** True once the listener has been notified of the current value. */
+    volatile boolean active;
+
+    volatile boolean cancelled;
+
+    Subscription(
+        final SharedStoreListener<STATE> sharedListener,
+        StateChangeListener<VALUE> listener,
+        Selector<STATE, VALUE> selector) {
+      this.listener = listener;
+      this.selector = selector;
+      this.initialStateListener =
+          new StateChangeListener<STATE>() {
+            @Override
+            public void onStateChanged(STATE newState) {
+              sharedListener.store.unsubscribe(this);
+              if (cancelled) {
+                return;
+              }
+              notifyIfChanged(Subscription.this.selector.select(newState));
+              sharedListener.activate(Subscription.this);
+            }
+          };
+    }
+
+    /** Notifies the listener of a value, unless it was already notified of this instance. */
+    synchronized void notifyIfChanged(VALUE value) {
+      if (cancelled || notified && lastValue == value) {
+        return;
+      }
+      notified = true;
+      lastValue = value;
+      listener.onStateChanged(value);
+    }
+  }
+}
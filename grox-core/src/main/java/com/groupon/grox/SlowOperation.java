@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An action or a listener that took longer than its threshold, as reported by a {@link
+ * SlowOperationDetector}.
+ */
+public final class SlowOperation {
+
+  /** The kinds of operations watched by a {@link SlowOperationDetector}. */
+  public enum Kind {
+    /** An action, going through the next middle wares and the reducer. */
+    ACTION,
+    /** A listener being notified of a state change. */
+    LISTENER
+  }
+
+  private final Kind kind;
+  private final Object offender;
+  private final long durationNanos;
+  private final long thresholdNanos;
+  private final String threadName;
+  private final StackTraceElement[] stackTrace;
+
+  SlowOperation(
+      Kind kind,
+      Object offender,
+      long durationNanos,
+      long thresholdNanos,
+      String threadName,
+      StackTraceElement[] stackTrace) {
+    this.kind = kind;
+    this.offender = offender;
+    this.durationNanos = durationNanos;
+    this.thresholdNanos = thresholdNanos;
+    this.threadName = threadName;
+    this.stackTrace = stackTrace;
+  }
+
+  /** @return whether the slow operation is an action or a listener. */
+  public Kind getKind() {
+    return kind;
+  }
+
+  /** @return the slow action or listener. */
+  public Object getOffender() {
+    return offender;
+  }
+
+  /** @return how long the operation took. */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  /** @return the threshold the operation exceeded. */
+  public long getThresholdNanos() {
+    return thresholdNanos;
+  }
+
+  /** @return the name of the thread that executed the operation. */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /**
+   * @return the stack of the thread, sampled while the operation was running late, or {@code null}
+   *     if it was not sampled.
+   */
+  public StackTraceElement[] getStackTrace() {
+    return stackTrace == null ? null : stackTrace.clone();
+  }
+
+  @Override
+  public String toString() {
+    return kind.name().toLowerCase(Locale.ROOT)
+        + " "
+        + offender.getClass().getName()
+        + " took "
+        + TimeUnit.NANOSECONDS.toMillis(durationNanos)
+        + " ms on "
+        + threadName
+        + " (threshold: "
+        + TimeUnit.NANOSECONDS.toMillis(thresholdNanos)
+        + " ms)";
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.SlowOperation.Kind;
+import com.groupon.grox.Store.Middleware;
+import com.groupon.grox.Store.StateChangeListener;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects the actions and the listeners that take longer than a threshold, and reports them to a
+ * {@link Sink}. </br> Actions are watched by a middle ware, see {@link #middleware()}. It measures
+ * the time spent in the next middle wares and in the reducer, it should be the last middle ware of
+ * a store to measure the reducer alone. Listeners are watched by wrapping them, see {@link
+ * #watch(StateChangeListener)}. </br> A detector can also sample the stack of the threads running
+ * late, which shows what a slow operation is doing. A watchdog thread checks the operations in
+ * progress, and captures the stack of the ones that exceeded their threshold, at most once per
+ * sampling interval. The stack is then part of the report. The watchdog is a daemon thread,
+ * started with the first operation, and stopped by {@link #stop()}.
+ */
+public final class SlowOperationDetector {
+
+  /** Receives the slow operations detected by a {@link SlowOperationDetector}. */
+  public interface Sink {
+    /**
+     * Called by the thread that executed the slow operation, once it is over. Sinks must be fast,
+     * typically logging or counting the report.
+     *
+     * @param slowOperation the report of the slow operation.
+     */
+    void onSlowOperation(SlowOperation slowOperation);
+  }
+
+  private final Sink sink;
+  private final long actionThresholdNanos;
+  private final long listenerThresholdNanos;
+  private final long stackSamplingIntervalNanos;
+
+  /** The watch of the operations of each thread. */
+  private final ThreadLocal<Watch> watches =
+      new ThreadLocal<Watch>() {
+        @Override
+        protected Watch initialValue() {
+          return register(new Watch(Thread.currentThread()));
+        }
+      };
+  /** The watches of all the threads that executed an operation, guarded by this. */
+  private final List<Watch> registeredWatches = new ArrayList<>();
+  /** The thread sampling the stacks, written while holding the monitor of this. */
+  private volatile Thread watchdog;
+  /** The time of the latest stack sample, only accessed by the watchdog. */
+  private long lastSampleNanos;
+
+  /**
+   * Creates a detector that doesn't sample the stacks.
+   *
+   * @param sink receives the slow operations.
+   * @param actionThresholdMillis the time after which an action is slow.
+   * @param listenerThresholdMillis the time after which a listener is slow.
+   */
+  public SlowOperationDetector(
+      Sink sink, long actionThresholdMillis, long listenerThresholdMillis) {
+    this(sink, actionThresholdMillis, listenerThresholdMillis, -1);
+  }
+
+  /**
+   * Creates a detector that samples the stacks of slow operations.
+   *
+   * @param sink receives the slow operations.
+   * @param actionThresholdMillis the time after which an action is slow.
+   * @param listenerThresholdMillis the time after which a listener is slow.
+   * @param stackSamplingIntervalMillis the minimum time between two stack samples, or a negative
+   *     value to never sample the stacks.
+   */
+  public SlowOperationDetector(
+      Sink sink,
+      long actionThresholdMillis,
+      long listenerThresholdMillis,
+      long stackSamplingIntervalMillis) {
+    if (sink == null) {
+      throw new IllegalArgumentException("Sink is null");
+    }
+    if (actionThresholdMillis < 0 || listenerThresholdMillis < 0) {
+      throw new IllegalArgumentException("Thresholds must not be negative");
+    }
+    this.sink = sink;
+    this.actionThresholdNanos = TimeUnit.MILLISECONDS.toNanos(actionThresholdMillis);
+    this.listenerThresholdNanos = TimeUnit.MILLISECONDS.toNanos(listenerThresholdMillis);
+    this.stackSamplingIntervalNanos =
+        stackSamplingIntervalMillis < 0
+            ? -1
+            : TimeUnit.MILLISECONDS.toNanos(stackSamplingIntervalMillis);
+  }
+
+  /**
+   * @param <STATE> the class of the state.
+   * @return a middle ware that watches the actions of a store.
+   */
+  public <STATE> Middleware<STATE> middleware() {
+    return new SlowActionMiddleware<>();
+  }
+
+  /**
+   * Wraps a listener so that its notifications are watched. The wrapper is the listener to
+   * subscribe to, and to unsubscribe from, the store.
+   *
+   * @param listener the listener to watch.
+   * @param <STATE> the class of the state.
+   * @return a listener that delegates to {@code listener}.
+   */
+  public <STATE> StateChangeListener<STATE> watch(StateChangeListener<STATE> listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener is null");
+    }
+    return new SlowStateChangeListener<>(listener);
+  }
+
+  /** Stops the watchdog thread, if it is running. It is restarted by the next operation. */
+  public void stop() {
+    synchronized (this) {
+      if (watchdog != null) {
+        watchdog.interrupt();
+        watchdog = null;
+      }
+    }
+  }
+
+  private Watch start(Object offender, long thresholdNanos) {
+    if (stackSamplingIntervalNanos >= 0 && watchdog == null) {
+      startWatchdog();
+    }
+    Watch watch = watches.get();
+    if (watch.depth++ == 0) {
+      watch.generation++;
+      watch.thresholdNanos = thresholdNanos;
+      watch.startNanos = System.nanoTime();
+      watch.offender = offender;
+    }
+    return watch;
+  }
+
+  private void end(Watch watch, Kind kind) {
+    if (--watch.depth > 0) {
+      return;
+    }
+    long durationNanos = System.nanoTime() - watch.startNanos;
+    Object offender = watch.offender;
+    watch.offender = null;
+    if (durationNanos > watch.thresholdNanos) {
+      // a sample of a previous operation may have been published late, it is ignored.
+      StackSample stackSample = watch.stackSample;
+      StackTraceElement[] stackTrace =
+          stackSample != null && stackSample.generation == watch.generation
+              ? stackSample.stackTrace
+              : null;
+      sink.onSlowOperation(
+          new SlowOperation(
+              kind,
+              offender,
+              durationNanos,
+              watch.thresholdNanos,
+              Thread.currentThread().getName(),
+              stackTrace));
+    }
+  }
+
+  private Watch register(Watch watch) {
+    if (stackSamplingIntervalNanos < 0) {
+      return watch;
+    }
+    synchronized (this) {
+      registeredWatches.add(watch);
+    }
+    return watch;
+  }
+
+  private synchronized void startWatchdog() {
+    if (watchdog == null) {
+      Thread thread = new Thread(new Watchdog(), "grox-slow-operation-watchdog");
+      thread.setDaemon(true);
+      thread.start();
+      watchdog = thread;
+    }
+  }
+
+  /** Samples the stack of a thread that is running late, if the sampling interval allows it. */
+  private void sample(Watch watch, long now) {
+    Thread thread = watch.thread.get();
+    // the generation is read first, the watched thread increments it before the other fields.
+    long generation = watch.generation;
+    Object offender = watch.offender;
+    StackSample stackSample = watch.stackSample;
+    if (thread == null
+        || offender == null
+        || (stackSample != null && stackSample.generation == generation)
+        || now - watch.startNanos <= watch.thresholdNanos
+        || (lastSampleNanos != 0 && now - lastSampleNanos < stackSamplingIntervalNanos)) {
+      return;
+    }
+    StackTraceElement[] stackTrace = thread.getStackTrace();
+    lastSampleNanos = now;
+    // the operation may have ended while sampling, the watched thread also checks the generation
+    // of the sample, in case it ends while the sample is published.
+    if (watch.generation == generation && watch.offender == offender) {
+      watch.stackSample = new StackSample(generation, stackTrace);
+    }
+  }
+
+  /** The operation in progress in a thread. */
+  private static final class Watch {
+    final WeakReference<Thread> thread;
+    /** The operation in progress, or null. Written by the watched thread only. */
+    volatile Object offender;
+
+    /** Incremented when an operation starts. Written by the watched thread only. */
+    volatile long generation;
+
+    volatile long startNanos;
+    volatile long thresholdNanos;
+    /** Written by the watchdog, read by the watched thread at the end of the operation. */
+    volatile StackSample stackSample;
+    /** The number of nested operations, only accessed by the watched thread. */
+    int depth;
+
+    Watch(Thread thread) {
+      this.thread = new WeakReference<>(thread);
+    }
+  }
+
+  /** A stack sampled by the watchdog, for the operation of a given generation of a watch. */
+  private static final class StackSample {
+    final long generation;
+    final StackTraceElement[] stackTrace;
+
+    StackSample(long generation, StackTraceElement[] stackTrace) {
+      this.generation = generation;
+      this.stackTrace = stackTrace;
+    }
+  }
+
+  /** Checks the operations in progress, twice per threshold. */
+  private final class Watchdog implements Runnable {
+    @Override
+    public void run() {
+      long periodMillis =
+          Math.max(
+              1,
+              TimeUnit.NANOSECONDS.toMillis(Math.min(actionThresholdNanos, listenerThresholdNanos))
+                  / 2);
+      List<Watch> watchesToCheck = new ArrayList<>();
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          Thread.sleep(periodMillis);
+        } catch (InterruptedException e) {
+          return;
+        }
+        watchesToCheck.clear();
+        synchronized (SlowOperationDetector.this) {
+          for (Iterator<Watch> iterator = registeredWatches.iterator(); iterator.hasNext(); ) {
+            Watch watch = iterator.next();
+            if (watch.thread.get() == null) {
+              iterator.remove();
+            } else {
+              watchesToCheck.add(watch);
+            }
+          }
+        }
+        long now = System.nanoTime();
+        for (Watch watch : watchesToCheck) {
+          sample(watch, now);
+        }
+      }
+    }
+  }
+
+  /** Internal middle ware that watches the actions. */
+  private final class SlowActionMiddleware<STATE> implements Middleware<STATE> {
+    @Override
+    public void intercept(Chain<STATE> chain) {
+      Action<STATE> action = chain.action();
+      Watch watch = start(action, actionThresholdNanos);
+      try {
+        chain.proceed(action);
+      } finally {
+        end(watch, Kind.ACTION);
+      }
+    }
+  }
+
+  /** Internal listener that watches a listener. */
+  private final class SlowStateChangeListener<STATE> implements StateChangeListener<STATE> {
+    private final StateChangeListener<STATE> listener;
+
+    SlowStateChangeListener(StateChangeListener<STATE> listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void onStateChanged(STATE newState) {
+      Watch watch = start(listener, listenerThresholdNanos);
+      try {
+        listener.onStateChanged(newState);
+      } finally {
+        end(watch, Kind.LISTENER);
+      }
+    }
+  }
+}
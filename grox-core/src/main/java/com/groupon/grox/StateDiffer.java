@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * Computes the structural diff between two states of a store. A differ is shared by all the {@link
+ * Store.StateDiffListener}s subscribed with it, and the store computes the diff of a state change
+ * only once for all of them. </br> Like actions, differs must be pure functions. As states are
+ * immutable, a differ should compare the parts of the states by reference first, and only compare
+ * them by value when they are not the same instance. With persistent collections, that share their
+ * unchanged parts between versions, most comparisons are then resolved by reference.
+ *
+ * @param <STATE> the class of the state.
+ * @param <DIFF> the class of the diff.
+ * @see Store#subscribe(StateDiffer, Store.StateDiffListener)
+ * @see MapDiffer
+ */
+public interface StateDiffer<STATE, DIFF> {
+  /**
+   * @param oldState the previous state, or {@code null} for the first notification of a listener.
+   * @param newState the new state.
+   * @return the diff between the two states.
+   */
+  DIFF diff(STATE oldState, STATE newState);
+}
@@ -17,12 +17,18 @@ package com.groupon.grox;
 
 import static java.util.Arrays.asList;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Like Redux Stores, stores in grox are:
@@ -31,31 +37,123 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *   <li>responsible for holding the state.
  *   <li>state is immutable.
  *   <li>stores accept {@link StateChangeListener} that will be notified of state changes.
- *       <em>Unlike in redux, the listeners are not unsubscribed automatically.</em>
+ *       <em>Unlike in redux, the listeners are not unsubscribed automatically.</em> Listeners can
+ *       be held weakly by the store, see {@link #subscribeWeakly(StateChangeListener)}, or be
+ *       unsubscribed together, see {@link SubscriptionScope}.
  *   <li>stores also use {@link Middleware} like in redux.
  *   <li>they are fully testable.
  * </ul>
  *
+ * Stores are thread safe. Actions are executed, and listeners notified, by a single thread at a
+ * time: the one that found the store idle when dispatching. The actions dispatched by other threads
+ * in the meantime are queued and executed by this thread. The monitor of the store is only held to
+ * queue actions and to execute them, not while notifying the listeners, so that other threads can
+ * keep dispatching while the listeners are notified.
+ *
  * @param <STATE> the class of the state.
  */
 public class Store<STATE> {
 
   /** The current state of the store. */
-  private STATE state;
+  private volatile STATE state;
   /** The list of internal middle wares. */
   private final List<Middleware<STATE>> middlewares = new ArrayList<>();
   /** The list of all state change listeners that will get notified of state changes. */
   private final List<StateChangeListener<STATE>> stateChangeListeners =
       new CopyOnWriteArrayList<>();
   /** Uses to queue the actions so that they are presented in order to subscribers. */
-  private final Queue<Action<STATE>> actionQueue = new LinkedList<>();
-  /** Internal state flag raised and lowered when dispatching. */
-  private final AtomicBoolean isDispatching = new AtomicBoolean(false);
+  private final ActionQueue<STATE> actionQueue;
+  /** How the state change listeners are notified. */
+  private final NotificationStrategy notificationStrategy;
+  /** Listens to the internal events of the store. */
+  private final StoreEventListener eventListener;
+  /** The listeners that are waiting to be notified of the current state, guarded by this. */
+  private final List<StateChangeListener<STATE>> pendingSubscribers = new ArrayList<>();
+  /** The diffs shared by the diff listeners of a same differ, guarded by this. */
+  private final Map<StateDiffer<STATE, ?>, DiffCache<STATE, ?>> diffCaches = new WeakHashMap<>();
+  /** The queue of the weakly held listeners that have been garbage collected. */
+  private final ReferenceQueue<StateChangeListener<STATE>> collectedListeners =
+      new ReferenceQueue<>();
+  /** The thread executing the actions and notifying the listeners, guarded by this. */
+  private Thread dispatchingThread;
+  /** Number of producers waiting for the action queue to have some room, guarded by this. */
+  private int blockedProducers;
 
   @SafeVarargs
   public Store(STATE initialState, Middleware<STATE>... middlewares) {
+    this(initialState, new ActionQueue<STATE>(), middlewares);
+  }
+
+  /**
+   * Creates a store that uses a given queue for the actions dispatched while it is already
+   * dispatching. Typically, a bounded queue protects the store from a producer that dispatches
+   * actions faster than they can be executed.
+   *
+   * @param initialState the initial state of the store.
+   * @param actionQueue the queue of the store. A queue can't be shared between stores.
+   * @param middlewares the middle wares of the store.
+   * @see ActionQueue
+   */
+  @SafeVarargs
+  public Store(
+      STATE initialState, ActionQueue<STATE> actionQueue, Middleware<STATE>... middlewares) {
+    this(initialState, actionQueue, NotificationStrategy.SEQUENTIAL, middlewares);
+  }
+
+  /**
+   * Creates a store that uses a given queue for the actions dispatched while it is already
+   * dispatching, and a given strategy to notify its listeners.
+   *
+   * @param initialState the initial state of the store.
+   * @param actionQueue the queue of the store. A queue can't be shared between stores.
+   * @param notificationStrategy how the listeners of the store are notified.
+   * @param middlewares the middle wares of the store.
+   * @see ActionQueue
+   * @see NotificationStrategy
+   */
+  @SafeVarargs
+  public Store(
+      STATE initialState,
+      ActionQueue<STATE> actionQueue,
+      NotificationStrategy notificationStrategy,
+      Middleware<STATE>... middlewares) {
+    this(initialState, actionQueue, notificationStrategy, StoreEventListener.NONE, middlewares);
+  }
+
+  /**
+   * Creates a store that uses a given queue for the actions dispatched while it is already
+   * dispatching, a given strategy to notify its listeners, and that reports its internal events to
+   * an event listener.
+   *
+   * @param initialState the initial state of the store.
+   * @param actionQueue the queue of the store. A queue can't be shared between stores.
+   * @param notificationStrategy how the listeners of the store are notified.
+   * @param eventListener listens to the internal events of the store.
+   * @param middlewares the middle wares of the store.
+   * @see ActionQueue
+   * @see NotificationStrategy
+   * @see StoreEventListener
+   */
+  @SafeVarargs
+  public Store(
+      STATE initialState,
+      ActionQueue<STATE> actionQueue,
+      NotificationStrategy notificationStrategy,
+      StoreEventListener eventListener,
+      Middleware<STATE>... middlewares) {
+    if (actionQueue == null) {
+      throw new IllegalArgumentException("Action queue is null");
+    }
+    if (notificationStrategy == null) {
+      throw new IllegalArgumentException("Notification strategy is null");
+    }
+    if (eventListener == null) {
+      throw new IllegalArgumentException("Event listener is null");
+    }
     this.state = initialState;
-    this.middlewares.add(new NotifySubscribersMiddleware());
+    this.actionQueue = actionQueue;
+    this.notificationStrategy = notificationStrategy;
+    this.eventListener = eventListener;
     this.middlewares.addAll(asList(middlewares));
     this.middlewares.add(new CallReducerMiddleware());
   }
@@ -63,29 +161,276 @@ public class Store<STATE> {
   /**
    * Dispatches an action in the store. The action will go through the chain of the middle wares and
    * then the action will get executed, and create a new state that will replace the current state
-   * in the store. The state change will be notified to listeners.
+   * in the store. The state change will be notified to listeners. </br> If the store is already
+   * dispatching in another thread, the action is queued and this method returns immediately. The
+   * action will be executed by the dispatching thread.
    *
    * @param action the action to be executed.
    * @see Middleware
    * @see StateChangeListener
    */
-  public synchronized void dispatch(Action<STATE> action) {
-    actionQueue.add(action);
-    //we still need an atomic boolean here, even though the method is
-    //synchronized, because we also use it to unsubscribe.
-    if (isDispatching.get()) {
-      return;
+  public void dispatch(Action<STATE> action) {
+    dispatch(action, Priority.NORMAL);
+  }
+
+  /**
+   * Dispatches an action in the store with a given priority. While the store is already
+   * dispatching, the queued actions of a higher priority are executed before the ones of a lower
+   * priority. Actions of the same priority are executed in the order they were dispatched.
+   *
+   * @param action the action to be executed.
+   * @param priority the priority of the action.
+   * @see #dispatch(Action)
+   * @see Priority
+   */
+  public void dispatch(Action<STATE> action, Priority priority) {
+    if (priority == null) {
+      throw new IllegalArgumentException("Priority is null");
+    }
+    while (true) {
+      synchronized (this) {
+        if (awaitQueueCapacity()) {
+          actionQueue.add(action, priority, eventNanos());
+          if (eventListener != StoreEventListener.NONE) {
+            // the action of an idle store doesn't wait, unless an error left actions in the queue.
+            int queueDepth = actionQueue.size();
+            if (dispatchingThread == null) {
+              queueDepth = Math.max(0, queueDepth - 1);
+            }
+            eventListener.actionQueued(
+                this, action, queueDepth, dispatchingThread == Thread.currentThread());
+          }
+          if (dispatchingThread != null) {
+            return;
+          }
+          dispatchingThread = Thread.currentThread();
+          break;
+        }
+        // the queue is full and no thread drains it, take over before queuing the action.
+        dispatchingThread = Thread.currentThread();
+      }
+      emitSequentially();
     }
     emitSequentially();
   }
 
+  /**
+   * Creates a view of a slice of the state of this store. The actions of the view are lifted into
+   * actions of this store, and its listeners are only notified when the slice changes.
+   *
+   * @param lens the lens of the slice.
+   * @param <SLICE> the class of the slice.
+   * @return the view of the slice.
+   * @see ScopedStore
+   */
+  public <SLICE> ScopedStore<STATE, SLICE> scope(Lens<STATE, SLICE> lens) {
+    if (lens == null) {
+      throw new IllegalArgumentException("Lens is null");
+    }
+    return new ScopedStore<>(this, lens);
+  }
+
+  /**
+   * Creates an index of listeners by key, for a state that holds a keyed collection. The listeners
+   * of a key are only notified when the entry of the key changes.
+   *
+   * @param keyDiffer computes the keys that changed between two states.
+   * @param <K> the class of the keys.
+   * @return the index of listeners.
+   * @see ListenerIndex
+   */
+  public <K> ListenerIndex<STATE, K> index(KeyDiffer<STATE, K> keyDiffer) {
+    if (keyDiffer == null) {
+      throw new IllegalArgumentException("Key differ is null");
+    }
+    return new ListenerIndex<>(this, keyDiffer);
+  }
+
+  /**
+   * Dispatches a sequence of actions as one unit. The listeners are notified once, of the state
+   * created by the last action. If one of the actions fails, the state of the store is left as it
+   * was before the transaction, and the listeners are not notified. </br> This is equivalent to
+   * dispatching a {@link Transaction}.
+   *
+   * @param actions the actions to be executed, in order.
+   * @see Transaction
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public final void transaction(Action<STATE>... actions) {
+    dispatch(new Transaction<>(asList(actions)));
+  }
+
+  /**
+   * Executes the queued actions and notifies the listeners, until there is nothing left to do.
+   * Must be called by the dispatching thread, and without holding the monitor of the store.
+   * </br> When an action or a listener fails, the actions queued behind it, possibly by other
+   * threads, are still executed before the first failure is rethrown. The next failures are
+   * reported to {@link StoreEventListener#failureDiscarded(Store, RuntimeException)}.
+   */
   private void emitSequentially() {
-    isDispatching.set(true);
-    while (!actionQueue.isEmpty()) {
-      Action<STATE> nextAction = actionQueue.poll();
-      new RealMiddlewareChain<>(this, nextAction, this.middlewares, 0).proceed(nextAction);
+    RuntimeException failure = null;
+    boolean idle = false;
+    try {
+      while (!idle) {
+        try {
+          idle = !emitNext();
+        } catch (RuntimeException e) {
+          if (failure == null) {
+            failure = e;
+          } else if (failure != e) {
+            eventListener.failureDiscarded(this, e);
+          }
+        }
+      }
+    } finally {
+      if (!idle) {
+        // an error was thrown, let the next dispatch, or a blocked producer, resume the work.
+        synchronized (this) {
+          dispatchingThread = null;
+          signalQueueCapacity();
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Executes the next queued action and notifies the listeners, or adds the pending subscribers
+   * and notifies them of the current state. Must be called by the dispatching thread.
+   *
+   * @return false if there was nothing left to do, in which case the dispatching thread has been
+   *     released.
+   */
+  private boolean emitNext() {
+    List<StateChangeListener<STATE>> newSubscribers = null;
+    STATE newState;
+    synchronized (this) {
+      if (!pendingSubscribers.isEmpty()) {
+        newSubscribers = new ArrayList<>(pendingSubscribers);
+        pendingSubscribers.clear();
+        stateChangeListeners.addAll(newSubscribers);
+      } else {
+        Action<STATE> nextAction = actionQueue.poll();
+        if (nextAction == null) {
+          dispatchingThread = null;
+          return false;
+        }
+        signalQueueCapacity();
+        long startNanos = eventNanos();
+        eventListener.dispatchStart(
+            this,
+            nextAction,
+            startNanos - actionQueue.getPolledEnqueueNanos(),
+            actionQueue.size());
+        try {
+          new RealMiddlewareChain<>(this, nextAction, this.middlewares, 0).proceed(nextAction);
+        } finally {
+          eventListener.dispatchEnd(this, nextAction, eventNanos() - startNanos);
+        }
+      }
+      newState = state;
+    }
+    if (newSubscribers != null) {
+      notificationStrategy.notifyListeners(newSubscribers, newState);
+    } else {
+      purgeCollectedListeners();
+      notificationStrategy.notifyListeners(stateChangeListeners, newState);
+    }
+    return true;
+  }
+
+  /** Removes, all at once, the weakly held listeners that have been garbage collected. */
+  private void purgeCollectedListeners() {
+    Reference<? extends StateChangeListener<STATE>> collectedListener = collectedListeners.poll();
+    if (collectedListener == null) {
+      return;
+    }
+    while (collectedListener != null) {
+      collectedListener = collectedListeners.poll();
+    }
+    List<StateChangeListener<STATE>> purgedListeners = new ArrayList<>();
+    synchronized (this) {
+      for (StateChangeListener<STATE> pendingSubscriber : pendingSubscribers) {
+        if (isCollected(pendingSubscriber)) {
+          purgedListeners.add(pendingSubscriber);
+        }
+      }
+      for (StateChangeListener<STATE> stateChangeListener : stateChangeListeners) {
+        if (isCollected(stateChangeListener)) {
+          purgedListeners.add(stateChangeListener);
+        }
+      }
+      pendingSubscribers.removeAll(purgedListeners);
+      stateChangeListeners.removeAll(purgedListeners);
+      reportListenersChanged();
+    }
+  }
+
+  /** @return true if {@code subscription} wraps a listener that has been garbage collected. */
+  private static boolean isCollected(Object subscription) {
+    return subscription instanceof ListenerWrapper
+        && ((ListenerWrapper) subscription).unwrap() == null;
+  }
+
+  /**
+   * Waits until the action queue has some room, if its overflow policy requires producers to wait.
+   * Must be called while holding the monitor of the store.
+   *
+   * @return true if an action can be queued, false if the queue is full and no thread is draining
+   *     it, in which case the caller must drain it.
+   */
+  private boolean awaitQueueCapacity() {
+    if (!actionQueue.mustBlock()) {
+      return true;
+    }
+    if (dispatchingThread == null) {
+      return false;
+    }
+    if (dispatchingThread == Thread.currentThread()) {
+      throw new IllegalStateException(
+          "The action queue is full, the dispatching thread can't wait for itself.");
+    }
+    if (dispatchingThread != null
+        && dispatchingThread == ParallelNotificationStrategy.getDispatchingThread()) {
+      throw new IllegalStateException(
+          "The action queue is full, a listener notified in parallel can't wait for the "
+              + "dispatching thread.");
+    }
+    final long start = System.nanoTime();
+    boolean interrupted = false;
+    blockedProducers++;
+    try {
+      while (actionQueue.mustBlock()) {
+        if (dispatchingThread == null) {
+          return false;
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      blockedProducers--;
+      actionQueue.recordBlocked(System.nanoTime() - start);
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Wakes up the producers waiting for the action queue to have some room. Must be called while
+   * holding the monitor of the store.
+   */
+  private void signalQueueCapacity() {
+    if (blockedProducers > 0) {
+      notifyAll();
     }
-    isDispatching.set(false);
   }
 
   /** @return the current state of the store. */
@@ -95,18 +440,87 @@ public class Store<STATE> {
 
   /**
    * Adds a new {@link StateChangeListener} to the list of listeners that will get notified of state
-   * changes.
+   * changes. The listener is first notified of the current state. </br> If the store is already
+   * dispatching in another thread, the listener is added, and notified of the current state, by the
+   * dispatching thread, before the next queued action is executed.
    *
    * @param listener the listener to be added.
    */
   public void subscribe(StateChangeListener<STATE> listener) {
-    this.stateChangeListeners.add(listener);
-    isDispatching.set(true);
-    listener.onStateChanged(getState());
-    isDispatching.set(false);
+    StateChangeListener<STATE> subscription =
+        eventListener == StoreEventListener.NONE
+            ? listener
+            : new InstrumentedStateChangeListener(listener);
+    synchronized (this) {
+      pendingSubscribers.add(subscription);
+      reportListenersChanged();
+      if (dispatchingThread != null) {
+        return;
+      }
+      dispatchingThread = Thread.currentThread();
+    }
     emitSequentially();
   }
 
+  /**
+   * Adds a new {@link StateChangeListener} that will be unsubscribed when {@code scope} is
+   * released.
+   *
+   * @param listener the listener to be added.
+   * @param scope the scope of the subscription.
+   * @see #subscribe(StateChangeListener)
+   * @see SubscriptionScope#release()
+   */
+  public void subscribe(StateChangeListener<STATE> listener, SubscriptionScope scope) {
+    if (scope == null) {
+      throw new IllegalArgumentException("Scope is null");
+    }
+    scope.add(this, listener);
+    subscribe(listener);
+  }
+
+  /**
+   * Adds a new {@link StateChangeListener} that the store only holds through a weak reference.
+   * Once the listener is garbage collected, it is no longer notified, and it is eventually removed
+   * from the list of listeners. </br> <em>Warning:</em> The caller must keep a strong reference to
+   * the listener for as long as it should be notified. In particular, a lambda that is only
+   * referenced by the store can be collected at any time.
+   *
+   * @param listener the listener to be added.
+   * @see #subscribe(StateChangeListener)
+   */
+  public void subscribeWeakly(StateChangeListener<STATE> listener) {
+    subscribe(new WeakStateChangeListener<>(listener, collectedListeners));
+  }
+
+  /**
+   * Adds a new {@link StateDiffListener} that will get notified of state changes, together with the
+   * diff between the previous and the new state. The listener is first notified of the current
+   * state, with a {@code null} previous state. </br> The diff of a state change is computed once
+   * for all the listeners that use the same differ.
+   *
+   * @param differ computes the diff between two states.
+   * @param listener the listener to be added.
+   * @param <DIFF> the class of the diff.
+   * @see #subscribe(StateChangeListener)
+   */
+  @SuppressWarnings("unchecked")
+  public <DIFF> void subscribe(
+      StateDiffer<STATE, DIFF> differ, StateDiffListener<STATE, DIFF> listener) {
+    if (differ == null) {
+      throw new IllegalArgumentException("Differ is null");
+    }
+    DiffCache<STATE, DIFF> diffCache;
+    synchronized (this) {
+      diffCache = (DiffCache<STATE, DIFF>) diffCaches.get(differ);
+      if (diffCache == null) {
+        diffCache = new DiffCache<>();
+        diffCaches.put(differ, diffCache);
+      }
+    }
+    subscribe(new DiffingStateChangeListener<>(listener, differ, diffCache));
+  }
+
   /**
    * Removes a previously added {@link StateChangeListener} from the list of listeners.
    *
@@ -114,7 +528,120 @@ public class Store<STATE> {
    */
   @SuppressWarnings("WeakerAccess")
   public void unsubscribe(StateChangeListener<STATE> listener) {
-    this.stateChangeListeners.remove(listener);
+    unsubscribeListener(listener);
+  }
+
+  /**
+   * Removes a previously added {@link StateDiffListener} from the list of listeners.
+   *
+   * @param listener the listener to be removed.
+   */
+  public void unsubscribeDiff(StateDiffListener<STATE, ?> listener) {
+    unsubscribeListener(listener);
+  }
+
+  private void unsubscribeListener(Object listener) {
+    Set<Object> unsubscribedListeners = Collections.singleton(listener);
+    synchronized (this) {
+      for (StateChangeListener<STATE> pendingSubscriber : pendingSubscribers) {
+        if (isSubscribed(pendingSubscriber, unsubscribedListeners)) {
+          pendingSubscribers.remove(pendingSubscriber);
+          reportListenersChanged();
+          return;
+        }
+      }
+      for (StateChangeListener<STATE> stateChangeListener : stateChangeListeners) {
+        if (isSubscribed(stateChangeListener, unsubscribedListeners)) {
+          stateChangeListeners.remove(stateChangeListener);
+          reportListenersChanged();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes previously added {@link StateChangeListener}s from the list of listeners. This is
+   * cheaper than removing them one by one.
+   *
+   * @param listeners the listeners to be removed.
+   */
+  public void unsubscribeAll(Collection<? extends StateChangeListener<STATE>> listeners) {
+    Set<Object> unsubscribedListeners = new HashSet<Object>(listeners);
+    List<StateChangeListener<STATE>> removedListeners = new ArrayList<>();
+    synchronized (this) {
+      for (StateChangeListener<STATE> pendingSubscriber : pendingSubscribers) {
+        if (isSubscribed(pendingSubscriber, unsubscribedListeners)) {
+          removedListeners.add(pendingSubscriber);
+        }
+      }
+      for (StateChangeListener<STATE> stateChangeListener : stateChangeListeners) {
+        if (isSubscribed(stateChangeListener, unsubscribedListeners)) {
+          removedListeners.add(stateChangeListener);
+        }
+      }
+      pendingSubscribers.removeAll(removedListeners);
+      this.stateChangeListeners.removeAll(removedListeners);
+      reportListenersChanged();
+    }
+  }
+
+  /**
+   * @return true if {@code subscription}, an element of the list of listeners, is one of {@code
+   *     listeners} or wraps one of them.
+   */
+  private static boolean isSubscribed(Object subscription, Set<?> listeners) {
+    if (subscription instanceof ListenerWrapper) {
+      return listeners.contains(((ListenerWrapper) subscription).unwrap());
+    }
+    return listeners.contains(subscription);
+  }
+
+  /**
+   * Reports the number of listeners to the event listener. Must be called while holding the monitor
+   * of the store.
+   */
+  private void reportListenersChanged() {
+    if (eventListener != StoreEventListener.NONE) {
+      eventListener.listenersChanged(this, stateChangeListeners.size() + pendingSubscribers.size());
+    }
+  }
+
+  /**
+   * @return the current time to measure the duration of an event, or 0 if the events are not
+   *     listened to.
+   */
+  long eventNanos() {
+    return eventListener == StoreEventListener.NONE ? 0L : System.nanoTime();
+  }
+
+  /** @return the listener of the internal events of the store. */
+  StoreEventListener getEventListener() {
+    return eventListener;
+  }
+
+  /** @return the number of listeners of the store, including the collected weak ones. */
+  int getListenerCount() {
+    synchronized (this) {
+      return stateChangeListeners.size() + pendingSubscribers.size();
+    }
+  }
+
+  /**
+   * The priority of an action in the queue of a store. Actions dispatched while the store is
+   * already dispatching wait in the queue, and the ones with a higher priority are executed first.
+   * A lane of lower priority that has been passed over too many times in a row is served anyway, so
+   * that background actions can't starve.
+   *
+   * @see #dispatch(Action, Priority)
+   */
+  public enum Priority {
+    /** For actions that must be executed as soon as possible, typically user inputs. */
+    HIGH,
+    /** The default priority of actions. */
+    NORMAL,
+    /** For actions that can wait, typically background synchronizations. */
+    BACKGROUND
   }
 
   /**
@@ -179,26 +706,153 @@ public class Store<STATE> {
     void onStateChanged(STATE newState);
   }
 
-  /** Internal middle ware that actually executes the action of a middle ware chain. */
-  private class CallReducerMiddleware implements Middleware<STATE> {
+  /**
+   * A listener that is notified of all state changes taking place in a store, together with the
+   * diff between the previous and the new state.
+   *
+   * @param <STATE> the class of the state.
+   * @param <DIFF> the class of the diff.
+   * @see #subscribe(StateDiffer, StateDiffListener)
+   * @see #unsubscribeDiff(StateDiffListener)
+   */
+  public interface StateDiffListener<STATE, DIFF> {
+    /**
+     * @param oldState the previous state, or {@code null} for the first notification of the
+     *     listener.
+     * @param newState the new state.
+     * @param diff the diff between {@code oldState} and {@code newState}.
+     */
+    void onStateChanged(STATE oldState, STATE newState, DIFF diff);
+  }
+
+  /** An internal listener that delegates to a listener passed by the user. */
+  private interface ListenerWrapper {
+    /** @return the listener passed by the user, or null if it has been garbage collected. */
+    Object unwrap();
+  }
+
+  /** Internal listener that holds a listener weakly, see {@link #subscribeWeakly}. */
+  private static final class WeakStateChangeListener<STATE>
+      extends WeakReference<StateChangeListener<STATE>>
+      implements StateChangeListener<STATE>, ListenerWrapper {
+
+    WeakStateChangeListener(
+        StateChangeListener<STATE> listener,
+        ReferenceQueue<StateChangeListener<STATE>> collectedListeners) {
+      super(listener, collectedListeners);
+    }
 
     @Override
-    public void intercept(Chain<STATE> chain) {
-      state = chain.action().newState(state);
+    public Object unwrap() {
+      return get();
+    }
+
+    @Override
+    public void onStateChanged(STATE newState) {
+      StateChangeListener<STATE> listener = get();
+      if (listener != null) {
+        listener.onStateChanged(newState);
+      }
+    }
+  }
+
+  /** Internal listener that notifies a {@link StateDiffListener}. */
+  private static final class DiffingStateChangeListener<STATE, DIFF>
+      implements StateChangeListener<STATE>, ListenerWrapper {
+    private final StateDiffListener<STATE, DIFF> listener;
+    private final StateDiffer<STATE, DIFF> differ;
+    private final DiffCache<STATE, DIFF> diffCache;
+    /** The state of the previous notification, only accessed by the dispatching thread. */
+    private STATE previousState;
+
+    DiffingStateChangeListener(
+        StateDiffListener<STATE, DIFF> listener,
+        StateDiffer<STATE, DIFF> differ,
+        DiffCache<STATE, DIFF> diffCache) {
+      this.listener = listener;
+      this.differ = differ;
+      this.diffCache = diffCache;
+    }
+
+    @Override
+    public void onStateChanged(STATE newState) {
+      STATE oldState = previousState;
+      previousState = newState;
+      listener.onStateChanged(oldState, newState, diffCache.diff(differ, oldState, newState));
+    }
+
+    @Override
+    public Object unwrap() {
+      return listener;
+    }
+  }
+
+  /** Internal listener that reports the notifications of a listener to the event listener. */
+  private final class InstrumentedStateChangeListener
+      implements StateChangeListener<STATE>, ListenerWrapper {
+    private final StateChangeListener<STATE> listener;
+
+    InstrumentedStateChangeListener(StateChangeListener<STATE> listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void onStateChanged(STATE newState) {
+      Object target = unwrap();
+      if (target == null) {
+        return;
+      }
+      long startNanos = System.nanoTime();
+      eventListener.listenerStart(Store.this, target);
+      try {
+        listener.onStateChanged(newState);
+      } finally {
+        eventListener.listenerEnd(Store.this, target, System.nanoTime() - startNanos);
+      }
+    }
+
+    @Override
+    public Object unwrap() {
+      if (listener instanceof ListenerWrapper) {
+        return ((ListenerWrapper) listener).unwrap();
+      }
+      return listener;
     }
   }
 
   /**
-   * Internal middle ware that notifies the {@link StateChangeListener} that the store's state has
-   * changed.
+   * Internal cache of the latest diff computed by a differ, shared by its listeners. It doesn't
+   * reference the differ, so that the differ can be collected with its last listener.
    */
-  private class NotifySubscribersMiddleware implements Middleware<STATE> {
+  private static final class DiffCache<STATE, DIFF> {
+    private boolean hasDiff;
+    private STATE oldState;
+    private STATE newState;
+    private DIFF diff;
+
+    synchronized DIFF diff(StateDiffer<STATE, DIFF> differ, STATE oldState, STATE newState) {
+      if (!hasDiff || oldState != this.oldState || newState != this.newState) {
+        this.diff = differ.diff(oldState, newState);
+        this.oldState = oldState;
+        this.newState = newState;
+        this.hasDiff = true;
+      }
+      return diff;
+    }
+  }
+
+  /** Internal middle ware that actually executes the action of a middle ware chain. */
+  private class CallReducerMiddleware implements Middleware<STATE> {
 
     @Override
     public void intercept(Chain<STATE> chain) {
-      chain.proceed(chain.action());
-      for (StateChangeListener<STATE> stateChangeListener : stateChangeListeners) {
-        stateChangeListener.onStateChanged(state);
+      Action<STATE> action = chain.action();
+      long startNanos = eventNanos();
+      eventListener.reducerStart(Store.this, action);
+      try {
+        state = action.newState(state);
+      } finally {
+        eventListener.reducerEnd(Store.this, action, eventNanos() - startNanos);
       }
     }
   }
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+/**
+ * Listens to the internal events of a store, typically to measure where the time goes when an
+ * action is dispatched. The events come in pairs, and the end event of a pair is always sent, even
+ * when the action or the listener failed. </br> The events are sent by the thread executing the
+ * action or notifying the listener. Note that listeners can be notified by several threads
+ * concurrently, see {@link ParallelNotificationStrategy}. </br> All the methods of this class do
+ * nothing, subclasses override the ones they are interested in. Event listeners must be fast, they
+ * are called on the hot path of the store.
+ *
+ * @see Store#Store(Object, ActionQueue, NotificationStrategy, StoreEventListener,
+ *     Store.Middleware[])
+ */
+public abstract class StoreEventListener {
+
+  /** An event listener that does nothing, the default of stores. */
+  public static final StoreEventListener NONE = new StoreEventListener() {};
+
+  /**
+   * Creates an event listener that forwards all events to several event listeners, in order.
+   *
+   * @param eventListeners the event listeners to forward the events to.
+   * @return a composite event listener.
+   */
+  public static StoreEventListener composite(StoreEventListener... eventListeners) {
+    for (StoreEventListener eventListener : eventListeners) {
+      if (eventListener == null) {
+        throw new IllegalArgumentException("Event listener is null");
+      }
+    }
+    return new CompositeStoreEventListener(eventListeners.clone());
+  }
+
+  /**
+   * Called when an action is dispatched, while holding the monitor of the store.
+   *
+   * @param store the store the action is dispatched to.
+   * @param action the dispatched action.
+   * @param queueDepth the number of actions waiting in the queue of the store, including this one
+   *     unless it was dropped or conflated, or the store was idle and executes it right away.
+   * @param reentrant true if the action is dispatched by the thread executing the actions of the
+   *     store, typically by a middle ware or a listener.
+   */
+  public void actionQueued(Store<?> store, Action<?> action, int queueDepth, boolean reentrant) {}
+
+  /**
+   * Called before an action goes through the middle wares of the store.
+   *
+   * @param store the store dispatching the action.
+   * @param action the dispatched action.
+   * @param queueWaitNanos the time the action waited in the action queue of the store.
+   * @param queueDepth the number of actions left in the queue of the store.
+   */
+  public void dispatchStart(
+      Store<?> store, Action<?> action, long queueWaitNanos, int queueDepth) {}
+
+  /**
+   * Called after an action went through the middle wares of the store, and before the listeners
+   * are notified.
+   *
+   * @param store the store dispatching the action.
+   * @param action the dispatched action.
+   * @param durationNanos the time since {@link #dispatchStart}.
+   */
+  public void dispatchEnd(Store<?> store, Action<?> action, long durationNanos) {}
+
+  /**
+   * Called before a middle ware intercepts an action. The time until {@link #middlewareEnd} includes
+   * the time spent in the next middle wares and in the reducer.
+   *
+   * @param store the store dispatching the action.
+   * @param middleware the middle ware.
+   * @param action the action intercepted by the middle ware.
+   */
+  public void middlewareStart(Store<?> store, Store.Middleware<?> middleware, Action<?> action) {}
+
+  /**
+   * Called after a middle ware intercepted an action.
+   *
+   * @param store the store dispatching the action.
+   * @param middleware the middle ware.
+   * @param action the action intercepted by the middle ware.
+   * @param durationNanos the time since {@link #middlewareStart}.
+   */
+  public void middlewareEnd(
+      Store<?> store, Store.Middleware<?> middleware, Action<?> action, long durationNanos) {}
+
+  /**
+   * Called before {@link Action#newState(Object)} is called.
+   *
+   * @param store the store dispatching the action.
+   * @param action the action being executed.
+   */
+  public void reducerStart(Store<?> store, Action<?> action) {}
+
+  /**
+   * Called after {@link Action#newState(Object)} returned.
+   *
+   * @param store the store dispatching the action.
+   * @param action the action being executed.
+   * @param durationNanos the time since {@link #reducerStart}.
+   */
+  public void reducerEnd(Store<?> store, Action<?> action, long durationNanos) {}
+
+  /**
+   * Called before a listener is notified of a state change.
+   *
+   * @param store the store notifying the listener.
+   * @param listener the listener passed to the store, typically a {@link
+   *     Store.StateChangeListener}.
+   */
+  public void listenerStart(Store<?> store, Object listener) {}
+
+  /**
+   * Called after a listener was notified of a state change.
+   *
+   * @param store the store notifying the listener.
+   * @param listener the listener passed to the store, typically a {@link
+   *     Store.StateChangeListener}.
+   * @param durationNanos the time since {@link #listenerStart}.
+   */
+  public void listenerEnd(Store<?> store, Object listener, long durationNanos) {}
+
+  /**
+   * Called when listeners are added to or removed from a store, while holding the monitor of the
+   * store.
+   *
+   * @param store the store.
+   * @param listenerCount the number of listeners of the store.
+   */
+  public void listenersChanged(Store<?> store, int listenerCount) {}
+
+  /**
+   * Called when an action or a listener failed while the dispatching thread was already going to
+   * rethrow an earlier failure, see {@link Store#dispatch(Action)}. Only the first failure is
+   * rethrown, the next ones are reported to this method and then discarded.
+   *
+   * @param store the store dispatching the action.
+   * @param failure the discarded failure.
+   */
+  public void failureDiscarded(Store<?> store, RuntimeException failure) {}
+
+  /** Internal event listener that forwards the events to several event listeners. */
+  private static final class CompositeStoreEventListener extends StoreEventListener {
+    private final StoreEventListener[] eventListeners;
+
+    CompositeStoreEventListener(StoreEventListener[] eventListeners) {
+      this.eventListeners = eventListeners;
+    }
+
+    @Override
+    public void actionQueued(Store<?> store, Action<?> action, int queueDepth, boolean reentrant) {
+      for (StoreEventListener eventListener : eventListeners) {
+        eventListener.actionQueued(store, action, queueDepth, reentrant);
+      }
+    }
+
+    @Override
+    public void dispatchStart(
+        Store<?> store, Action<?> action, long queueWaitNanos, int queueDepth) {
+      for (StoreEventListener eventListener : eventListeners) {
+        eventListener.dispatchStart(store, action, queueWaitNanos, queueDepth);
+      }
+    }
+
+    @Override
+    public void dispatchEnd(Store<?> store, Action<?> action, long durationNanos) {
+      for (int i = eventListeners.length - 1; i >= 0; i--) {
+        eventListeners[i].dispatchEnd(store, action, durationNanos);
+      }
+    }
+
+    @Override
+    public void middlewareStart(Store<?> store, Store.Middleware<?> middleware, Action<?> action) {
+      for (StoreEventListener eventListener : eventListeners) {
+        eventListener.middlewareStart(store, middleware, action);
+      }
+    }
+
+    @Override
+    public void middlewareEnd(
+        Store<?> store, Store.Middleware<?> middleware, Action<?> action, long durationNanos) {
+      for (int i = eventListeners.length - 1; i >= 0; i--) {
+        eventListeners[i].middlewareEnd(store, middleware, action, durationNanos);
+      }
+    }
+
+    @Override
+    public void reducerStart(Store<?> store, Action<?> action) {
+      for (StoreEventListener eventListener : eventListeners) {
+        eventListener.reducerStart(store, action);
+      }
+    }
+
+    @Override
+    public void reducerEnd(Store<?> store, Action<?> action, long durationNanos) {
+      for (int i = eventListeners.length - 1; i >= 0; i--) {
+        eventListeners[i].reducerEnd(store, action, durationNanos);
+      }
+    }
+
+    @Override
+    public void listenerStart(Store<?> store, Object listener) {
+      for (StoreEventListener eventListener : eventListeners) {
+        eventListener.listenerStart(store, listener);
+      }
+    }
+
+    @Override
+    public void listenerEnd(Store<?> store, Object listener, long durationNanos) {
+      for (int i = eventListeners.length - 1; i >= 0; i--) {
+        eventListeners[i].listenerEnd(store, listener, durationNanos);
+      }
+    }
+
+    @Override
+    public void listenersChanged(Store<?> store, int listenerCount) {
+      for (StoreEventListener eventListener : eventListeners) {
+        eventListener.listenersChanged(store, listenerCount);
+      }
+    }
+
+    @Override
+    public void failureDiscarded(Store<?> store, RuntimeException failure) {
+      for (StoreEventListener eventListener : eventListeners) {
+        eventListener.failureDiscarded(store, failure);
+      }
+    }
+  }
+}
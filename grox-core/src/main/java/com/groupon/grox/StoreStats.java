@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a store, to see a store saturate before it becomes a problem. The statistics are
+ * collected as the events of the store, so a store must be created with its statistics:
+ *
+ * <pre>{@code
+ * StoreStats stats = new StoreStats();
+ * Store<State> store = new Store<>(initialState, new ActionQueue<>(),
+ *     NotificationStrategy.SEQUENTIAL, stats, middlewares);
+ * }</pre>
+ *
+ * Statistics can be combined with other event listeners, see {@link
+ * StoreEventListener#composite(StoreEventListener...)}. An instance of statistics must only be used
+ * by a single store. </br> All the getters are thread safe.
+ */
+public final class StoreStats extends StoreEventListener {
+
+  /** The interval of the updates of the dispatch rate. */
+  private static final long TICK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+  /** The weight of a new interval in the one minute moving average of the dispatch rate. */
+  private static final double RATE_ALPHA = 1 - Math.exp(-5 / 60.0);
+
+  private final AtomicLong dispatchCount = new AtomicLong();
+  private final AtomicLong reentrantDispatchCount = new AtomicLong();
+  private final AtomicLong notificationCount = new AtomicLong();
+  private final AtomicLong reducerTimeNanos = new AtomicLong();
+  private final AtomicLong listenerTimeNanos = new AtomicLong();
+  private final AtomicInteger peakQueueDepth = new AtomicInteger();
+  private volatile int queueDepth;
+  private volatile int listenerCount;
+
+  /** The dispatches that are not yet part of the dispatch rate. */
+  private final AtomicLong uncountedDispatches = new AtomicLong();
+  /** The time of the latest update of the dispatch rate. */
+  private final AtomicLong lastTickNanos = new AtomicLong(System.nanoTime());
+  /** The dispatch rate, in dispatches per nanosecond. Only written by the thread that ticks. */
+  private volatile double dispatchRate;
+
+  private volatile boolean rateInitialized;
+
+  @Override
+  public void actionQueued(Store<?> store, Action<?> action, int queueDepth, boolean reentrant) {
+    dispatchCount.incrementAndGet();
+    uncountedDispatches.incrementAndGet();
+    if (reentrant) {
+      reentrantDispatchCount.incrementAndGet();
+    }
+    updateQueueDepth(queueDepth);
+    tickIfNecessary();
+  }
+
+  @Override
+  public void dispatchStart(
+      Store<?> store, Action<?> action, long queueWaitNanos, int queueDepth) {
+    updateQueueDepth(queueDepth);
+  }
+
+  @Override
+  public void reducerEnd(Store<?> store, Action<?> action, long durationNanos) {
+    reducerTimeNanos.addAndGet(durationNanos);
+  }
+
+  @Override
+  public void listenerEnd(Store<?> store, Object listener, long durationNanos) {
+    notificationCount.incrementAndGet();
+    listenerTimeNanos.addAndGet(durationNanos);
+  }
+
+  @Override
+  public void listenersChanged(Store<?> store, int listenerCount) {
+    this.listenerCount = listenerCount;
+  }
+
+  /** @return the number of actions dispatched to the store, including the dropped ones. */
+  public long getDispatchCount() {
+    return dispatchCount.get();
+  }
+
+  /**
+   * @return the number of actions dispatched per second, as an exponentially weighted moving
+   *     average over one minute, updated every 5 seconds.
+   */
+  public double getDispatchRate() {
+    tickIfNecessary();
+    return dispatchRate * TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /**
+   * @return the number of actions dispatched by the thread executing the actions of the store,
+   *     typically by a middle ware or a listener.
+   */
+  public long getReentrantDispatchCount() {
+    return reentrantDispatchCount.get();
+  }
+
+  /** @return the number of actions waiting in the queue of the store. */
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  /** @return the highest number of actions that waited in the queue of the store. */
+  public int getPeakQueueDepth() {
+    return peakQueueDepth.get();
+  }
+
+  /** @return the number of listeners of the store. */
+  public int getListenerCount() {
+    return listenerCount;
+  }
+
+  /** @return the number of times a listener was notified. */
+  public long getNotificationCount() {
+    return notificationCount.get();
+  }
+
+  /** @return the cumulated time spent computing new states. */
+  public long getReducerTimeNanos() {
+    return reducerTimeNanos.get();
+  }
+
+  /** @return the cumulated time spent notifying listeners. */
+  public long getListenerTimeNanos() {
+    return listenerTimeNanos.get();
+  }
+
+  /** Called while holding the monitor of the store. */
+  private void updateQueueDepth(int queueDepth) {
+    this.queueDepth = queueDepth;
+    int peak = peakQueueDepth.get();
+    while (queueDepth > peak && !peakQueueDepth.compareAndSet(peak, queueDepth)) {
+      peak = peakQueueDepth.get();
+    }
+  }
+
+  /** Updates the dispatch rate for each interval that elapsed since its latest update. */
+  private void tickIfNecessary() {
+    long lastTick = lastTickNanos.get();
+    long now = System.nanoTime();
+    long age = now - lastTick;
+    if (age < TICK_INTERVAL_NANOS) {
+      return;
+    }
+    if (!lastTickNanos.compareAndSet(lastTick, now - age % TICK_INTERVAL_NANOS)) {
+      return;
+    }
+    long ticks = age / TICK_INTERVAL_NANOS;
+    double instantRate = (double) uncountedDispatches.getAndSet(0) / TICK_INTERVAL_NANOS;
+    double rate = dispatchRate;
+    for (long i = 0; i < ticks; i++) {
+      if (rateInitialized) {
+        rate += RATE_ALPHA * (instantRate - rate);
+      } else {
+        rate = instantRate;
+        rateInitialized = true;
+      }
+      // the dispatches were all counted in the first interval.
+      instantRate = 0;
+    }
+    dispatchRate = rate;
+  }
+}
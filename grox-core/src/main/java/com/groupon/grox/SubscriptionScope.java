@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A group of subscriptions, possibly to different stores, that are released together. Typically, a
+ * scope is bound to the lifecycle of a UI element, like an activity, and released when the UI
+ * element is destroyed. </br> A scope can be reused after being released.
+ *
+ * @see Store#subscribe(StateChangeListener, SubscriptionScope)
+ */
+public final class SubscriptionScope {
+
+  /** The listeners of this scope, for each store. Guarded by this. */
+  private Map<Store<?>, List<StateChangeListener<?>>> subscriptions = new IdentityHashMap<>();
+
+  synchronized <STATE> void add(Store<STATE> store, StateChangeListener<STATE> listener) {
+    List<StateChangeListener<?>> listeners = subscriptions.get(store);
+    if (listeners == null) {
+      listeners = new ArrayList<>();
+      subscriptions.put(store, listeners);
+    }
+    listeners.add(listener);
+  }
+
+  /**
+   * Unsubscribes all the listeners of this scope from their store. The listeners of a same store
+   * are removed all at once.
+   */
+  @SuppressWarnings("unchecked")
+  public void release() {
+    Map<Store<?>, List<StateChangeListener<?>>> releasedSubscriptions;
+    synchronized (this) {
+      releasedSubscriptions = subscriptions;
+      subscriptions = new IdentityHashMap<>();
+    }
+    for (Map.Entry<Store<?>, List<StateChangeListener<?>>> entry :
+        releasedSubscriptions.entrySet()) {
+      Store<Object> store = (Store<Object>) entry.getKey();
+      List<StateChangeListener<Object>> listeners = (List) entry.getValue();
+      store.unsubscribeAll(listeners);
+    }
+  }
+
+  /** @return the number of subscriptions in this scope. */
+  public synchronized int size() {
+    int size = 0;
+    for (List<StateChangeListener<?>> listeners : subscriptions.values()) {
+      size += listeners.size();
+    }
+    return size;
+  }
+}
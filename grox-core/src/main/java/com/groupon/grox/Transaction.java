@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An action that applies a sequence of actions as one unit. The actions are applied in order, each
+ * one to the state created by the previous one, and the store only sees the final state: its
+ * listeners are notified once. </br> If one of the actions fails, the transaction fails and the
+ * state of the store is left untouched, the listeners are not notified. </br> Middle wares see the
+ * transaction as a single action, and can inspect the batch via {@link #getActions()}.
+ *
+ * @param <STATE> the class of the state.
+ * @see Store#transaction(Action[])
+ */
+public final class Transaction<STATE> implements Action<STATE> {
+
+  private final List<Action<STATE>> actions;
+
+  /**
+   * Creates a transaction.
+   *
+   * @param actions the actions of the transaction, in the order they will be applied.
+   */
+  public Transaction(List<? extends Action<STATE>> actions) {
+    if (actions == null) {
+      throw new IllegalArgumentException("Actions are null");
+    }
+    List<Action<STATE>> copy = new ArrayList<Action<STATE>>(actions);
+    for (Action<STATE> action : copy) {
+      if (action == null) {
+        throw new IllegalArgumentException("Action is null");
+      }
+    }
+    this.actions = Collections.unmodifiableList(copy);
+  }
+
+  /** @return the actions of the transaction, in the order they will be applied. */
+  public List<Action<STATE>> getActions() {
+    return actions;
+  }
+
+  @Override
+  public STATE newState(STATE oldState) {
+    STATE newState = oldState;
+    for (Action<STATE> action : actions) {
+      newState = action.newState(newState);
+    }
+    return newState;
+  }
+}
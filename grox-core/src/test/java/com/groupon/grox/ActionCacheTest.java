@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ActionCacheTest {
+
+  @Test
+  public void testGet_withSameParam_shouldReturnSameAction() {
+    //GIVEN
+    ActionCache<Integer, Integer> cache = new ActionCache<>(4, value -> integer -> value);
+
+    //WHEN
+    Action<Integer> first = cache.get(1);
+    Action<Integer> second = cache.get(1);
+
+    //THEN
+    assertThat(second, sameInstance(first));
+    assertThat(first.newState(0), is(1));
+    assertThat(cache.getHitCount(), is(1L));
+    assertThat(cache.getMissCount(), is(1L));
+  }
+
+  @Test
+  public void testGet_whenFull_shouldEvictLeastRecentlyUsedAction() {
+    //GIVEN
+    ActionCache<Integer, Integer> cache = new ActionCache<>(2, value -> integer -> value);
+    Action<Integer> action1 = cache.get(1);
+    Action<Integer> action2 = cache.get(2);
+    cache.get(1);
+
+    //WHEN
+    cache.get(3);
+
+    //THEN
+    assertThat(cache.size(), is(2));
+    assertThat(cache.get(1), sameInstance(action1));
+    assertThat(cache.get(2), not(sameInstance(action2)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_withInvalidMaxSize_shouldFail() {
+    //GIVEN
+
+    //WHEN
+    new ActionCache<Integer, Integer>(0, value -> integer -> value);
+
+    //THEN
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.ActionQueue.OverflowPolicy;
+import com.groupon.grox.Store.Priority;
+import org.junit.Test;
+
+public class ActionQueueTest {
+
+  @Test
+  public void testPoll_whenEmpty_shouldReturnNull() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>();
+
+    //WHEN
+    Action<Integer> action = queue.poll();
+
+    //THEN
+    assertThat(action, nullValue());
+    assertThat(queue.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testPoll_withSamePriority_shouldBeFifo() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>();
+    Action<Integer> action0 = integer -> 0;
+    Action<Integer> action1 = integer -> 1;
+    queue.add(action0, Priority.NORMAL);
+    queue.add(action1, Priority.NORMAL);
+
+    //WHEN
+    Action<Integer> first = queue.poll();
+    Action<Integer> second = queue.poll();
+
+    //THEN
+    assertThat(first, sameInstance(action0));
+    assertThat(second, sameInstance(action1));
+    assertThat(queue.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testPoll_withDifferentPriorities_shouldServeHigherPriorityFirst() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>();
+    Action<Integer> background = integer -> 0;
+    Action<Integer> normal = integer -> 1;
+    Action<Integer> high = integer -> 2;
+    queue.add(background, Priority.BACKGROUND);
+    queue.add(normal, Priority.NORMAL);
+    queue.add(high, Priority.HIGH);
+
+    //WHEN
+    Action<Integer> first = queue.poll();
+    Action<Integer> second = queue.poll();
+    Action<Integer> third = queue.poll();
+
+    //THEN
+    assertThat(first, sameInstance(high));
+    assertThat(second, sameInstance(normal));
+    assertThat(third, sameInstance(background));
+  }
+
+  @Test
+  public void testPoll_whenLaneIsStarving_shouldServeIt() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>(ActionQueue.UNBOUNDED, OverflowPolicy.BLOCK, 2);
+    Action<Integer> background = integer -> 0;
+    Action<Integer> high = integer -> 1;
+    queue.add(background, Priority.BACKGROUND);
+    for (int i = 0; i < 3; i++) {
+      queue.add(high, Priority.HIGH);
+    }
+
+    //WHEN
+    Action<Integer> first = queue.poll();
+    Action<Integer> second = queue.poll();
+    Action<Integer> third = queue.poll();
+
+    //THEN
+    assertThat(first, sameInstance(high));
+    assertThat(second, sameInstance(high));
+    assertThat(third, sameInstance(background));
+    assertThat(queue.size(), is(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_withInvalidStarvationLimit_shouldFail() {
+    //GIVEN
+
+    //WHEN
+    new ActionQueue<Integer>(ActionQueue.UNBOUNDED, OverflowPolicy.BLOCK, 0);
+
+    //THEN
+  }
+
+  @Test
+  public void testAdd_whenFullAndDropNewest_shouldDropAddedAction() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>(1, OverflowPolicy.DROP_NEWEST);
+    Action<Integer> action0 = integer -> 0;
+    Action<Integer> action1 = integer -> 1;
+    queue.add(action0, Priority.NORMAL);
+
+    //WHEN
+    queue.add(action1, Priority.HIGH);
+
+    //THEN
+    assertThat(queue.getDroppedCount(), is(1L));
+    assertThat(queue.poll(), sameInstance(action0));
+    assertThat(queue.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testAdd_whenFullAndDropOldest_shouldDropOldestActionOfLowestPriority() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>(2, OverflowPolicy.DROP_OLDEST);
+    Action<Integer> background = integer -> 0;
+    Action<Integer> high = integer -> 1;
+    Action<Integer> normal = integer -> 2;
+    queue.add(high, Priority.HIGH);
+    queue.add(background, Priority.BACKGROUND);
+
+    //WHEN
+    queue.add(normal, Priority.NORMAL);
+
+    //THEN
+    assertThat(queue.getDroppedCount(), is(1L));
+    assertThat(queue.poll(), sameInstance(high));
+    assertThat(queue.poll(), sameInstance(normal));
+    assertThat(queue.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testAdd_whenConflate_shouldKeepLatestActionOfKeyAtItsPlace() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>(2, OverflowPolicy.CONFLATE);
+    Action<Integer> keyA0 = new TestConflatableAction("a");
+    Action<Integer> keyB = new TestConflatableAction("b");
+    Action<Integer> keyA1 = new TestConflatableAction("a");
+    queue.add(keyA0, Priority.NORMAL);
+    queue.add(keyB, Priority.NORMAL);
+
+    //WHEN
+    queue.add(keyA1, Priority.NORMAL);
+
+    //THEN
+    assertThat(queue.getConflatedCount(), is(1L));
+    assertThat(queue.getDroppedCount(), is(0L));
+    assertThat(queue.poll(), sameInstance(keyA1));
+    assertThat(queue.poll(), sameInstance(keyB));
+    assertThat(queue.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testAdd_whenFullAndConflate_shouldDropActionsThatCanNotBeConflated() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>(1, OverflowPolicy.CONFLATE);
+    Action<Integer> keyA = new TestConflatableAction("a");
+    queue.add(keyA, Priority.NORMAL);
+
+    //WHEN
+    queue.add(new TestConflatableAction("b"), Priority.NORMAL);
+    queue.add(integer -> 1, Priority.NORMAL);
+
+    //THEN
+    assertThat(queue.getDroppedCount(), is(2L));
+    assertThat(queue.poll(), sameInstance(keyA));
+    assertThat(queue.poll(), nullValue());
+  }
+
+  @Test
+  public void testMustBlock_whenFullAndBlock_shouldReturnTrue() {
+    //GIVEN
+    ActionQueue<Integer> queue = new ActionQueue<>(1, OverflowPolicy.BLOCK);
+
+    //WHEN
+    queue.add(integer -> 0, Priority.NORMAL);
+
+    //THEN
+    assertThat(queue.mustBlock(), is(true));
+    queue.poll();
+    assertThat(queue.mustBlock(), is(false));
+  }
+
+  private static class TestConflatableAction implements ConflatableAction<Integer> {
+    private final String key;
+
+    TestConflatableAction(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object conflationKey() {
+      return key;
+    }
+
+    @Override
+    public Integer newState(Integer oldState) {
+      return oldState;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class DoubleStoreTest {
+
+  private static final DoubleAction INCREMENT = oldState -> oldState + 1;
+
+  @Test
+  public void testDispatch_shouldChangeState() {
+    //GIVEN
+    DoubleStore store = new DoubleStore(0.0);
+
+    //WHEN
+    store.dispatch(INCREMENT);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(store.getState(), is(2.0));
+  }
+
+  @Test
+  public void testSubscribe_shouldNotifyCurrentAndNewStates() {
+    //GIVEN
+    DoubleStore store = new DoubleStore(1.0);
+    List<Double> states = new ArrayList<>();
+
+    //WHEN
+    store.subscribe(states::add);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(2));
+    assertThat(states.get(0), is(1.0));
+    assertThat(states.get(1), is(2.0));
+  }
+
+  @Test
+  public void testUnsubscribe_shouldStopNotifications() {
+    //GIVEN
+    DoubleStore store = new DoubleStore(0.0);
+    List<Double> states = new ArrayList<>();
+    DoubleStore.DoubleStateChangeListener listener = states::add;
+    store.subscribe(listener);
+
+    //WHEN
+    store.unsubscribe(listener);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(1));
+  }
+
+  @Test
+  public void testDispatch_withMiddlewares_shouldCallThemInOrderAroundTheAction() {
+    //GIVEN
+    List<String> calls = new ArrayList<>();
+    DoubleStore.DoubleMiddleware first =
+        chain -> {
+          calls.add("first:" + chain.state());
+          chain.proceed(chain.action());
+          calls.add("first:" + chain.state());
+        };
+    DoubleStore.DoubleMiddleware second =
+        chain -> {
+          calls.add("second");
+          chain.proceed(chain.action());
+        };
+    DoubleStore store = new DoubleStore(0.0, first, second);
+
+    //WHEN
+    store.dispatch(INCREMENT);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(calls.size(), is(6));
+    assertThat(calls.get(0), is("first:0.0"));
+    assertThat(calls.get(1), is("second"));
+    assertThat(calls.get(2), is("first:1.0"));
+    assertThat(calls.get(3), is("first:1.0"));
+    assertThat(store.getState(), is(2.0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testDispatch_whenMiddlewareDoesNotProceed_shouldFail() {
+    //GIVEN
+    DoubleStore store = new DoubleStore(0.0, chain -> {});
+
+    //WHEN
+    store.dispatch(INCREMENT);
+
+    //THEN
+  }
+
+  @Test
+  public void testDispatch_whenCalledByListener_shouldQueueAction() {
+    //GIVEN
+    DoubleStore store = new DoubleStore(0.0);
+    List<Double> states = new ArrayList<>();
+    store.subscribe(
+        newState -> {
+          states.add(newState);
+          if (newState == 1.0) {
+            store.dispatch(INCREMENT);
+          }
+        });
+
+    //WHEN
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(3));
+    assertThat(store.getState(), is(2.0));
+  }
+
+  @Test
+  public void testDispatch_shouldChangeStateAndNotifyListeners() {
+    //GIVEN
+    List<Double> states = new ArrayList<>();
+    DoubleStore store = new DoubleStore(1d, chain -> chain.proceed(chain.action()));
+    store.subscribe(states::add);
+
+    //WHEN
+    store.dispatch(oldState -> oldState * 2);
+
+    //THEN
+    assertThat(store.getState(), is(2d));
+    assertThat(states.size(), is(2));
+    assertThat(states.get(1), is(2d));
+  }
+
+  @Test
+  public void testSubscribe_withFractionalState_shouldNotifyExactState() {
+    //GIVEN
+    DoubleStore store = new DoubleStore(-0.1);
+    List<Double> states = new ArrayList<>();
+
+    //WHEN
+    store.subscribe(states::add);
+    store.dispatch(oldState -> oldState / 3);
+
+    //THEN
+    assertThat(states.get(0), is(-0.1));
+    assertThat(states.get(1), is(-0.1 / 3));
+  }
+}
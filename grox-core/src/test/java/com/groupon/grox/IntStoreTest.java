@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class IntStoreTest {
+
+  private static final IntAction INCREMENT = oldState -> oldState + 1;
+
+  @Test
+  public void testDispatch_shouldChangeState() {
+    //GIVEN
+    IntStore store = new IntStore(0);
+
+    //WHEN
+    store.dispatch(INCREMENT);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(store.getState(), is(2));
+  }
+
+  @Test
+  public void testSubscribe_shouldNotifyCurrentAndNewStates() {
+    //GIVEN
+    IntStore store = new IntStore(1);
+    List<Integer> states = new ArrayList<>();
+
+    //WHEN
+    store.subscribe(states::add);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(2));
+    assertThat(states.get(0), is(1));
+    assertThat(states.get(1), is(2));
+  }
+
+  @Test
+  public void testUnsubscribe_shouldStopNotifications() {
+    //GIVEN
+    IntStore store = new IntStore(0);
+    List<Integer> states = new ArrayList<>();
+    IntStore.IntStateChangeListener listener = states::add;
+    store.subscribe(listener);
+
+    //WHEN
+    store.unsubscribe(listener);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(1));
+  }
+
+  @Test
+  public void testDispatch_withMiddlewares_shouldCallThemInOrderAroundTheAction() {
+    //GIVEN
+    List<String> calls = new ArrayList<>();
+    IntStore.IntMiddleware first =
+        chain -> {
+          calls.add("first:" + chain.state());
+          chain.proceed(chain.action());
+          calls.add("first:" + chain.state());
+        };
+    IntStore.IntMiddleware second =
+        chain -> {
+          calls.add("second");
+          chain.proceed(chain.action());
+        };
+    IntStore store = new IntStore(0, first, second);
+
+    //WHEN
+    store.dispatch(INCREMENT);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(calls.size(), is(6));
+    assertThat(calls.get(0), is("first:0"));
+    assertThat(calls.get(1), is("second"));
+    assertThat(calls.get(2), is("first:1"));
+    assertThat(calls.get(3), is("first:1"));
+    assertThat(store.getState(), is(2));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testDispatch_whenMiddlewareDoesNotProceed_shouldFail() {
+    //GIVEN
+    IntStore store = new IntStore(0, chain -> {});
+
+    //WHEN
+    store.dispatch(INCREMENT);
+
+    //THEN
+  }
+
+  @Test
+  public void testDispatch_whenCalledByListener_shouldQueueAction() {
+    //GIVEN
+    IntStore store = new IntStore(0);
+    List<Integer> states = new ArrayList<>();
+    store.subscribe(
+        newState -> {
+          states.add(newState);
+          if (newState == 1) {
+            store.dispatch(INCREMENT);
+          }
+        });
+
+    //WHEN
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(3));
+    assertThat(store.getState(), is(2));
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ListenerIndexTest {
+
+  @Test
+  public void testSubscribe_shouldNotifyCurrentState() {
+    //GIVEN
+    Map<String, Integer> initialState = mapOf("a", 0);
+    Store<Map<String, Integer>> store = new Store<>(initialState);
+    ListenerIndex<Map<String, Integer>, String> index = store.index(new MapKeyDiffer<>());
+    List<Map<String, Integer>> states = new ArrayList<>();
+
+    //WHEN
+    index.subscribe("a", states::add);
+
+    //THEN
+    assertThat(states.size(), is(1));
+    assertThat(states.get(0), is(initialState));
+  }
+
+  @Test
+  public void testDispatch_whenKeyedAction_shouldNotifyListenersOfItsKeysWithoutDiffing() {
+    //GIVEN
+    Store<Map<String, Integer>> store = new Store<>(mapOf("a", 0));
+    CountingKeyDiffer keyDiffer = new CountingKeyDiffer();
+    ListenerIndex<Map<String, Integer>, String> index = store.index(keyDiffer);
+    List<Map<String, Integer>> statesOfA = new ArrayList<>();
+    List<Map<String, Integer>> statesOfB = new ArrayList<>();
+    index.subscribe("a", statesOfA::add);
+    index.subscribe("b", statesOfB::add);
+
+    //WHEN
+    index.dispatch(new Put("b", 1));
+
+    //THEN
+    assertThat(keyDiffer.calls.get(), is(0));
+    assertThat(statesOfA.size(), is(1));
+    assertThat(statesOfB.size(), is(2));
+    assertThat(statesOfB.get(1).get("b"), is(1));
+  }
+
+  @Test
+  public void testDispatch_whenOtherAction_shouldNotifyListenersOfChangedKeys() {
+    //GIVEN
+    Store<Map<String, Integer>> store = new Store<>(mapOf("a", 0));
+    ListenerIndex<Map<String, Integer>, String> index = store.index(new MapKeyDiffer<>());
+    List<Map<String, Integer>> statesOfA = new ArrayList<>();
+    List<Map<String, Integer>> statesOfB = new ArrayList<>();
+    List<Map<String, Integer>> statesOfC = new ArrayList<>();
+    index.subscribe("a", statesOfA::add);
+    index.subscribe("b", statesOfB::add);
+    index.subscribe("c", statesOfC::add);
+
+    //WHEN
+    store.dispatch(state -> mapOf("b", 1, "c", 2));
+
+    //THEN
+    assertThat(statesOfA.size(), is(2));
+    assertThat(statesOfB.size(), is(2));
+    assertThat(statesOfC.size(), is(2));
+    store.dispatch(state -> mapOf("b", 1, "c", 3));
+    assertThat(statesOfA.size(), is(2));
+    assertThat(statesOfB.size(), is(2));
+    assertThat(statesOfC.size(), is(3));
+  }
+
+  @Test
+  public void testSubscribe_withManyListeners_shouldShareOneStoreListener() {
+    //GIVEN
+    Store<Map<String, Integer>> store = new Store<>(mapOf("a", 0));
+    ListenerIndex<Map<String, Integer>, String> index = store.index(new MapKeyDiffer<>());
+
+    //WHEN
+    for (int i = 0; i < 3; i++) {
+      index.subscribe("k" + i, state -> {});
+    }
+
+    //THEN
+    assertThat(store.getListenerCount(), is(1));
+  }
+
+  @Test
+  public void testUnsubscribe_shouldStopNotificationsAndReleaseStoreListener() {
+    //GIVEN
+    Store<Map<String, Integer>> store = new Store<>(mapOf("a", 0));
+    ListenerIndex<Map<String, Integer>, String> index = store.index(new MapKeyDiffer<>());
+    List<Map<String, Integer>> states = new ArrayList<>();
+    StateChangeListener<Map<String, Integer>> listener = states::add;
+    index.subscribe("a", listener);
+
+    //WHEN
+    index.unsubscribe("a", listener);
+    index.dispatch(new Put("a", 1));
+
+    //THEN
+    assertThat(states.size(), is(1));
+    assertThat(store.getListenerCount(), is(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSubscribe_withNullKey_shouldFail() {
+    //GIVEN
+    Store<Map<String, Integer>> store = new Store<>(mapOf("a", 0));
+    ListenerIndex<Map<String, Integer>, String> index = store.index(new MapKeyDiffer<>());
+
+    //WHEN
+    index.subscribe(null, state -> {});
+
+    //THEN
+  }
+
+  private static Map<String, Integer> mapOf(Object... keysAndValues) {
+    Map<String, Integer> map = new HashMap<>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      map.put((String) keysAndValues[i], (Integer) keysAndValues[i + 1]);
+    }
+    return map;
+  }
+
+  private static class Put implements KeyedAction<Map<String, Integer>, String> {
+    private final String key;
+    private final int value;
+
+    Put(String key, int value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public Collection<String> changedKeys() {
+      return singletonList(key);
+    }
+
+    @Override
+    public Map<String, Integer> newState(Map<String, Integer> oldState) {
+      Map<String, Integer> newState = new HashMap<>(oldState);
+      newState.put(key, value);
+      return newState;
+    }
+  }
+
+  private static class CountingKeyDiffer implements KeyDiffer<Map<String, Integer>, String> {
+    final AtomicInteger calls = new AtomicInteger();
+    private final MapKeyDiffer<String, Integer> mapKeyDiffer = new MapKeyDiffer<>();
+
+    @Override
+    public Collection<String> changedKeys(
+        Map<String, Integer> oldState, Map<String, Integer> newState) {
+      calls.incrementAndGet();
+      return mapKeyDiffer.changedKeys(oldState, newState);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LongStoreTest {
+
+  private static final LongAction INCREMENT = oldState -> oldState + 1;
+
+  @Test
+  public void testDispatch_shouldChangeState() {
+    //GIVEN
+    LongStore store = new LongStore(0L);
+
+    //WHEN
+    store.dispatch(INCREMENT);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(store.getState(), is(2L));
+  }
+
+  @Test
+  public void testSubscribe_shouldNotifyCurrentAndNewStates() {
+    //GIVEN
+    LongStore store = new LongStore(1L);
+    List<Long> states = new ArrayList<>();
+
+    //WHEN
+    store.subscribe(states::add);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(2));
+    assertThat(states.get(0), is(1L));
+    assertThat(states.get(1), is(2L));
+  }
+
+  @Test
+  public void testUnsubscribe_shouldStopNotifications() {
+    //GIVEN
+    LongStore store = new LongStore(0L);
+    List<Long> states = new ArrayList<>();
+    LongStore.LongStateChangeListener listener = states::add;
+    store.subscribe(listener);
+
+    //WHEN
+    store.unsubscribe(listener);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(1));
+  }
+
+  @Test
+  public void testDispatch_withMiddlewares_shouldCallThemInOrderAroundTheAction() {
+    //GIVEN
+    List<String> calls = new ArrayList<>();
+    LongStore.LongMiddleware first =
+        chain -> {
+          calls.add("first:" + chain.state());
+          chain.proceed(chain.action());
+          calls.add("first:" + chain.state());
+        };
+    LongStore.LongMiddleware second =
+        chain -> {
+          calls.add("second");
+          chain.proceed(chain.action());
+        };
+    LongStore store = new LongStore(0L, first, second);
+
+    //WHEN
+    store.dispatch(INCREMENT);
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(calls.size(), is(6));
+    assertThat(calls.get(0), is("first:0"));
+    assertThat(calls.get(1), is("second"));
+    assertThat(calls.get(2), is("first:1"));
+    assertThat(calls.get(3), is("first:1"));
+    assertThat(store.getState(), is(2L));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testDispatch_whenMiddlewareDoesNotProceed_shouldFail() {
+    //GIVEN
+    LongStore store = new LongStore(0L, chain -> {});
+
+    //WHEN
+    store.dispatch(INCREMENT);
+
+    //THEN
+  }
+
+  @Test
+  public void testDispatch_whenCalledByListener_shouldQueueAction() {
+    //GIVEN
+    LongStore store = new LongStore(0L);
+    List<Long> states = new ArrayList<>();
+    store.subscribe(
+        newState -> {
+          states.add(newState);
+          if (newState == 1) {
+            store.dispatch(INCREMENT);
+          }
+        });
+
+    //WHEN
+    store.dispatch(INCREMENT);
+
+    //THEN
+    assertThat(states.size(), is(3));
+    assertThat(store.getState(), is(2L));
+  }
+
+  @Test
+  public void testDispatch_shouldChangeStateAndNotifyListeners() {
+    //GIVEN
+    List<Long> states = new ArrayList<>();
+    LongStore store = new LongStore(1L, chain -> chain.proceed(chain.action()));
+    store.subscribe(states::add);
+
+    //WHEN
+    store.dispatch(oldState -> oldState * 2);
+
+    //THEN
+    assertThat(store.getState(), is(2L));
+    assertThat(states.size(), is(2));
+    assertThat(states.get(1), is(2L));
+  }
+}
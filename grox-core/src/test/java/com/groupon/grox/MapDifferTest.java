@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static java.util.Collections.singleton;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class MapDifferTest {
+
+  @Test
+  public void testDiff_whenSameMap_shouldReturnEmptyDiff() {
+    //GIVEN
+    Map<String, String> map = new HashMap<>();
+    map.put("a", "1");
+
+    //WHEN
+    MapDiff<String> diff = new MapDiffer<String, String>().diff(map, map);
+
+    //THEN
+    assertThat(diff, sameInstance(MapDiff.<String>empty()));
+    assertThat(diff.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testDiff_whenMapsDiffer_shouldReturnAddedRemovedAndChangedKeys() {
+    //GIVEN
+    Map<String, String> oldMap = new HashMap<>();
+    oldMap.put("kept", "1");
+    oldMap.put("changed", "2");
+    oldMap.put("removed", "3");
+    Map<String, String> newMap = new HashMap<>();
+    newMap.put("kept", new String("1"));
+    newMap.put("changed", "4");
+    newMap.put("added", "5");
+
+    //WHEN
+    MapDiff<String> diff = new MapDiffer<String, String>().diff(oldMap, newMap);
+
+    //THEN
+    assertThat(diff.getAddedKeys(), is(singleton("added")));
+    assertThat(diff.getRemovedKeys(), is(singleton("removed")));
+    assertThat(diff.getChangedKeys(), is(singleton("changed")));
+    assertThat(diff.isEmpty(), is(false));
+  }
+
+  @Test
+  public void testDiff_whenNoPreviousMap_shouldReturnAllKeysAsAdded() {
+    //GIVEN
+    Map<String, String> newMap = new HashMap<>();
+    newMap.put("a", null);
+
+    //WHEN
+    MapDiff<String> diff = new MapDiffer<String, String>().diff(null, newMap);
+
+    //THEN
+    assertThat(diff.getAddedKeys(), is(singleton("a")));
+    assertThat(diff.getChangedKeys().isEmpty(), is(true));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.groupon.grox.ActionQueue.OverflowPolicy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelNotificationStrategyTest {
+
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void testDispatch_withManyListeners_shouldNotifyAllListenersBeforeNextAction() {
+    //GIVEN
+    Store<Integer> store =
+        new Store<>(0, new ActionQueue<>(), new ParallelNotificationStrategy(pool, 100, 10));
+    AtomicInteger notificationCount = new AtomicInteger();
+    AtomicInteger stateSum = new AtomicInteger();
+    for (int i = 0; i < 1000; i++) {
+      store.subscribe(
+          state -> {
+            notificationCount.incrementAndGet();
+            stateSum.addAndGet(state);
+          });
+    }
+    notificationCount.set(0);
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+    int notificationCountAfterFirstAction = notificationCount.get();
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(notificationCountAfterFirstAction, is(1000));
+    assertThat(notificationCount.get(), is(2000));
+    assertThat(stateSum.get(), is(1000 + 2000));
+  }
+
+  @Test
+  public void testDispatch_withFewListeners_shouldNotifyListenersInDispatchingThread() {
+    //GIVEN
+    Store<Integer> store =
+        new Store<>(0, new ActionQueue<>(), new ParallelNotificationStrategy(pool, 100, 10));
+    Set<Thread> notifyingThreads = ConcurrentHashMap.newKeySet();
+    for (int i = 0; i < 10; i++) {
+      store.subscribe(state -> notifyingThreads.add(Thread.currentThread()));
+    }
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(notifyingThreads.size(), is(1));
+    assertThat(notifyingThreads.contains(Thread.currentThread()), is(true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_withThresholdBelowOne_shouldThrow() {
+    //WHEN
+    new ParallelNotificationStrategy(pool, 0, 10);
+
+    //THEN
+    fail("Should have thrown an exception");
+  }
+
+  @Test(timeout = 5000)
+  public void testDispatch_whenParallelListenerWaitsForFullQueue_shouldThrowInsteadOfDeadlocking() {
+    //GIVEN
+    Store<Integer> store =
+        new Store<>(
+            0,
+            new ActionQueue<>(1, OverflowPolicy.BLOCK),
+            new ParallelNotificationStrategy(pool, 1, 1));
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            store.dispatch(integer -> integer + 1);
+            store.dispatch(integer -> integer + 1);
+          }
+        });
+
+    //WHEN
+    try {
+      store.dispatch(integer -> integer + 1);
+      fail("Should have thrown an exception");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+
+    //THEN
+    assertThat(store.getState(), is(2));
+  }
+}
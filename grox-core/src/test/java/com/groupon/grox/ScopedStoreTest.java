@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ScopedStoreTest {
+
+  private static final Lens<Pair, String> LEFT =
+      new Lens<Pair, String>() {
+        @Override
+        public String get(Pair state) {
+          return state.left;
+        }
+
+        @Override
+        public Pair set(Pair state, String slice) {
+          return new Pair(slice, state.right);
+        }
+      };
+
+  @Test
+  public void testDispatch_shouldChangeOnlyTheSlice() {
+    //GIVEN
+    Store<Pair> store = new Store<>(new Pair("a", "b"));
+    ScopedStore<Pair, String> scopedStore = store.scope(LEFT);
+
+    //WHEN
+    scopedStore.dispatch(slice -> slice + "!");
+
+    //THEN
+    assertThat(scopedStore.getState(), is("a!"));
+    assertThat(store.getState().left, is("a!"));
+    assertThat(store.getState().right, is("b"));
+  }
+
+  @Test
+  public void testDispatch_whenSliceIsUnchanged_shouldKeepState() {
+    //GIVEN
+    Pair initialState = new Pair("a", "b");
+    Store<Pair> store = new Store<>(initialState);
+
+    //WHEN
+    store.scope(LEFT).dispatch(slice -> slice);
+
+    //THEN
+    assertThat(store.getState(), sameInstance(initialState));
+  }
+
+  @Test
+  public void testSubscribe_shouldNotifyCurrentSliceAndItsChangesOnly() {
+    //GIVEN
+    Store<Pair> store = new Store<>(new Pair("a", "b"));
+    ScopedStore<Pair, String> scopedStore = store.scope(LEFT);
+    List<String> slices = new ArrayList<>();
+
+    //WHEN
+    scopedStore.subscribe(slices::add);
+    store.dispatch(state -> new Pair(state.left, "c"));
+    scopedStore.dispatch(slice -> "d");
+    store.dispatch(state -> new Pair(state.left, "e"));
+
+    //THEN
+    assertThat(slices.size(), is(2));
+    assertThat(slices.get(0), is("a"));
+    assertThat(slices.get(1), is("d"));
+  }
+
+  @Test
+  public void testSubscribe_withManyListeners_shouldShareOneStoreListener() {
+    //GIVEN
+    Store<Pair> store = new Store<>(new Pair("a", "b"));
+    ScopedStore<Pair, String> scopedStore = store.scope(LEFT);
+    List<String> slices = new ArrayList<>();
+
+    //WHEN
+    for (int i = 0; i < 3; i++) {
+      scopedStore.subscribe(slices::add);
+    }
+    scopedStore.dispatch(slice -> "c");
+
+    //THEN
+    assertThat(store.getListenerCount(), is(1));
+    assertThat(slices.size(), is(6));
+  }
+
+  @Test
+  public void testUnsubscribe_shouldStopNotificationsAndReleaseStoreListener() {
+    //GIVEN
+    Store<Pair> store = new Store<>(new Pair("a", "b"));
+    ScopedStore<Pair, String> scopedStore = store.scope(LEFT);
+    List<String> slices = new ArrayList<>();
+    StateChangeListener<String> listener = slices::add;
+    scopedStore.subscribe(listener);
+
+    //WHEN
+    scopedStore.unsubscribe(listener);
+    scopedStore.dispatch(slice -> "c");
+
+    //THEN
+    assertThat(slices.size(), is(1));
+    assertThat(store.getListenerCount(), is(0));
+  }
+
+  private static final class Pair {
+    final String left;
+    final String right;
+
+    Pair(String left, String right) {
+      this.left = left;
+      this.right = right;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class SelectorsTest {
+
+  @Test
+  public void testSelect_whenInputDidNotChange_shouldNotRecompute() {
+    //GIVEN
+    List<Integer> items = Arrays.asList(1, 2, 3);
+    MemoizedSelector<TestState, Integer> sum =
+        Selectors.create(state -> state.items, SelectorsTest::sum);
+
+    //WHEN
+    Integer first = sum.select(new TestState(items, "a"));
+    Integer second = sum.select(new TestState(items, "b"));
+
+    //THEN
+    assertThat(first, is(6));
+    assertThat(second, sameInstance(first));
+    assertThat(sum.getRecomputations(), is(1L));
+  }
+
+  @Test
+  public void testSelect_whenInputChanged_shouldRecompute() {
+    //GIVEN
+    MemoizedSelector<TestState, Integer> sum =
+        Selectors.create(state -> state.items, SelectorsTest::sum);
+
+    //WHEN
+    sum.select(new TestState(Arrays.asList(1, 2), "a"));
+    Integer result = sum.select(new TestState(Arrays.asList(1, 2, 3), "a"));
+
+    //THEN
+    assertThat(result, is(6));
+    assertThat(sum.getRecomputations(), is(2L));
+  }
+
+  @Test
+  public void testSelect_withGraph_shouldOnlyRecomputeNodesWhoseInputsChanged() {
+    //GIVEN
+    MemoizedSelector<TestState, List<Integer>> visibleItems =
+        Selectors.create(state -> state.items, state -> state.filter, SelectorsTest::filterItems);
+    MemoizedSelector<TestState, Integer> total = Selectors.create(visibleItems, SelectorsTest::sum);
+    MemoizedSelector<TestState, String> label =
+        Selectors.create(total, state -> state.filter, (sum, filter) -> filter + "=" + sum);
+    MemoizedSelector<TestState, Integer> count = Selectors.create(state -> state.items, List::size);
+    List<Integer> items = Arrays.asList(1, 2, 3);
+
+    //WHEN
+    label.select(new TestState(items, "odd"));
+    count.select(new TestState(items, "odd"));
+    label.select(new TestState(items, "odd"));
+    String result = label.select(new TestState(items, "all"));
+    count.select(new TestState(items, "all"));
+
+    //THEN
+    assertThat(result, is("all=6"));
+    assertThat(visibleItems.getRecomputations(), is(2L));
+    assertThat(total.getRecomputations(), is(2L));
+    assertThat(label.getRecomputations(), is(2L));
+    assertThat(count.getRecomputations(), is(1L));
+  }
+
+  @Test
+  public void testSelect_withLargerCache_shouldKeepSeveralResults() {
+    //GIVEN
+    List<Integer> items0 = Arrays.asList(1);
+    List<Integer> items1 = Arrays.asList(2);
+    List<Integer> items2 = Arrays.asList(3);
+    MemoizedSelector<TestState, Integer> sum =
+        Selectors.create((TestState state) -> state.items, SelectorsTest::sum).withCacheSize(2);
+
+    //WHEN
+    sum.select(new TestState(items0, ""));
+    sum.select(new TestState(items1, ""));
+    sum.select(new TestState(items0, ""));
+    sum.select(new TestState(items2, ""));
+    sum.select(new TestState(items0, ""));
+
+    //THEN
+    assertThat(sum.getCacheSize(), is(2));
+    assertThat(sum.getRecomputations(), is(3L));
+  }
+
+  @Test
+  public void testSelect_whenOnlyLastInputChanged_shouldSelectEachInputOnce() {
+    //GIVEN
+    List<Integer> items = Arrays.asList(1, 2, 3);
+    AtomicInteger itemsSelections = new AtomicInteger();
+    AtomicInteger filterSelections = new AtomicInteger();
+    MemoizedSelector<TestState, List<Integer>> visibleItems =
+        Selectors.create(
+            state -> {
+              itemsSelections.incrementAndGet();
+              return state.items;
+            },
+            state -> {
+              filterSelections.incrementAndGet();
+              return state.filter;
+            },
+            SelectorsTest::filterItems);
+
+    //WHEN
+    visibleItems.select(new TestState(items, "odd"));
+    visibleItems.select(new TestState(items, "odd"));
+    List<Integer> result = visibleItems.select(new TestState(items, "all"));
+
+    //THEN
+    assertThat(result, is(items));
+    assertThat(itemsSelections.get(), is(3));
+    assertThat(filterSelections.get(), is(3));
+    assertThat(visibleItems.getRecomputations(), is(2L));
+  }
+
+  @Test
+  public void testMemoize_whenStateDidNotChange_shouldNotRecompute() {
+    //GIVEN
+    MemoizedSelector<TestState, Integer> size = Selectors.memoize(state -> state.items.size());
+    TestState state = new TestState(Arrays.asList(1, 2), "");
+
+    //WHEN
+    size.select(state);
+    Integer result = size.select(state);
+
+    //THEN
+    assertThat(result, is(2));
+    assertThat(size.getRecomputations(), is(1L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWithCacheSize_whenNotPositive_shouldFail() {
+    //GIVEN
+    MemoizedSelector<TestState, Integer> sum =
+        Selectors.create(state -> state.items, SelectorsTest::sum);
+
+    //WHEN
+    sum.withCacheSize(0);
+
+    //THEN
+  }
+
+  private static Integer sum(List<Integer> items) {
+    int sum = 0;
+    for (Integer item : items) {
+      sum += item;
+    }
+    return sum;
+  }
+
+  private static List<Integer> filterItems(List<Integer> items, String filter) {
+    List<Integer> filteredItems = new ArrayList<>();
+    for (Integer item : items) {
+      if (!"odd".equals(filter) || item % 2 == 1) {
+        filteredItems.add(item);
+      }
+    }
+    return filteredItems;
+  }
+
+  private static class TestState {
+    final List<Integer> items;
+    final String filter;
+
+    TestState(List<Integer> items, String filter) {
+      this.items = items;
+      this.filter = filter;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.SlowOperation.Kind;
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Test;
+
+public class SlowOperationDetectorTest {
+
+  @Test
+  public void testDispatch_whenActionIsSlow_shouldReportIt() {
+    //GIVEN
+    List<SlowOperation> slowOperations = new CopyOnWriteArrayList<>();
+    SlowOperationDetector detector = new SlowOperationDetector(slowOperations::add, 10, 10);
+    Store<Integer> store = new Store<>(0, detector.<Integer>middleware());
+    Action<Integer> slowAction =
+        integer -> {
+          sleep(30);
+          return integer + 1;
+        };
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+    store.dispatch(slowAction);
+
+    //THEN
+    assertThat(slowOperations.size(), is(1));
+    SlowOperation slowOperation = slowOperations.get(0);
+    assertThat(slowOperation.getKind(), is(Kind.ACTION));
+    assertThat(slowOperation.getOffender(), sameInstance((Object) slowAction));
+    assertThat(slowOperation.getDurationNanos() > slowOperation.getThresholdNanos(), is(true));
+    assertThat(slowOperation.getStackTrace(), nullValue());
+  }
+
+  @Test
+  public void testDispatch_whenListenerIsSlow_shouldReportIt() {
+    //GIVEN
+    List<SlowOperation> slowOperations = new CopyOnWriteArrayList<>();
+    SlowOperationDetector detector = new SlowOperationDetector(slowOperations::add, 10, 10);
+    Store<Integer> store = new Store<>(0);
+    StateChangeListener<Integer> slowListener =
+        state -> {
+          if (state > 0) {
+            sleep(30);
+          }
+        };
+    store.subscribe(detector.watch(slowListener));
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(slowOperations.size(), is(1));
+    assertThat(slowOperations.get(0).getKind(), is(Kind.LISTENER));
+    assertThat(slowOperations.get(0).getOffender(), sameInstance((Object) slowListener));
+  }
+
+  @Test
+  public void testDispatch_whenSamplingStacks_shouldReportStackOfSlowAction() {
+    //GIVEN
+    List<SlowOperation> slowOperations = new CopyOnWriteArrayList<>();
+    SlowOperationDetector detector = new SlowOperationDetector(slowOperations::add, 10, 10, 0);
+    Store<Integer> store = new Store<>(0, detector.<Integer>middleware());
+
+    //WHEN
+    store.dispatch(
+        integer -> {
+          sleep(200);
+          return integer + 1;
+        });
+    detector.stop();
+
+    //THEN
+    assertThat(slowOperations.size(), is(1));
+    assertThat(slowOperations.get(0).getStackTrace(), notNullValue());
+    assertThat(slowOperations.get(0).getStackTrace().length > 0, is(true));
+  }
+
+  @Test
+  public void testToString_withTurkishDefaultLocale_shouldUseAsciiKind() {
+    //GIVEN
+    Locale defaultLocale = Locale.getDefault();
+    Locale.setDefault(new Locale("tr", "TR"));
+    SlowOperation slowOperation =
+        new SlowOperation(Kind.LISTENER, new Object(), 20_000_000, 10_000_000, "main", null);
+
+    //WHEN
+    String description;
+    try {
+      description = slowOperation.toString();
+    } finally {
+      Locale.setDefault(defaultLocale);
+    }
+
+    //THEN
+    assertThat(description, is("listener java.lang.Object took 20 ms on main (threshold: 10 ms)"));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
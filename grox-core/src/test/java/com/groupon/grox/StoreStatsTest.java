@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Test;
+
+public class StoreStatsTest {
+
+  @Test
+  public void testStats_shouldCountDispatchesAndNotifications() {
+    //GIVEN
+    StoreStats stats = new StoreStats();
+    Store<Integer> store =
+        new Store<>(0, new ActionQueue<>(), NotificationStrategy.SEQUENTIAL, stats);
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            store.dispatch(integer -> integer + 1);
+            store.dispatch(integer -> integer + 1);
+          }
+        });
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(store.getState(), is(3));
+    assertThat(stats.getDispatchCount(), is(3L));
+    assertThat(stats.getReentrantDispatchCount(), is(2L));
+    assertThat(stats.getQueueDepth(), is(0));
+    assertThat(stats.getPeakQueueDepth(), is(2));
+    assertThat(stats.getListenerCount(), is(1));
+    assertThat(stats.getNotificationCount(), is(4L));
+    assertThat(stats.getDispatchRate(), is(0.0));
+  }
+
+  @Test
+  public void testStats_whenStoreIsIdle_shouldNotCountTheActionAsWaiting() {
+    //GIVEN
+    StoreStats stats = new StoreStats();
+    Store<Integer> store =
+        new Store<>(0, new ActionQueue<>(), NotificationStrategy.SEQUENTIAL, stats);
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(stats.getQueueDepth(), is(0));
+    assertThat(stats.getPeakQueueDepth(), is(0));
+  }
+
+  @Test
+  public void testStats_whenActionsWait_shouldReportTheDepthOfTheQueue() {
+    //GIVEN
+    StoreStats stats = new StoreStats();
+    Store<Integer> store =
+        new Store<>(0, new ActionQueue<>(), NotificationStrategy.SEQUENTIAL, stats);
+    List<Integer> queueDepths = new CopyOnWriteArrayList<>();
+    store.subscribe(
+        state -> {
+          queueDepths.add(stats.getQueueDepth());
+          if (state == 1) {
+            store.dispatch(integer -> integer + 1);
+            store.dispatch(integer -> integer + 1);
+            store.dispatch(integer -> integer + 1);
+          }
+        });
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(queueDepths, is(asList(0, 0, 2, 1, 0)));
+    assertThat(stats.getPeakQueueDepth(), is(3));
+  }
+
+  @Test
+  public void testStats_whenListenersAreUnsubscribed_shouldCountListeners() {
+    //GIVEN
+    StoreStats stats = new StoreStats();
+    Store<Integer> store =
+        new Store<>(0, new ActionQueue<>(), NotificationStrategy.SEQUENTIAL, stats);
+    StateChangeListener<Integer> listener = state -> {};
+    store.subscribe(listener);
+    store.subscribe(state -> {});
+
+    //WHEN
+    store.unsubscribe(listener);
+
+    //THEN
+    assertThat(stats.getListenerCount(), is(1));
+  }
+
+  @Test
+  public void testComposite_shouldForwardEventsToAllEventListeners() {
+    //GIVEN
+    StoreStats stats0 = new StoreStats();
+    StoreStats stats1 = new StoreStats();
+    Store<Integer> store =
+        new Store<>(
+            0,
+            new ActionQueue<>(),
+            NotificationStrategy.SEQUENTIAL,
+            StoreEventListener.composite(stats0, stats1));
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(stats0.getDispatchCount(), is(1L));
+    assertThat(stats1.getDispatchCount(), is(1L));
+  }
+}
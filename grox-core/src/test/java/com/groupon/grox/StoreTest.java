@@ -15,6 +15,7 @@
  */
 package com.groupon.grox;
 
+import static java.util.Arrays.asList;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
@@ -26,11 +27,19 @@ import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import com.groupon.grox.Store.Middleware;
 import com.groupon.grox.Store.StateChangeListener;
+import com.groupon.grox.Store.StateDiffListener;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.easymock.Capture;
 import org.easymock.IAnswer;
 import org.junit.Test;
@@ -341,4 +350,592 @@ public class StoreTest {
     //THEN
     verify(mockListener0, mockListener1);
   }
+
+  @Test
+  public void testStore_shouldExecuteQueuedActionsByPriority() {
+    //GIVEN
+    Store<String> store = new Store<>("");
+    store.subscribe(
+        state -> {
+          if (state.equals("a")) {
+            store.dispatch(oldState -> oldState + "b", Store.Priority.BACKGROUND);
+            store.dispatch(oldState -> oldState + "n");
+            store.dispatch(oldState -> oldState + "h", Store.Priority.HIGH);
+          }
+        });
+
+    //WHEN
+    store.dispatch(oldState -> oldState + "a");
+
+    //THEN
+    assertThat(store.getState(), is("ahnb"));
+  }
+
+  @Test
+  public void testStore_withBoundedQueue_shouldApplyOverflowPolicy() {
+    //GIVEN
+    ActionQueue<Integer> actionQueue = new ActionQueue<>(1, ActionQueue.OverflowPolicy.DROP_NEWEST);
+    Store<Integer> store = new Store<>(0, actionQueue);
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            store.dispatch(integer -> integer + 10);
+            store.dispatch(integer -> integer + 100);
+          }
+        });
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(store.getState(), is(11));
+    assertThat(actionQueue.getDroppedCount(), is(1L));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStore_withFullBlockingQueue_shouldFailWhenDispatchingThreadWouldBlock() {
+    //GIVEN
+    ActionQueue<Integer> actionQueue = new ActionQueue<>(1, ActionQueue.OverflowPolicy.BLOCK);
+    Store<Integer> store = new Store<>(0, actionQueue);
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            store.dispatch(integer -> integer + 10);
+            store.dispatch(integer -> integer + 100);
+          }
+        });
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    fail("Should have thrown an exception");
+  }
+
+  @Test(timeout = 5000)
+  public void testDispatch_whileListenersAreNotified_shouldNotBlockOtherThreads() throws Exception {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    CountDownLatch listenerStarted = new CountDownLatch(1);
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    store.subscribe(
+        state -> {
+          states.add(state);
+          if (state == 1) {
+            listenerStarted.countDown();
+            awaitUninterruptibly(releaseListener);
+          }
+        });
+    Thread dispatchingThread = new Thread(() -> store.dispatch(integer -> integer + 1));
+    dispatchingThread.start();
+    listenerStarted.await();
+
+    //WHEN
+    store.dispatch(integer -> integer * 10);
+
+    //THEN
+    assertThat(store.getState(), is(1));
+    releaseListener.countDown();
+    dispatchingThread.join();
+    assertThat(store.getState(), is(10));
+    assertThat(states, is(asList(0, 1, 10)));
+  }
+
+  @Test(timeout = 5000)
+  public void testDispatch_whenBlockingQueueIsFull_shouldWaitForTheQueueToHaveRoom()
+      throws Exception {
+    //GIVEN
+    ActionQueue<Integer> actionQueue = new ActionQueue<>(1, ActionQueue.OverflowPolicy.BLOCK);
+    Store<Integer> store = new Store<>(0, actionQueue);
+    CountDownLatch listenerStarted = new CountDownLatch(1);
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            listenerStarted.countDown();
+            awaitUninterruptibly(releaseListener);
+          }
+        });
+    Thread dispatchingThread = new Thread(() -> store.dispatch(integer -> integer + 1));
+    dispatchingThread.start();
+    listenerStarted.await();
+    store.dispatch(integer -> integer + 10);
+    Thread blockedProducer = new Thread(() -> store.dispatch(integer -> integer + 100));
+    blockedProducer.start();
+
+    //WHEN
+    blockedProducer.join(100);
+    boolean producerBlocked = blockedProducer.isAlive();
+    releaseListener.countDown();
+    blockedProducer.join();
+    dispatchingThread.join();
+
+    //THEN
+    assertThat(producerBlocked, is(true));
+    assertThat(store.getState(), is(111));
+    assertThat(actionQueue.getBlockedCount(), is(1L));
+  }
+
+  @Test(timeout = 5000)
+  public void testDispatch_whenListenerThrowsErrorWithFullBlockingQueue_shouldDrainInProducer()
+      throws Exception {
+    //GIVEN
+    ActionQueue<Integer> actionQueue = new ActionQueue<>(1, ActionQueue.OverflowPolicy.BLOCK);
+    Store<Integer> store = new Store<>(0, actionQueue);
+    CountDownLatch listenerStarted = new CountDownLatch(1);
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            listenerStarted.countDown();
+            awaitUninterruptibly(releaseListener);
+            throw new AssertionError("Expected");
+          }
+        });
+    Thread dispatchingThread =
+        new Thread(
+            () -> {
+              try {
+                store.dispatch(integer -> integer + 1);
+              } catch (AssertionError expected) {
+                // expected
+              }
+            });
+    dispatchingThread.start();
+    listenerStarted.await();
+    store.dispatch(integer -> integer * 10);
+    Thread blockedProducer = new Thread(() -> store.dispatch(integer -> integer + 5));
+    blockedProducer.start();
+    while (blockedProducer.getState() != Thread.State.WAITING) {
+      Thread.yield();
+    }
+
+    //WHEN
+    releaseListener.countDown();
+    dispatchingThread.join();
+    blockedProducer.join();
+
+    //THEN
+    assertThat(store.getState(), is(15));
+  }
+
+  @Test
+  public void testSubscribe_whileDispatching_shouldNotifyNewListenerBeforeNextAction() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            store.dispatch(integer -> integer + 1);
+            store.subscribe(states::add);
+          }
+        });
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(states, is(asList(1, 2)));
+  }
+
+  @Test
+  public void testDispatch_afterActionFailed_shouldResumeDispatching() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    try {
+      store.dispatch(
+          integer -> {
+            throw new IllegalArgumentException();
+          });
+      fail("Should have thrown an exception");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(store.getState(), is(1));
+  }
+
+  @Test(timeout = 5000)
+  public void testDispatch_whenActionFails_shouldExecuteTheActionsQueuedByOtherThreads()
+      throws Exception {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    CountDownLatch listenerStarted = new CountDownLatch(1);
+    CountDownLatch releaseListener = new CountDownLatch(1);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    store.subscribe(
+        state -> {
+          states.add(state);
+          if (state == 1) {
+            listenerStarted.countDown();
+            awaitUninterruptibly(releaseListener);
+          }
+        });
+    AtomicInteger failures = new AtomicInteger();
+    Thread dispatchingThread =
+        new Thread(
+            () -> {
+              try {
+                store.dispatch(integer -> integer + 1);
+              } catch (IllegalStateException expected) {
+                failures.incrementAndGet();
+              }
+            });
+    dispatchingThread.start();
+    listenerStarted.await();
+
+    //WHEN
+    store.dispatch(
+        integer -> {
+          throw new IllegalStateException("Expected");
+        });
+    store.dispatch(integer -> integer * 10);
+    releaseListener.countDown();
+    dispatchingThread.join();
+
+    //THEN
+    assertThat(failures.get(), is(1));
+    assertThat(store.getState(), is(10));
+    assertThat(states, is(asList(0, 1, 10)));
+  }
+
+  @Test
+  public void testDispatch_whenSeveralActionsFail_shouldRethrowFirstAndReportOthers() {
+    //GIVEN
+    List<RuntimeException> discardedFailures = new CopyOnWriteArrayList<>();
+    Store<Integer> store =
+        new Store<>(
+            0,
+            new ActionQueue<>(),
+            NotificationStrategy.SEQUENTIAL,
+            new StoreEventListener() {
+              @Override
+              public void failureDiscarded(Store<?> store, RuntimeException failure) {
+                discardedFailures.add(failure);
+              }
+            });
+    IllegalStateException firstFailure = new IllegalStateException("first");
+    IllegalStateException secondFailure = new IllegalStateException("second");
+    store.subscribe(
+        state -> {
+          if (state == 1) {
+            store.dispatch(
+                integer -> {
+                  throw firstFailure;
+                });
+            store.dispatch(
+                integer -> {
+                  throw secondFailure;
+                });
+            store.dispatch(integer -> integer + 1);
+          }
+        });
+
+    //WHEN
+    RuntimeException rethrownFailure = null;
+    try {
+      store.dispatch(integer -> integer + 1);
+    } catch (IllegalStateException e) {
+      rethrownFailure = e;
+    }
+
+    //THEN
+    assertThat(rethrownFailure, sameInstance(firstFailure));
+    assertThat(discardedFailures, is(asList(secondFailure)));
+    assertThat(store.getState(), is(2));
+  }
+
+  @Test
+  public void testSubscribeWeakly_shouldNotifyListener() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    StateChangeListener<Integer> listener = states::add;
+
+    //WHEN
+    store.subscribeWeakly(listener);
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(states, is(asList(0, 1)));
+  }
+
+  @Test
+  public void testSubscribeWeakly_whenListenerIsCollected_shouldPurgeListener() throws Exception {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    // a lambda that captures nothing would be a constant, that is never collected.
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    StateChangeListener<Integer> listener = states::add;
+    WeakReference<StateChangeListener<Integer>> listenerReference = new WeakReference<>(listener);
+    store.subscribeWeakly(listener);
+    store.subscribe(state -> {});
+
+    //WHEN
+    listener = null;
+    for (int i = 0; i < 100 && listenerReference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    // the reference queue is filled asynchronously after the reference is cleared.
+    for (int i = 0; i < 100 && store.getListenerCount() != 1; i++) {
+      store.dispatch(integer -> integer + 1);
+      Thread.sleep(10);
+    }
+
+    //THEN
+    assertThat(store.getListenerCount(), is(1));
+  }
+
+  @Test
+  public void testUnsubscribe_whenSubscribedWeakly_shouldStopNotifyingListener() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    StateChangeListener<Integer> listener = states::add;
+    store.subscribeWeakly(listener);
+
+    //WHEN
+    store.unsubscribe(listener);
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(states, is(asList(0)));
+    assertThat(store.getListenerCount(), is(0));
+  }
+
+  @Test
+  public void testUnsubscribeAll_shouldStopNotifyingAllListeners() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    StateChangeListener<Integer> listener0 = states::add;
+    StateChangeListener<Integer> listener1 = states::add;
+    StateChangeListener<Integer> listener2 = states::add;
+    store.subscribe(listener0);
+    store.subscribeWeakly(listener1);
+    store.subscribe(listener2);
+
+    //WHEN
+    store.unsubscribeAll(asList(listener0, listener1));
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(states, is(asList(0, 0, 0, 1)));
+    assertThat(store.getListenerCount(), is(1));
+  }
+
+  @Test
+  public void testSubscribeWithDiffer_shouldComputeDiffOnceForAllListeners() {
+    //GIVEN
+    Store<Integer> store = new Store<>(1);
+    AtomicInteger diffCount = new AtomicInteger();
+    StateDiffer<Integer, Integer> differ =
+        (oldState, newState) -> {
+          diffCount.incrementAndGet();
+          return oldState == null ? newState : newState - oldState;
+        };
+    List<String> notifications = new CopyOnWriteArrayList<>();
+    store.subscribe(
+        differ,
+        (oldState, newState, diff) -> notifications.add(oldState + ">" + newState + ":" + diff));
+    store.subscribe(
+        differ,
+        (oldState, newState, diff) -> notifications.add(oldState + ">" + newState + ":" + diff));
+
+    //WHEN
+    store.dispatch(integer -> integer + 2);
+
+    //THEN
+    assertThat(notifications, is(asList("null>1:1", "null>1:1", "1>3:2", "1>3:2")));
+    assertThat(diffCount.get(), is(2));
+  }
+
+  @Test
+  public void testUnsubscribeDiff_shouldStopNotifyingListener() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    List<Integer> diffs = new CopyOnWriteArrayList<>();
+    StateDiffListener<Integer, Integer> listener = (oldState, newState, diff) -> diffs.add(diff);
+    store.subscribe((oldState, newState) -> newState, listener);
+
+    //WHEN
+    store.unsubscribeDiff(listener);
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(diffs, is(asList(0)));
+    assertThat(store.getListenerCount(), is(0));
+  }
+
+  @Test
+  public void testTransaction_shouldApplyActionsInOrderAndNotifyOnce() {
+    //GIVEN
+    Store<Integer> store = new Store<>(1);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    store.subscribe(states::add);
+
+    //WHEN
+    store.transaction(integer -> integer + 1, integer -> integer * 10);
+
+    //THEN
+    assertThat(store.getState(), is(20));
+    assertThat(states, is(asList(1, 20)));
+  }
+
+  @Test
+  public void testTransaction_whenAnActionFails_shouldRollbackAndNotNotify() {
+    //GIVEN
+    Store<Integer> store = new Store<>(1);
+    List<Integer> states = new CopyOnWriteArrayList<>();
+    store.subscribe(states::add);
+
+    //WHEN
+    try {
+      store.transaction(
+          integer -> integer + 1,
+          integer -> {
+            throw new IllegalStateException("Expected");
+          });
+      fail("The transaction should have failed");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+    store.dispatch(integer -> integer + 2);
+
+    //THEN
+    assertThat(store.getState(), is(3));
+    assertThat(states, is(asList(1, 3)));
+  }
+
+  @Test
+  public void testTransaction_withMiddleWare_shouldInterceptTheBatchOnce() {
+    //GIVEN
+    List<Action<Integer>> interceptedActions = new CopyOnWriteArrayList<>();
+    Store<Integer> store =
+        new Store<>(
+            0,
+            chain -> {
+              interceptedActions.add(chain.action());
+              chain.proceed(chain.action());
+            });
+    Action<Integer> action0 = integer -> integer + 1;
+    Action<Integer> action1 = integer -> integer + 2;
+
+    //WHEN
+    store.transaction(action0, action1);
+
+    //THEN
+    assertThat(interceptedActions.size(), is(1));
+    Transaction<Integer> transaction = (Transaction<Integer>) interceptedActions.get(0);
+    assertThat(transaction.getActions(), is(asList(action0, action1)));
+    assertThat(store.getState(), is(3));
+  }
+
+  @Test
+  public void testDispatch_withEventListener_shouldReportEventsInOrder() {
+    //GIVEN
+    List<String> events = new CopyOnWriteArrayList<>();
+    StoreEventListener eventListener = new RecordingEventListener(events);
+    Store<Integer> store =
+        new Store<>(
+            0,
+            new ActionQueue<>(),
+            NotificationStrategy.SEQUENTIAL,
+            eventListener,
+            chain -> chain.proceed(chain.action()));
+    StateChangeListener<Integer> listener = state -> events.add("notified " + state);
+    store.subscribe(listener);
+    events.clear();
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+    store.unsubscribe(listener);
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(
+        events,
+        is(
+            asList(
+                "dispatchStart",
+                "middlewareStart",
+                "reducerStart",
+                "reducerEnd",
+                "middlewareEnd",
+                "dispatchEnd",
+                "listenerStart",
+                "notified 1",
+                "listenerEnd",
+                "dispatchStart",
+                "middlewareStart",
+                "reducerStart",
+                "reducerEnd",
+                "middlewareEnd",
+                "dispatchEnd")));
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class RecordingEventListener extends StoreEventListener {
+    private final List<String> events;
+
+    RecordingEventListener(List<String> events) {
+      this.events = events;
+    }
+
+    @Override
+    public void dispatchStart(
+        Store<?> store, Action<?> action, long queueWaitNanos, int queueDepth) {
+      events.add("dispatchStart");
+    }
+
+    @Override
+    public void dispatchEnd(Store<?> store, Action<?> action, long durationNanos) {
+      events.add("dispatchEnd");
+    }
+
+    @Override
+    public void middlewareStart(Store<?> store, Middleware<?> middleware, Action<?> action) {
+      events.add("middlewareStart");
+    }
+
+    @Override
+    public void middlewareEnd(
+        Store<?> store, Middleware<?> middleware, Action<?> action, long durationNanos) {
+      events.add("middlewareEnd");
+    }
+
+    @Override
+    public void reducerStart(Store<?> store, Action<?> action) {
+      events.add("reducerStart");
+    }
+
+    @Override
+    public void reducerEnd(Store<?> store, Action<?> action, long durationNanos) {
+      events.add("reducerEnd");
+    }
+
+    @Override
+    public void listenerStart(Store<?> store, Object listener) {
+      events.add("listenerStart");
+    }
+
+    @Override
+    public void listenerEnd(Store<?> store, Object listener, long durationNanos) {
+      events.add("listenerEnd");
+    }
+  }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class SubscriptionScopeTest {
+
+  @Test
+  public void testRelease_shouldUnsubscribeAllListenersOfScope() {
+    //GIVEN
+    Store<Integer> store0 = new Store<>(0);
+    Store<String> store1 = new Store<>("a");
+    SubscriptionScope scope = new SubscriptionScope();
+    List<Object> states = new ArrayList<>();
+    store0.subscribe(states::add, scope);
+    store0.subscribe(states::add, scope);
+    store1.subscribe(states::add, scope);
+    store1.subscribe(states::add);
+
+    //WHEN
+    scope.release();
+    store0.dispatch(integer -> integer + 1);
+    store1.dispatch(string -> string + "b");
+
+    //THEN
+    assertThat(states, is(asList(0, 0, "a", "a", "ab")));
+    assertThat(scope.size(), is(0));
+    assertThat(store0.getListenerCount(), is(0));
+    assertThat(store1.getListenerCount(), is(1));
+  }
+
+  @Test
+  public void testSubscribe_afterRelease_shouldReuseScope() {
+    //GIVEN
+    Store<Integer> store = new Store<>(0);
+    SubscriptionScope scope = new SubscriptionScope();
+    List<Integer> states = new ArrayList<>();
+    store.subscribe(states::add, scope);
+    scope.release();
+
+    //WHEN
+    store.subscribe(states::add, scope);
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(states, is(asList(0, 0, 1)));
+    assertThat(scope.size(), is(1));
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+
+import com.groupon.grox.Store;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+@JCStressTest
+@Description("Actions dispatched concurrently are all executed, none of them is lost.")
+@Outcome(id = "2", expect = ACCEPTABLE, desc = "Both actions were executed.")
+@State
+public class DispatchDispatchTest {
+  private final Store<Integer> store = new Store<>(0);
+
+  @Actor
+  public void actor1() {
+    store.dispatch(oldState -> oldState + 1);
+  }
+
+  @Actor
+  public void actor2() {
+    store.dispatch(oldState -> oldState + 1);
+  }
+
+  @Arbiter
+  public void arbiter(I_Result result) {
+    result.r1 = store.getState();
+  }
+}
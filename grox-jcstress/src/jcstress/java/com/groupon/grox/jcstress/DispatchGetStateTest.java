@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.groupon.grox.Store;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+@JCStressTest
+@Description(
+    "getState() reads the state without locking, it must still see a fully constructed state, "
+        + "even when its fields are not final.")
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "The initial state was read.")
+@Outcome(id = "1, 1", expect = ACCEPTABLE, desc = "The new state was read.")
+@Outcome(expect = FORBIDDEN, desc = "A partially constructed state was read.")
+@State
+public class DispatchGetStateTest {
+  private final Store<Point> store = new Store<>(new Point(0, 0));
+
+  @Actor
+  public void actor1() {
+    store.dispatch(oldState -> new Point(1, 1));
+  }
+
+  @Actor
+  public void actor2(II_Result result) {
+    Point state = store.getState();
+    result.r1 = state.x;
+    result.r2 = state.y;
+  }
+
+  /** A state with non final fields, that is only safely published by the store. */
+  static class Point {
+    int x;
+    int y;
+
+    Point(int x, int y) {
+      this.x = x;
+      this.y = y;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+
+import com.groupon.grox.Store;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.L_Result;
+
+@JCStressTest
+@Description(
+    "The actions dispatched by a thread are executed in order, even when another thread is "
+        + "dispatching and executes them.")
+@Outcome(
+    id = {"abc", "acb", "cab"},
+    expect = ACCEPTABLE,
+    desc = "The actions of each thread were executed in order.")
+@State
+public class DispatchOrderTest {
+  private final Store<String> store = new Store<>("");
+
+  @Actor
+  public void actor1() {
+    store.dispatch(oldState -> oldState + "a");
+    store.dispatch(oldState -> oldState + "b");
+  }
+
+  @Actor
+  public void actor2() {
+    store.dispatch(oldState -> oldState + "c");
+  }
+
+  @Arbiter
+  public void arbiter(L_Result result) {
+    result.r1 = store.getState();
+  }
+}
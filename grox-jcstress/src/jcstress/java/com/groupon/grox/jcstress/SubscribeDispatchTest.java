@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.groupon.grox.Store;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+@JCStressTest
+@Description(
+    "A listener subscribed while another thread dispatches is notified of the latest state, "
+        + "and is never notified of a state twice.")
+@Outcome(id = "1, 1", expect = ACCEPTABLE, desc = "Subscribed after the action was executed.")
+@Outcome(id = "1, 2", expect = ACCEPTABLE, desc = "Subscribed before the action was executed.")
+@Outcome(expect = FORBIDDEN, desc = "The listener missed the latest state, or saw it twice.")
+@State
+public class SubscribeDispatchTest {
+  private final Store<Integer> store = new Store<>(0);
+  private volatile int lastState = -1;
+  private volatile int notifications;
+
+  @Actor
+  public void actor1() {
+    store.subscribe(
+        newState -> {
+          lastState = newState;
+          notifications++;
+        });
+  }
+
+  @Actor
+  public void actor2() {
+    store.dispatch(oldState -> 1);
+  }
+
+  @Arbiter
+  public void arbiter(II_Result result) {
+    result.r1 = lastState;
+    result.r2 = notifications;
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.groupon.grox.Store;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+@JCStressTest
+@Description(
+    "A listener unsubscribed while another thread dispatches is notified at most once more, and "
+        + "is never notified after a second dispatch by the unsubscribing thread.")
+@Outcome(id = "0, 1", expect = ACCEPTABLE, desc = "Unsubscribed before the action was executed.")
+@Outcome(id = "1, 2", expect = ACCEPTABLE, desc = "Unsubscribed after the action was executed.")
+@Outcome(expect = FORBIDDEN, desc = "The listener was notified after it was unsubscribed.")
+@State
+public class UnsubscribeDispatchTest {
+  private final Store<Integer> store = new Store<>(0);
+  private volatile int lastState = -1;
+  private volatile int notifications;
+  private final Store.StateChangeListener<Integer> listener =
+      newState -> {
+        lastState = newState;
+        notifications++;
+      };
+
+  public UnsubscribeDispatchTest() {
+    store.subscribe(listener);
+  }
+
+  @Actor
+  public void actor1() {
+    store.unsubscribe(listener);
+    store.dispatch(oldState -> oldState + 1);
+  }
+
+  @Actor
+  public void actor2() {
+    store.dispatch(oldState -> oldState + 1);
+  }
+
+  @Arbiter
+  public void arbiter(II_Result result) {
+    result.r1 = lastState;
+    result.r2 = notifications;
+  }
+}
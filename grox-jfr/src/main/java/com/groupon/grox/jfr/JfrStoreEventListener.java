@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jfr;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.StoreEventListener;
+import java.util.ArrayDeque;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * Emits Java Flight Recorder events for the internal events of a store, so that the time spent in
+ * a store can be attributed in production recordings. The events are in the "Grox" category:
+ *
+ * <ul>
+ *   <li>{@code com.groupon.grox.Dispatch}: an action going through the store, with its class and
+ *       the time it waited in the action queue.
+ *   <li>{@code com.groupon.grox.Middleware}: a middle ware intercepting an action.
+ *   <li>{@code com.groupon.grox.Reducer}: an action computing the new state.
+ *   <li>{@code com.groupon.grox.Listener}: a listener being notified of a state change.
+ * </ul>
+ *
+ * Usage: {@code new Store<>(initialState, new ActionQueue<>(), NotificationStrategy.SEQUENTIAL,
+ * new JfrStoreEventListener(), middlewares)}. </br> When an event is not enabled in the current
+ * recordings, no event is created. A store that is not instrumented at all should use {@link
+ * StoreEventListener#NONE}, which costs nothing.
+ */
+public final class JfrStoreEventListener extends StoreEventListener {
+
+  private static final EventType DISPATCH = EventType.getEventType(DispatchEvent.class);
+  private static final EventType MIDDLEWARE = EventType.getEventType(MiddlewareEvent.class);
+  private static final EventType REDUCER = EventType.getEventType(ReducerEvent.class);
+  private static final EventType LISTENER = EventType.getEventType(ListenerEvent.class);
+
+  /** Stands for an event that was not enabled when it started. */
+  private static final Object DISABLED = new Object();
+
+  /**
+   * The events started and not ended yet by each thread. Middle ware events are nested, and an
+   * event type can be enabled or disabled between the start and the end of an event.
+   */
+  private final ThreadLocal<ArrayDeque<Object>> startedEvents =
+      new ThreadLocal<ArrayDeque<Object>>() {
+        @Override
+        protected ArrayDeque<Object> initialValue() {
+          return new ArrayDeque<>();
+        }
+      };
+
+  @Override
+  public void dispatchStart(
+      Store<?> store, Action<?> action, long queueWaitNanos, int queueDepth) {
+    if (!DISPATCH.isEnabled()) {
+      start(DISABLED);
+      return;
+    }
+    DispatchEvent event = new DispatchEvent();
+    event.actionClass = action.getClass();
+    event.queueWait = queueWaitNanos;
+    start(event);
+  }
+
+  @Override
+  public void dispatchEnd(Store<?> store, Action<?> action, long durationNanos) {
+    end();
+  }
+
+  @Override
+  public void middlewareStart(Store<?> store, Store.Middleware<?> middleware, Action<?> action) {
+    if (!MIDDLEWARE.isEnabled()) {
+      start(DISABLED);
+      return;
+    }
+    MiddlewareEvent event = new MiddlewareEvent();
+    event.middlewareClass = middleware.getClass();
+    event.actionClass = action.getClass();
+    start(event);
+  }
+
+  @Override
+  public void middlewareEnd(
+      Store<?> store, Store.Middleware<?> middleware, Action<?> action, long durationNanos) {
+    end();
+  }
+
+  @Override
+  public void reducerStart(Store<?> store, Action<?> action) {
+    if (!REDUCER.isEnabled()) {
+      start(DISABLED);
+      return;
+    }
+    ReducerEvent event = new ReducerEvent();
+    event.actionClass = action.getClass();
+    start(event);
+  }
+
+  @Override
+  public void reducerEnd(Store<?> store, Action<?> action, long durationNanos) {
+    end();
+  }
+
+  @Override
+  public void listenerStart(Store<?> store, Object listener) {
+    if (!LISTENER.isEnabled()) {
+      start(DISABLED);
+      return;
+    }
+    ListenerEvent event = new ListenerEvent();
+    event.listenerClass = listener.getClass();
+    start(event);
+  }
+
+  @Override
+  public void listenerEnd(Store<?> store, Object listener, long durationNanos) {
+    end();
+  }
+
+  private void start(Object event) {
+    if (event != DISABLED) {
+      ((Event) event).begin();
+    }
+    startedEvents.get().push(event);
+  }
+
+  private void end() {
+    Object event = startedEvents.get().poll();
+    if (event != null && event != DISABLED) {
+      ((Event) event).commit();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A middle ware intercepting an action, including the next middle wares and the reducer. */
+@Name("com.groupon.grox.Middleware")
+@Label("Middleware")
+@Category("Grox")
+@Description(
+    "A middle ware intercepting an action, including the next middle wares and the reducer.")
+@StackTrace(false)
+final class MiddlewareEvent extends Event {
+  @Label("Middleware Class")
+  Class<?> middlewareClass;
+
+  @Label("Action Class")
+  Class<?> actionClass;
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jfr;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.ActionQueue;
+import com.groupon.grox.NotificationStrategy;
+import com.groupon.grox.Store;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class JfrStoreEventListenerTest {
+
+  @Test
+  public void testDispatch_whenRecording_shouldEmitEvents() throws Exception {
+    //GIVEN
+    Store<Integer> store =
+        new Store<>(
+            0,
+            new ActionQueue<>(),
+            NotificationStrategy.SEQUENTIAL,
+            new JfrStoreEventListener(),
+            chain -> chain.proceed(chain.action()));
+    AtomicInteger notifications = new AtomicInteger();
+    store.subscribe(state -> notifications.incrementAndGet());
+    Path file = Files.createTempFile("grox", ".jfr");
+
+    //WHEN
+    try (Recording recording = new Recording()) {
+      enableGroxEvents(recording);
+      recording.start();
+      store.dispatch(integer -> integer + 1);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    //THEN
+    List<String> eventNames = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      eventNames.add(event.getEventType().getName());
+    }
+    Files.delete(file);
+    assertThat(
+        eventNames,
+        hasItems(
+            "com.groupon.grox.Dispatch",
+            "com.groupon.grox.Middleware",
+            "com.groupon.grox.Reducer",
+            "com.groupon.grox.Listener"));
+    assertThat(notifications.get(), is(2));
+  }
+
+  @Test
+  public void testDispatch_whenNotRecording_shouldNotFail() {
+    //GIVEN
+    Store<Integer> store =
+        new Store<>(
+            0,
+            new ActionQueue<>(),
+            NotificationStrategy.SEQUENTIAL,
+            new JfrStoreEventListener(),
+            chain -> chain.proceed(chain.action()));
+
+    //WHEN
+    store.dispatch(integer -> integer + 1);
+
+    //THEN
+    assertThat(store.getState(), is(1));
+  }
+
+  private static void enableGroxEvents(Recording recording) {
+    recording.enable("com.groupon.grox.Dispatch").withThreshold(Duration.ZERO);
+    recording.enable("com.groupon.grox.Middleware").withThreshold(Duration.ZERO);
+    recording.enable("com.groupon.grox.Reducer").withThreshold(Duration.ZERO);
+    recording.enable("com.groupon.grox.Listener").withThreshold(Duration.ZERO);
+  }
+}
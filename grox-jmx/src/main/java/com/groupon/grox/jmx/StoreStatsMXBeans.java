@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jmx;
+
+import com.groupon.grox.StoreStats;
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Registers the statistics of stores as JMX MBeans, so that they can be monitored by the usual
+ * tools. </br> Usage:
+ *
+ * <pre>{@code
+ * ObjectName name = StoreStatsMXBeans.register(stats, "cart");
+ * ...
+ * StoreStatsMXBeans.unregister(name);
+ * }</pre>
+ */
+public final class StoreStatsMXBeans {
+
+  /** The domain of the names of the MBeans registered by {@link #register(StoreStats, String)}. */
+  public static final String DOMAIN = "com.groupon.grox";
+
+  private StoreStatsMXBeans() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Registers the statistics of a store in the platform MBean server, under the name {@code
+   * com.groupon.grox:type=Store,name=<storeName>}.
+   *
+   * @param stats the statistics of a store.
+   * @param storeName the name of the store, unique among the registered stores.
+   * @return the name of the MBean.
+   */
+  public static ObjectName register(StoreStats stats, String storeName) {
+    if (storeName == null) {
+      throw new IllegalArgumentException("Store name is null");
+    }
+    ObjectName objectName;
+    try {
+      objectName = new ObjectName(DOMAIN + ":type=Store,name=" + ObjectName.quote(storeName));
+    } catch (MalformedObjectNameException e) {
+      throw new IllegalArgumentException("Invalid store name: " + storeName, e);
+    }
+    return register(ManagementFactory.getPlatformMBeanServer(), stats, objectName);
+  }
+
+  /**
+   * Registers the statistics of a store in an MBean server, under a given name.
+   *
+   * @param server the MBean server.
+   * @param stats the statistics of a store.
+   * @param objectName the name of the MBean.
+   * @return the name of the MBean.
+   */
+  public static ObjectName register(MBeanServer server, StoreStats stats, ObjectName objectName) {
+    if (server == null) {
+      throw new IllegalArgumentException("Server is null");
+    }
+    if (stats == null) {
+      throw new IllegalArgumentException("Stats are null");
+    }
+    if (objectName == null) {
+      throw new IllegalArgumentException("Object name is null");
+    }
+    try {
+      return server.registerMBean(new StoreStatsMXBeanImpl(stats), objectName).getObjectName();
+    } catch (JMException e) {
+      throw new IllegalStateException("Failed to register " + objectName, e);
+    }
+  }
+
+  /**
+   * Unregisters the statistics of a store from the platform MBean server. Does nothing if they are
+   * not registered.
+   *
+   * @param objectName the name of the MBean.
+   */
+  public static void unregister(ObjectName objectName) {
+    unregister(ManagementFactory.getPlatformMBeanServer(), objectName);
+  }
+
+  /**
+   * Unregisters the statistics of a store from an MBean server. Does nothing if they are not
+   * registered.
+   *
+   * @param server the MBean server.
+   * @param objectName the name of the MBean.
+   */
+  public static void unregister(MBeanServer server, ObjectName objectName) {
+    try {
+      server.unregisterMBean(objectName);
+    } catch (InstanceNotFoundException e) {
+      // already unregistered.
+    } catch (JMException e) {
+      throw new IllegalStateException("Failed to unregister " + objectName, e);
+    }
+  }
+
+  /** Internal MBean that exposes the statistics of a store. */
+  private static final class StoreStatsMXBeanImpl implements StoreStatsMXBean {
+    private final StoreStats stats;
+
+    StoreStatsMXBeanImpl(StoreStats stats) {
+      this.stats = stats;
+    }
+
+    @Override
+    public long getDispatchCount() {
+      return stats.getDispatchCount();
+    }
+
+    @Override
+    public double getDispatchRate() {
+      return stats.getDispatchRate();
+    }
+
+    @Override
+    public long getReentrantDispatchCount() {
+      return stats.getReentrantDispatchCount();
+    }
+
+    @Override
+    public int getQueueDepth() {
+      return stats.getQueueDepth();
+    }
+
+    @Override
+    public int getPeakQueueDepth() {
+      return stats.getPeakQueueDepth();
+    }
+
+    @Override
+    public int getListenerCount() {
+      return stats.getListenerCount();
+    }
+
+    @Override
+    public long getNotificationCount() {
+      return stats.getNotificationCount();
+    }
+
+    @Override
+    public long getReducerTimeNanos() {
+      return stats.getReducerTimeNanos();
+    }
+
+    @Override
+    public long getListenerTimeNanos() {
+      return stats.getListenerTimeNanos();
+    }
+  }
+}
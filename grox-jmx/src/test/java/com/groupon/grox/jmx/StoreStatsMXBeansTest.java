@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.jmx;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.ActionQueue;
+import com.groupon.grox.NotificationStrategy;
+import com.groupon.grox.Store;
+import com.groupon.grox.StoreStats;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+
+public class StoreStatsMXBeansTest {
+
+  @Test
+  public void testRegister_shouldExposeStatsAsAttributes() throws Exception {
+    //GIVEN
+    StoreStats stats = new StoreStats();
+    Store<Integer> store =
+        new Store<>(0, new ActionQueue<>(), NotificationStrategy.SEQUENTIAL, stats);
+    store.subscribe(state -> {});
+    store.dispatch(integer -> integer + 1);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    //WHEN
+    ObjectName objectName = StoreStatsMXBeans.register(stats, "test");
+
+    //THEN
+    try {
+      assertThat(objectName.toString(), is("com.groupon.grox:type=Store,name=\"test\""));
+      assertThat(server.getAttribute(objectName, "DispatchCount"), is((Object) 1L));
+      assertThat(server.getAttribute(objectName, "ListenerCount"), is((Object) 1));
+    } finally {
+      StoreStatsMXBeans.unregister(objectName);
+    }
+    assertThat(server.isRegistered(objectName), is(false));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRegister_whenNameIsTaken_shouldFail() {
+    //GIVEN
+    ObjectName objectName = StoreStatsMXBeans.register(new StoreStats(), "taken");
+
+    //WHEN
+    try {
+      StoreStatsMXBeans.register(new StoreStats(), "taken");
+    } finally {
+      StoreStatsMXBeans.unregister(objectName);
+    }
+
+    //THEN
+  }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.StateDiffer;
+import com.groupon.grox.Store;
+import com.groupon.grox.Store.StateChangeListener;
+import com.groupon.grox.codec.Codec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An embeddable non blocking server that lets other processes dispatch actions to a store, and
+ * follow its state. </br> Clients send length prefixed frames, see {@link GatewayClient}:
+ *
+ * <ul>
+ *   <li>actions, that are decoded and dispatched to the store in the order they are received.
+ *       Clients don't wait for an answer, so they can pipeline their actions.
+ *   <li>subscriptions, after which the client is sent the current state, and then an update for
+ *       each state change: the new state, or the diff with the previous one if the gateway has a
+ *       differ.
+ * </ul>
+ *
+ * The frames sent to a client are coalesced and written in batches. </br> Each client has a
+ * backpressure limit: when more than {@code maxPendingBytes} are waiting to be sent to a client,
+ * its updates are conflated, it will be sent the latest state only, and the gateway stops reading
+ * its actions until it catches up. </br> The IO thread decodes the actions, and a dispatching
+ * thread dispatches them to the store, so that slow actions and listeners don't stall the
+ * connections. When {@link #MAX_QUEUED_ACTIONS} are waiting to be dispatched, the IO thread waits.
+ * </br> A client that sends a frame the gateway fails to handle, typically an action that can't be
+ * decoded, is disconnected. The failures, including the ones of the dispatched actions, are
+ * reported to the uncaught exception handler of the thread they happened on.
+ *
+ * @param <STATE> the class of the state.
+ */
+public final class ActionGateway<STATE> implements Closeable {
+
+  public static final int DEFAULT_MAX_PENDING_BYTES = 1024 * 1024;
+  public static final long DEFAULT_FLUSH_DELAY_MILLIS = 2;
+  public static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+  public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+  public static final int MAX_QUEUED_ACTIONS = 1024;
+
+  private final Store<STATE> store;
+  private final Codec<Action<STATE>> actionCodec;
+  private final Codec<STATE> stateCodec;
+  private final StateDiffer<STATE, Object> differ;
+  private final Codec<Object> diffCodec;
+  private final long maxPendingBytes;
+  private final long flushDelayNanos;
+  private final int maxBatchBytes;
+  private final StateChangeListener<STATE> stateChangeListener = new GatewayStateChangeListener();
+
+  /** The latest state of the store, guarded by this. */
+  private STATE latestState;
+  /** The number of the latest state, guarded by this. */
+  private long version;
+  /** The connected clients, guarded by this. */
+  private final List<ClientConnection> clients = new ArrayList<>();
+
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private Thread ioThread;
+  /** Dispatches the decoded actions to the store, in the order they were received. */
+  private ThreadPoolExecutor dispatcher;
+
+  private volatile boolean closed;
+
+  /**
+   * Creates a gateway that sends full states to its subscribers.
+   *
+   * @param store the store to dispatch the actions to.
+   * @param actionCodec decodes the actions.
+   * @param stateCodec encodes the states.
+   */
+  public ActionGateway(
+      Store<STATE> store, Codec<Action<STATE>> actionCodec, Codec<STATE> stateCodec) {
+    this(
+        store,
+        actionCodec,
+        stateCodec,
+        null,
+        null,
+        DEFAULT_MAX_PENDING_BYTES,
+        DEFAULT_FLUSH_DELAY_MILLIS,
+        DEFAULT_MAX_BATCH_BYTES);
+  }
+
+  /**
+   * Creates a gateway that sends diffs to its subscribers, after the first state.
+   *
+   * @param store the store to dispatch the actions to.
+   * @param actionCodec decodes the actions.
+   * @param stateCodec encodes the states.
+   * @param differ computes the diffs between states.
+   * @param diffCodec encodes the diffs.
+   * @param <DIFF> the class of the diffs.
+   */
+  public <DIFF> ActionGateway(
+      Store<STATE> store,
+      Codec<Action<STATE>> actionCodec,
+      Codec<STATE> stateCodec,
+      StateDiffer<STATE, DIFF> differ,
+      Codec<DIFF> diffCodec) {
+    this(
+        store,
+        actionCodec,
+        stateCodec,
+        differ,
+        diffCodec,
+        DEFAULT_MAX_PENDING_BYTES,
+        DEFAULT_FLUSH_DELAY_MILLIS,
+        DEFAULT_MAX_BATCH_BYTES);
+  }
+
+  /**
+   * Creates a gateway.
+   *
+   * @param store the store to dispatch the actions to.
+   * @param actionCodec decodes the actions.
+   * @param stateCodec encodes the states.
+   * @param differ computes the diffs between states, or null to send full states.
+   * @param diffCodec encodes the diffs, or null to send full states.
+   * @param maxPendingBytes the backpressure limit of each client.
+   * @param flushDelayMillis the maximum time a frame waits for other frames to be sent with.
+   * @param maxBatchBytes the number of bytes after which frames are sent without waiting.
+   * @param <DIFF> the class of the diffs.
+   */
+  @SuppressWarnings("unchecked")
+  public <DIFF> ActionGateway(
+      Store<STATE> store,
+      Codec<Action<STATE>> actionCodec,
+      Codec<STATE> stateCodec,
+      StateDiffer<STATE, DIFF> differ,
+      Codec<DIFF> diffCodec,
+      long maxPendingBytes,
+      long flushDelayMillis,
+      int maxBatchBytes) {
+    if (store == null) {
+      throw new IllegalArgumentException("Store is null");
+    }
+    if (actionCodec == null || stateCodec == null || (differ == null) != (diffCodec == null)) {
+      throw new IllegalArgumentException("Codec is null");
+    }
+    if (maxPendingBytes < 0 || flushDelayMillis < 0 || maxBatchBytes < 1) {
+      throw new IllegalArgumentException("Invalid settings");
+    }
+    this.store = store;
+    this.actionCodec = actionCodec;
+    this.stateCodec = stateCodec;
+    this.differ = (StateDiffer<STATE, Object>) differ;
+    this.diffCodec = (Codec<Object>) diffCodec;
+    this.maxPendingBytes = maxPendingBytes;
+    this.flushDelayNanos = TimeUnit.MILLISECONDS.toNanos(flushDelayMillis);
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  /**
+   * Starts accepting clients.
+   *
+   * @param address the address to listen to.
+   * @throws IOException if the address can't be bound.
+   */
+  public void start(InetSocketAddress address) throws IOException {
+    synchronized (this) {
+      if (ioThread != null) {
+        throw new IllegalStateException("The gateway is already started");
+      }
+      selector = Selector.open();
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.configureBlocking(false);
+      serverChannel.bind(address);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+      dispatcher = newDispatcher();
+      ioThread = new Thread(new IoLoop(), "grox-action-gateway");
+      ioThread.setDaemon(true);
+      ioThread.start();
+    }
+    store.subscribe(stateChangeListener);
+  }
+
+  /** @return the port the gateway listens to. */
+  public int getLocalPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /** @return the number of connected clients. */
+  public synchronized int getClientCount() {
+    return clients.size();
+  }
+
+  /** Disconnects the clients and stops listening. */
+  @Override
+  public void close() throws IOException {
+    store.unsubscribe(stateChangeListener);
+    closed = true;
+    Thread thread;
+    ThreadPoolExecutor actionDispatcher;
+    synchronized (this) {
+      thread = ioThread;
+      actionDispatcher = dispatcher;
+      if (selector != null) {
+        selector.wakeup();
+      }
+    }
+    if (thread != null) {
+      try {
+        thread.join();
+        // the actions received before closing are still dispatched.
+        actionDispatcher.shutdown();
+        actionDispatcher.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        actionDispatcher.shutdown();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * @return a single thread executor with a bounded queue, whose producer waits for the queue to
+   *     have some room.
+   */
+  private static ThreadPoolExecutor newDispatcher() {
+    return new ThreadPoolExecutor(
+        1,
+        1,
+        0,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(MAX_QUEUED_ACTIONS),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "grox-action-gateway-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+          }
+        },
+        new RejectedExecutionHandler() {
+          @Override
+          public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+              // the gateway is closed, the action is dropped.
+              return;
+            }
+            try {
+              executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        });
+  }
+
+  /** Queues an update for the subscribers that are not over their backpressure limit. */
+  private synchronized void onStateChanged(STATE newState) {
+    STATE previousState = latestState;
+    latestState = newState;
+    version++;
+    long now = System.nanoTime();
+    ByteBuffer sharedFrame = null;
+    boolean wakeup = false;
+    for (ClientConnection client : clients) {
+      if (!client.subscribed) {
+        continue;
+      }
+      if (client.writer.getPendingBytes() > maxPendingBytes) {
+        client.stale = true;
+        continue;
+      }
+      ByteBuffer frame;
+      // the clients that are up to date share the same update.
+      if (client.lastSentState == previousState) {
+        if (sharedFrame == null) {
+          sharedFrame = updateFrame(previousState, newState);
+        }
+        frame = sharedFrame.duplicate();
+      } else {
+        frame = updateFrame(client.lastSentState, newState);
+      }
+      wakeup |= queue(client, frame, now);
+      client.lastSentState = newState;
+    }
+    if (wakeup) {
+      selector.wakeup();
+    }
+  }
+
+  /** Subscribes a client, which is sent the latest state. */
+  private synchronized void onSubscribe(ClientConnection client) {
+    client.subscribed = true;
+    client.stale = false;
+    // before the first state of the store, the client will get it as a first update.
+    if (version > 0) {
+      queue(client, updateFrame(null, latestState), System.nanoTime());
+      client.lastSentState = latestState;
+    }
+  }
+
+  /**
+   * Sends the latest state to a client that caught up, if its updates were conflated. Must be
+   * called while holding the monitor of this.
+   */
+  private void onCaughtUp(ClientConnection client) {
+    if (client.stale && client.subscribed) {
+      client.stale = false;
+      queue(client, updateFrame(client.lastSentState, latestState), System.nanoTime());
+      client.lastSentState = latestState;
+    }
+  }
+
+  /**
+   * Queues a frame for a client. Must be called while holding the monitor of this.
+   *
+   * @return true if the IO thread must wake up, to write the frame or to schedule its write.
+   */
+  private boolean queue(ClientConnection client, ByteBuffer frame, long now) {
+    boolean wasIdle = client.writer.getPendingBytes() == 0;
+    return client.writer.add(frame, now) || wasIdle;
+  }
+
+  /** Must be called while holding the monitor of this. */
+  private ByteBuffer updateFrame(STATE oldState, STATE newState) {
+    try {
+      if (differ == null || oldState == null) {
+        return Frame.encode(Frame.STATE, version, stateCodec.encode(newState));
+      }
+      return Frame.encode(Frame.DIFF, version, diffCodec.encode(differ.diff(oldState, newState)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to encode the state", e);
+    }
+  }
+
+  /** Internal listener that sends the state changes to the subscribers. */
+  private final class GatewayStateChangeListener implements StateChangeListener<STATE> {
+    @Override
+    public void onStateChanged(STATE newState) {
+      ActionGateway.this.onStateChanged(newState);
+    }
+  }
+
+  /** Internal task that dispatches an action received from a client. */
+  private final class DispatchTask implements Runnable {
+    private final Action<STATE> action;
+
+    DispatchTask(Action<STATE> action) {
+      this.action = action;
+    }
+
+    @Override
+    public void run() {
+      try {
+        store.dispatch(action);
+      } catch (RuntimeException e) {
+        // the action or a listener failed, the next actions must still be dispatched.
+        ReplicationLeader.reportError(e);
+      }
+    }
+  }
+
+  /** Internal state of the connection to a client. */
+  private final class ClientConnection {
+    final SocketChannel channel;
+    final FrameReader reader = new FrameReader(MAX_FRAME_BYTES);
+    /** Guarded by the monitor of the gateway, as the fields below. */
+    final FrameWriter writer;
+    /** Whether the client subscribed to the state updates. */
+    boolean subscribed;
+    /** Whether updates were skipped because the client was over its backpressure limit. */
+    boolean stale;
+    /** The state the latest update sent to the client leads to. */
+    STATE lastSentState;
+
+    ClientConnection(SocketChannel channel, long now) {
+      this.channel = channel;
+      this.writer = new FrameWriter(flushDelayNanos, maxBatchBytes, now);
+    }
+  }
+
+  /** The loop of the thread accepting the clients, reading from and writing to them. */
+  private final class IoLoop implements Runnable {
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          selector.select(selectTimeoutMillis());
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+            } else if (key.isReadable()) {
+              read(key);
+            }
+          }
+          flush();
+        }
+      } catch (IOException e) {
+        // the selector failed, the gateway can't work anymore.
+      } finally {
+        shutdown();
+      }
+    }
+
+    private long selectTimeoutMillis() {
+      long now = System.nanoTime();
+      long timeoutNanos = -1;
+      synchronized (ActionGateway.this) {
+        for (ClientConnection client : clients) {
+          long nanosUntilFlush = client.writer.nanosUntilFlush(now);
+          if (nanosUntilFlush >= 0 && (timeoutNanos < 0 || nanosUntilFlush < timeoutNanos)) {
+            timeoutNanos = nanosUntilFlush;
+          }
+        }
+      }
+      if (timeoutNanos < 0) {
+        return 0;
+      }
+      // select(0) blocks until a wake up.
+      return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+    }
+
+    private void accept() throws IOException {
+      SocketChannel channel = serverChannel.accept();
+      if (channel == null) {
+        return;
+      }
+      channel.configureBlocking(false);
+      // frames are coalesced by the writer.
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      ClientConnection client = new ClientConnection(channel, System.nanoTime());
+      channel.register(selector, SelectionKey.OP_READ, client);
+      synchronized (ActionGateway.this) {
+        clients.add(client);
+      }
+    }
+
+    private void read(SelectionKey key) {
+      // the attachment of a key is the connection registered by accept().
+      @SuppressWarnings("unchecked")
+      ClientConnection client = (ClientConnection) key.attachment();
+      try {
+        if (client.reader.read(client.channel) < 0) {
+          disconnect(client);
+          return;
+        }
+        for (Frame frame = client.reader.next(); frame != null; frame = client.reader.next()) {
+          if (frame.type == Frame.ACTION) {
+            dispatcher.execute(new DispatchTask(actionCodec.decode(frame.payload)));
+          } else if (frame.type == Frame.SUBSCRIBE) {
+            onSubscribe(client);
+          } else if (frame.type == Frame.UNSUBSCRIBE) {
+            synchronized (ActionGateway.this) {
+              client.subscribed = false;
+            }
+          }
+        }
+      } catch (IOException e) {
+        disconnect(client);
+      } catch (RuntimeException e) {
+        // the frame of the client can't be handled, the other clients must go on.
+        ReplicationLeader.reportError(e);
+        disconnect(client);
+      }
+    }
+
+    private void flush() {
+      long now = System.nanoTime();
+      List<ClientConnection> failedClients = null;
+      synchronized (ActionGateway.this) {
+        for (ClientConnection client : clients) {
+          SelectionKey key = client.channel.keyFor(selector);
+          if (key == null || !key.isValid()) {
+            continue;
+          }
+          boolean socketFull =
+              (key.interestOps() & SelectionKey.OP_WRITE) != 0 && !key.isWritable();
+          try {
+            if (!socketFull && client.writer.isFlushDue(now)) {
+              socketFull = !client.writer.flush(client.channel, now);
+            }
+            if (client.writer.getPendingBytes() <= maxPendingBytes) {
+              onCaughtUp(client);
+            }
+            // a client over its limit is not read until it catches up.
+            int interestOps =
+                client.writer.getPendingBytes() > maxPendingBytes ? 0 : SelectionKey.OP_READ;
+            if (socketFull) {
+              interestOps |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(interestOps);
+          } catch (IOException e) {
+            if (failedClients == null) {
+              failedClients = new ArrayList<>();
+            }
+            failedClients.add(client);
+          }
+        }
+      }
+      if (failedClients != null) {
+        for (ClientConnection client : failedClients) {
+          disconnect(client);
+        }
+      }
+    }
+
+    private void disconnect(ClientConnection client) {
+      synchronized (ActionGateway.this) {
+        clients.remove(client);
+      }
+      ReplicationLeader.closeQuietly(client.channel);
+    }
+
+    private void shutdown() {
+      List<ClientConnection> disconnectedClients;
+      synchronized (ActionGateway.this) {
+        disconnectedClients = new ArrayList<>(clients);
+        clients.clear();
+      }
+      for (ClientConnection client : disconnectedClients) {
+        ReplicationLeader.closeQuietly(client.channel);
+      }
+      ReplicationLeader.closeQuietly(serverChannel);
+      ReplicationLeader.closeQuietly(selector);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Internal message exchanged by the peers of this package. On the wire, a frame is its length, as
+ * an int, followed by its type, its sequence number and its payload.
+ */
+final class Frame {
+
+  /** A state, the payload of the frame. */
+  static final byte STATE = 1;
+  /** An action, the payload of the frame. */
+  static final byte ACTION = 2;
+  /** A follower asking for the actions after a sequence number. */
+  static final byte HELLO = 3;
+  /** A client asking to be sent the state updates of a store. */
+  static final byte SUBSCRIBE = 4;
+  /** A client asking to no longer be sent the state updates of a store. */
+  static final byte UNSUBSCRIBE = 5;
+  /** A diff between two states, the payload of the frame. */
+  static final byte DIFF = 6;
+
+  /** The size of the type and of the sequence number. */
+  static final int HEADER_BYTES = 1 + 8;
+
+  final byte type;
+  final long sequence;
+  final byte[] payload;
+
+  Frame(byte type, long sequence, byte[] payload) {
+    this.type = type;
+    this.sequence = sequence;
+    this.payload = payload;
+  }
+
+  /** @return a buffer, ready to be written, containing a frame. */
+  static ByteBuffer encode(byte type, long sequence, byte[] payload) {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + HEADER_BYTES + payload.length);
+    buffer.putInt(HEADER_BYTES + payload.length).put(type).putLong(sequence).put(payload);
+    buffer.flip();
+    return buffer;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/** Internal reader that splits the bytes read from a channel into frames. */
+final class FrameReader {
+
+  private final int maxFrameBytes;
+  /** The bytes read and not consumed yet, in write mode. */
+  private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+  FrameReader(int maxFrameBytes) {
+    this.maxFrameBytes = maxFrameBytes;
+  }
+
+  /**
+   * Reads the available bytes of a channel.
+   *
+   * @return the number of bytes read, or -1 at the end of the stream.
+   */
+  int read(ReadableByteChannel channel) throws IOException {
+    if (!buffer.hasRemaining()) {
+      grow();
+    }
+    return channel.read(buffer);
+  }
+
+  /** @return the next complete frame read, or null if there is none. */
+  Frame next() throws IOException {
+    buffer.flip();
+    try {
+      if (buffer.remaining() < 4) {
+        return null;
+      }
+      int length = buffer.getInt(buffer.position());
+      if (length < Frame.HEADER_BYTES || length > maxFrameBytes) {
+        throw new IOException("Invalid frame length: " + length);
+      }
+      if (buffer.remaining() < 4 + length) {
+        return null;
+      }
+      buffer.getInt();
+      byte type = buffer.get();
+      long sequence = buffer.getLong();
+      byte[] payload = new byte[length - Frame.HEADER_BYTES];
+      buffer.get(payload);
+      return new Frame(type, sequence, payload);
+    } finally {
+      buffer.compact();
+    }
+  }
+
+  /** Makes room for an incomplete frame, which can't be larger than the maximum frame size. */
+  private void grow() throws IOException {
+    int capacity = (int) Math.min(buffer.capacity() * 2L, 4L + maxFrameBytes);
+    if (capacity <= buffer.capacity()) {
+      throw new IOException("Frame too large");
+    }
+    ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+    buffer.flip();
+    newBuffer.put(buffer);
+    buffer = newBuffer;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Internal queue of the frames to write to a channel. Frames are coalesced, in the spirit of
+ * Nagle's algorithm: a frame queued while the channel is idle is written right away, but the frames
+ * queued shortly after a write wait for more frames, until a batch is full or a delay elapsed.
+ * Batches are written at once, with a gathering write. </br> A writer is not thread safe.
+ */
+final class FrameWriter {
+
+  /** The maximum number of buffers of a gathering write. */
+  private static final int MAX_WRITE_BUFFERS = 64;
+
+  private final long flushDelayNanos;
+  private final int maxBatchBytes;
+  private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+  private final ByteBuffer[] writeBuffers = new ByteBuffer[MAX_WRITE_BUFFERS];
+  private long pendingBytes;
+  private long firstPendingNanos;
+  private long lastFlushNanos;
+
+  FrameWriter(long flushDelayNanos, int maxBatchBytes, long now) {
+    this.flushDelayNanos = flushDelayNanos;
+    this.maxBatchBytes = maxBatchBytes;
+    this.lastFlushNanos = now - flushDelayNanos;
+  }
+
+  /**
+   * Queues a frame.
+   *
+   * @param frame a buffer, ready to be written, that is not shared with other writers.
+   * @param now the current time.
+   * @return true if the frames should be written right away.
+   */
+  boolean add(ByteBuffer frame, long now) {
+    if (pendingBytes == 0) {
+      firstPendingNanos = now;
+    }
+    buffers.addLast(frame);
+    pendingBytes += frame.remaining();
+    return isFlushDue(now);
+  }
+
+  long getPendingBytes() {
+    return pendingBytes;
+  }
+
+  /**
+   * Drops the queued frames, except the frame being written, if any, which must be completed to
+   * keep the stream consistent.
+   */
+  void discardPending() {
+    ByteBuffer head = buffers.peekFirst();
+    buffers.clear();
+    pendingBytes = 0;
+    if (head != null && head.position() > 0) {
+      buffers.addLast(head);
+      pendingBytes = head.remaining();
+    }
+  }
+
+  /** @return true if the queued frames should be written. */
+  boolean isFlushDue(long now) {
+    return pendingBytes > 0
+        && (pendingBytes >= maxBatchBytes
+            || now - firstPendingNanos >= flushDelayNanos
+            || firstPendingNanos - lastFlushNanos >= flushDelayNanos);
+  }
+
+  /** @return the time until the queued frames should be written, or -1 if there are none. */
+  long nanosUntilFlush(long now) {
+    if (pendingBytes == 0) {
+      return -1;
+    }
+    return isFlushDue(now) ? 0 : Math.max(0, firstPendingNanos + flushDelayNanos - now);
+  }
+
+  /**
+   * Writes as many queued frames as the channel accepts.
+   *
+   * @return true if all the queued frames were written.
+   */
+  boolean flush(GatheringByteChannel channel, long now) throws IOException {
+    while (!buffers.isEmpty()) {
+      int count = 0;
+      for (ByteBuffer buffer : buffers) {
+        if (count == writeBuffers.length) {
+          break;
+        }
+        writeBuffers[count++] = buffer;
+      }
+      long written = channel.write(writeBuffers, 0, count);
+      Arrays.fill(writeBuffers, 0, count, null);
+      pendingBytes -= written;
+      while (!buffers.isEmpty() && !buffers.peekFirst().hasRemaining()) {
+        buffers.pollFirst();
+      }
+      lastFlushNanos = now;
+      if (written == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
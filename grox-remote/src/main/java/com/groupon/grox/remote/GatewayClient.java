@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.codec.Codec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client of an {@link ActionGateway}. It dispatches actions to the store of the gateway without
+ * waiting for them to be executed, and can follow the state of the store. </br> A client is thread
+ * safe.
+ *
+ * @param <STATE> the class of the state.
+ * @param <DIFF> the class of the diffs sent by the gateway, if it has a differ.
+ */
+public final class GatewayClient<STATE, DIFF> implements Closeable {
+
+  /**
+   * Receives the updates of the state of the store of a gateway, on the reading thread of the
+   * client.
+   *
+   * @param <STATE> the class of the state.
+   * @param <DIFF> the class of the diffs.
+   */
+  public interface UpdateListener<STATE, DIFF> {
+    /** Called with the first state, and the next ones if the gateway doesn't send diffs. */
+    void onState(STATE state);
+
+    /** Called with the diff between the previous state and the new one. */
+    void onDiff(DIFF diff);
+  }
+
+  private final SocketChannel channel;
+  private final Codec<Action<STATE>> actionCodec;
+  private final Codec<STATE> stateCodec;
+  private final Codec<DIFF> diffCodec;
+  private Thread readingThread;
+
+  /**
+   * Connects to a gateway.
+   *
+   * @param address the address of the gateway.
+   * @param actionCodec encodes the actions.
+   * @param stateCodec decodes the states.
+   * @param diffCodec decodes the diffs, or null if the gateway sends full states.
+   * @throws IOException if the gateway can't be reached.
+   */
+  public GatewayClient(
+      InetSocketAddress address,
+      Codec<Action<STATE>> actionCodec,
+      Codec<STATE> stateCodec,
+      Codec<DIFF> diffCodec)
+      throws IOException {
+    if (actionCodec == null || stateCodec == null) {
+      throw new IllegalArgumentException("Codec is null");
+    }
+    this.actionCodec = actionCodec;
+    this.stateCodec = stateCodec;
+    this.diffCodec = diffCodec;
+    this.channel = SocketChannel.open(address);
+  }
+
+  /**
+   * Sends an action to the gateway, without waiting for it to be executed.
+   *
+   * @param action the action to dispatch to the store of the gateway.
+   * @throws IOException if the action can't be encoded or sent.
+   */
+  public void dispatch(Action<STATE> action) throws IOException {
+    write(Frame.encode(Frame.ACTION, 0, actionCodec.encode(action)));
+  }
+
+  /**
+   * Subscribes to the state of the store of the gateway. The listener is first sent the current
+   * state, and then the updates of the state. Updates may be conflated when the client doesn't keep
+   * up with the gateway.
+   *
+   * @param listener receives the updates.
+   * @throws IOException if the subscription can't be sent.
+   */
+  public synchronized void subscribe(UpdateListener<STATE, DIFF> listener) throws IOException {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener is null");
+    }
+    if (readingThread != null) {
+      throw new IllegalStateException("The client is already subscribed");
+    }
+    readingThread = new Thread(new ReadLoop(listener), "grox-gateway-client");
+    readingThread.setDaemon(true);
+    readingThread.start();
+    write(Frame.encode(Frame.SUBSCRIBE, 0, new byte[0]));
+  }
+
+  /** Disconnects from the gateway. */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+    Thread thread;
+    synchronized (this) {
+      thread = readingThread;
+    }
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void write(ByteBuffer frame) throws IOException {
+    synchronized (channel) {
+      while (frame.hasRemaining()) {
+        channel.write(frame);
+      }
+    }
+  }
+
+  /** The loop of the thread reading the updates of the gateway. */
+  private final class ReadLoop implements Runnable {
+    private final UpdateListener<STATE, DIFF> listener;
+
+    ReadLoop(UpdateListener<STATE, DIFF> listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void run() {
+      FrameReader reader = new FrameReader(ActionGateway.MAX_FRAME_BYTES);
+      try {
+        while (reader.read(channel) >= 0) {
+          for (Frame frame = reader.next(); frame != null; frame = reader.next()) {
+            if (frame.type == Frame.STATE) {
+              listener.onState(stateCodec.decode(frame.payload));
+            } else if (frame.type == Frame.DIFF && diffCodec != null) {
+              listener.onDiff(diffCodec.decode(frame.payload));
+            }
+          }
+        }
+      } catch (IOException e) {
+        // the connection is lost.
+      } finally {
+        ReplicationLeader.closeQuietly(channel);
+      }
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.codec.Codec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Keeps a store in sync with the store of a {@link ReplicationLeader}, in another process. The
+ * follower applies the actions of the leader, in order, to its store, which can then serve reads
+ * locally. </br> When the follower detects a gap in the sequence of the actions, it asks the leader
+ * for the missing actions, or for a snapshot of the state, which replaces the state of its store.
+ * The store of a follower should only be changed by the follower. </br> When a frame of the leader
+ * fails to be decoded or applied, the failure is reported to the uncaught exception handler of the
+ * reading thread, and the follower asks for a snapshot. If the snapshot fails as well, the follower
+ * disconnects.
+ *
+ * @param <STATE> the class of the state.
+ */
+public final class ReplicationFollower<STATE> implements Closeable {
+
+  private final Store<STATE> store;
+  private final Codec<STATE> stateCodec;
+  private final Codec<Action<STATE>> actionCodec;
+
+  /** The sequence number of the latest action applied, only written by the reading thread. */
+  private volatile long sequence = -1;
+  /** Whether the follower asked to resync, only accessed by the reading thread. */
+  private boolean resyncing;
+
+  private SocketChannel channel;
+  private Thread readingThread;
+  private volatile boolean connected;
+
+  /**
+   * Creates a follower.
+   *
+   * @param store the store to keep in sync with the one of the leader.
+   * @param stateCodec decodes the snapshots of the state.
+   * @param actionCodec decodes the actions.
+   */
+  public ReplicationFollower(
+      Store<STATE> store, Codec<STATE> stateCodec, Codec<Action<STATE>> actionCodec) {
+    if (store == null) {
+      throw new IllegalArgumentException("Store is null");
+    }
+    if (stateCodec == null || actionCodec == null) {
+      throw new IllegalArgumentException("Codec is null");
+    }
+    this.store = store;
+    this.stateCodec = stateCodec;
+    this.actionCodec = actionCodec;
+  }
+
+  /**
+   * Connects to a leader, and starts following it.
+   *
+   * @param leaderAddress the address of the leader.
+   * @throws IOException if the leader can't be reached.
+   */
+  public synchronized void connect(InetSocketAddress leaderAddress) throws IOException {
+    if (readingThread != null) {
+      throw new IllegalStateException("The follower is already connected");
+    }
+    channel = SocketChannel.open(leaderAddress);
+    connected = true;
+    sendHello();
+    readingThread = new Thread(new ReadLoop(), "grox-replication-follower");
+    readingThread.setDaemon(true);
+    readingThread.start();
+  }
+
+  /** @return the sequence number of the latest action of the leader applied by this follower. */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /** @return true if the follower is connected to its leader. */
+  public boolean isConnected() {
+    return connected;
+  }
+
+  /** Disconnects from the leader. */
+  @Override
+  public void close() throws IOException {
+    Thread thread;
+    synchronized (this) {
+      thread = readingThread;
+      if (channel != null) {
+        channel.close();
+      }
+    }
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Asks the leader for the actions after the latest one applied. */
+  private void sendHello() throws IOException {
+    channel.write(Frame.encode(Frame.HELLO, sequence, new byte[0]));
+  }
+
+  /**
+   * Applies a frame of the leader, and asks for a snapshot if it fails.
+   *
+   * @return false if the frame was a snapshot that failed, from which the follower can't resync.
+   */
+  private boolean applyFrame(Frame frame) throws IOException {
+    try {
+      onFrame(frame);
+      return true;
+    } catch (RuntimeException e) {
+      ReplicationLeader.reportError(e);
+      if (frame.type == Frame.STATE) {
+        return false;
+      }
+      // the next actions are ignored until the snapshot, the leader sends one for sequence -1.
+      resyncing = true;
+      channel.write(Frame.encode(Frame.HELLO, -1, new byte[0]));
+      return true;
+    }
+  }
+
+  private void onFrame(Frame frame) throws IOException {
+    if (frame.type == Frame.STATE) {
+      store.dispatch(new ReplaceStateAction<>(stateCodec.decode(frame.payload)));
+      sequence = frame.sequence;
+      resyncing = false;
+    } else if (frame.type == Frame.ACTION) {
+      if (frame.sequence <= sequence) {
+        return;
+      }
+      if (frame.sequence == sequence + 1) {
+        store.dispatch(actionCodec.decode(frame.payload));
+        sequence = frame.sequence;
+        resyncing = false;
+      } else if (!resyncing) {
+        resyncing = true;
+        sendHello();
+      }
+    }
+  }
+
+  /** The loop of the thread reading the frames of the leader. */
+  private final class ReadLoop implements Runnable {
+    @Override
+    public void run() {
+      FrameReader reader = new FrameReader(ReplicationLeader.MAX_FRAME_BYTES);
+      try {
+        while (reader.read(channel) >= 0) {
+          for (Frame frame = reader.next(); frame != null; frame = reader.next()) {
+            if (!applyFrame(frame)) {
+              return;
+            }
+          }
+        }
+      } catch (IOException e) {
+        // the connection is lost.
+      } finally {
+        connected = false;
+        ReplicationLeader.closeQuietly(channel);
+      }
+    }
+  }
+
+  /** Internal action that replaces the state of the store by a snapshot. */
+  private static final class ReplaceStateAction<STATE> implements Action<STATE> {
+    private final STATE state;
+
+    ReplaceStateAction(STATE state) {
+      this.state = state;
+    }
+
+    @Override
+    public STATE newState(STATE oldState) {
+      return state;
+    }
+  }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.Store.Middleware;
+import com.groupon.grox.codec.Codec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicates a store to {@link ReplicationFollower}s, in other processes. The leader is a middle
+ * ware of the store: it numbers the actions of the store, and streams them to the followers, which
+ * apply them to their own store in the same order. </br> A follower that connects, or that falls
+ * behind, is sent the actions it missed if the leader still has them in its backlog, or a snapshot
+ * of the state otherwise. A follower falls behind when more than {@code maxPendingBytes} are
+ * waiting to be sent to it. </br> The frames sent to a follower are coalesced, see {@code
+ * flushDelayMillis} and {@code maxBatchBytes}. </br> Usage:
+ *
+ * <pre>{@code
+ * ReplicationLeader<State> leader = new ReplicationLeader<>(stateCodec, actionCodec);
+ * Store<State> store = new Store<>(initialState, leader.<State>middleware());
+ * leader.start(store, new InetSocketAddress(port));
+ * }</pre>
+ *
+ * Actions and states must be immutable, as they are encoded by the thread dispatching the actions.
+ * A follower whose snapshot can't be encoded is disconnected, and the failure is reported to the
+ * uncaught exception handler of the thread that encoded it.
+ *
+ * @param <STATE> the class of the state.
+ */
+public final class ReplicationLeader<STATE> implements Closeable {
+
+  public static final int DEFAULT_BACKLOG_SIZE = 1024;
+  public static final int DEFAULT_MAX_PENDING_BYTES = 1024 * 1024;
+  public static final long DEFAULT_FLUSH_DELAY_MILLIS = 2;
+  public static final int DEFAULT_MAX_BATCH_BYTES = 64 * 1024;
+  public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+  private final Codec<STATE> stateCodec;
+  private final Codec<Action<STATE>> actionCodec;
+  private final int backlogSize;
+  private final long maxPendingBytes;
+  private final long flushDelayNanos;
+  private final int maxBatchBytes;
+
+  /** The sequence number of the latest action, guarded by this. */
+  private long sequence;
+  /** The state after the latest action, guarded by this. */
+  private STATE latestState;
+  /** The encoded latest actions, guarded by this. The last one is {@link #sequence}. */
+  private final ArrayDeque<byte[]> backlog = new ArrayDeque<>();
+  /** The connected followers, guarded by this. */
+  private final List<FollowerConnection> followers = new ArrayList<>();
+
+  private Selector selector;
+  private ServerSocketChannel serverChannel;
+  private Thread ioThread;
+  private volatile boolean closed;
+
+  /**
+   * Creates a leader with the default settings.
+   *
+   * @param stateCodec encodes the snapshots of the state.
+   * @param actionCodec encodes the actions.
+   */
+  public ReplicationLeader(Codec<STATE> stateCodec, Codec<Action<STATE>> actionCodec) {
+    this(
+        stateCodec,
+        actionCodec,
+        DEFAULT_BACKLOG_SIZE,
+        DEFAULT_MAX_PENDING_BYTES,
+        DEFAULT_FLUSH_DELAY_MILLIS,
+        DEFAULT_MAX_BATCH_BYTES);
+  }
+
+  /**
+   * Creates a leader.
+   *
+   * @param stateCodec encodes the snapshots of the state.
+   * @param actionCodec encodes the actions.
+   * @param backlogSize the number of latest actions kept for the followers that fall behind.
+   * @param maxPendingBytes the number of bytes waiting to be sent to a follower after which it is
+   *     considered behind, and will be sent a snapshot.
+   * @param flushDelayMillis the maximum time a frame waits for other frames to be sent with.
+   * @param maxBatchBytes the number of bytes after which frames are sent without waiting.
+   */
+  public ReplicationLeader(
+      Codec<STATE> stateCodec,
+      Codec<Action<STATE>> actionCodec,
+      int backlogSize,
+      long maxPendingBytes,
+      long flushDelayMillis,
+      int maxBatchBytes) {
+    if (stateCodec == null || actionCodec == null) {
+      throw new IllegalArgumentException("Codec is null");
+    }
+    if (backlogSize < 0 || maxPendingBytes < 0 || flushDelayMillis < 0 || maxBatchBytes < 1) {
+      throw new IllegalArgumentException("Invalid settings");
+    }
+    this.stateCodec = stateCodec;
+    this.actionCodec = actionCodec;
+    this.backlogSize = backlogSize;
+    this.maxPendingBytes = maxPendingBytes;
+    this.flushDelayNanos = TimeUnit.MILLISECONDS.toNanos(flushDelayMillis);
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  /** @return the middle ware to add to the replicated store. */
+  public Middleware<STATE> middleware() {
+    return new ReplicationMiddleware();
+  }
+
+  /**
+   * Starts accepting followers.
+   *
+   * @param store the replicated store, which must use the middle ware of this leader.
+   * @param address the address to listen to.
+   * @throws IOException if the address can't be bound.
+   */
+  public void start(Store<STATE> store, InetSocketAddress address) throws IOException {
+    if (store == null) {
+      throw new IllegalArgumentException("Store is null");
+    }
+    // the store executes its actions, and thus calls the middle ware, while holding its monitor.
+    synchronized (store) {
+      synchronized (this) {
+        if (ioThread != null) {
+          throw new IllegalStateException("The leader is already started");
+        }
+        if (sequence == 0) {
+          latestState = store.getState();
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        ioThread = new Thread(new IoLoop(), "grox-replication-leader");
+        ioThread.setDaemon(true);
+        ioThread.start();
+      }
+    }
+  }
+
+  /** @return the port the leader listens to. */
+  public int getLocalPort() {
+    return serverChannel.socket().getLocalPort();
+  }
+
+  /** @return the sequence number of the latest action of the store. */
+  public synchronized long getSequence() {
+    return sequence;
+  }
+
+  /** @return the number of connected followers. */
+  public synchronized int getFollowerCount() {
+    return followers.size();
+  }
+
+  /** Disconnects the followers and stops listening. */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    Thread thread;
+    synchronized (this) {
+      thread = ioThread;
+      if (selector != null) {
+        selector.wakeup();
+      }
+    }
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Records an action, and queues it for the followers. */
+  private synchronized void onActionApplied(byte[] action, STATE newState) {
+    sequence++;
+    latestState = newState;
+    if (backlogSize > 0) {
+      if (backlog.size() == backlogSize) {
+        backlog.pollFirst();
+      }
+      backlog.addLast(action);
+    }
+    if (followers.isEmpty()) {
+      return;
+    }
+    long now = System.nanoTime();
+    ByteBuffer actionFrame = Frame.encode(Frame.ACTION, sequence, action);
+    ByteBuffer snapshotFrame = null;
+    RuntimeException snapshotFailure = null;
+    List<FollowerConnection> failedFollowers = null;
+    boolean wakeup = false;
+    for (FollowerConnection follower : followers) {
+      if (!follower.synced) {
+        continue;
+      }
+      if (follower.writer.getPendingBytes() > maxPendingBytes) {
+        follower.writer.discardPending();
+        if (snapshotFrame == null && snapshotFailure == null) {
+          try {
+            snapshotFrame = snapshotFrame();
+          } catch (RuntimeException e) {
+            snapshotFailure = e;
+          }
+        }
+        if (snapshotFrame == null) {
+          // the action is already applied, only the followers behind are affected.
+          if (failedFollowers == null) {
+            failedFollowers = new ArrayList<>();
+          }
+          failedFollowers.add(follower);
+          continue;
+        }
+        wakeup |= queue(follower, snapshotFrame.duplicate(), now);
+      } else {
+        wakeup |= queue(follower, actionFrame.duplicate(), now);
+      }
+    }
+    if (failedFollowers != null) {
+      followers.removeAll(failedFollowers);
+      for (FollowerConnection follower : failedFollowers) {
+        closeQuietly(follower.channel);
+      }
+      reportError(snapshotFailure);
+    }
+    if (wakeup) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Queues a frame for a follower. Must be called while holding the monitor of this.
+   *
+   * @return true if the IO thread must wake up, to write the frame or to schedule its write.
+   */
+  private boolean queue(FollowerConnection follower, ByteBuffer frame, long now) {
+    boolean wasIdle = follower.writer.getPendingBytes() == 0;
+    return follower.writer.add(frame, now) || wasIdle;
+  }
+
+  /** Sends a follower the actions after {@code lastSequence}, or a snapshot. */
+  private synchronized void onHello(FollowerConnection follower, long lastSequence) {
+    long now = System.nanoTime();
+    follower.writer.discardPending();
+    long firstBacklogSequence = sequence - backlog.size() + 1;
+    if (lastSequence >= 0 && lastSequence <= sequence && lastSequence + 1 >= firstBacklogSequence) {
+      long actionSequence = firstBacklogSequence;
+      for (byte[] action : backlog) {
+        if (actionSequence > lastSequence) {
+          follower.writer.add(Frame.encode(Frame.ACTION, actionSequence, action), now);
+        }
+        actionSequence++;
+      }
+    } else {
+      follower.writer.add(snapshotFrame(), now);
+    }
+    follower.synced = true;
+  }
+
+  /** Must be called while holding the monitor of this. */
+  private ByteBuffer snapshotFrame() {
+    try {
+      return Frame.encode(Frame.STATE, sequence, stateCodec.encode(latestState));
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to encode the state", e);
+    }
+  }
+
+  /** Internal middle ware that records the actions of the store. */
+  private final class ReplicationMiddleware implements Middleware<STATE> {
+    @Override
+    public void intercept(Chain<STATE> chain) {
+      Action<STATE> action = chain.action();
+      byte[] encodedAction;
+      try {
+        encodedAction = actionCodec.encode(action);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to encode the action " + action, e);
+      }
+      chain.proceed(action);
+      onActionApplied(encodedAction, chain.state());
+    }
+  }
+
+  /** Internal state of the connection to a follower. */
+  private static final class FollowerConnection {
+    final SocketChannel channel;
+    final FrameReader reader = new FrameReader(MAX_FRAME_BYTES);
+    /** Guarded by the monitor of the leader. */
+    final FrameWriter writer;
+    /** Whether the follower said hello, guarded by the monitor of the leader. */
+    boolean synced;
+
+    FollowerConnection(SocketChannel channel, FrameWriter writer) {
+      this.channel = channel;
+      this.writer = writer;
+    }
+  }
+
+  /** The loop of the thread accepting the followers, reading from and writing to them. */
+  private final class IoLoop implements Runnable {
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          selector.select(selectTimeoutMillis());
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+              continue;
+            }
+            if (key.isAcceptable()) {
+              accept();
+            } else if (key.isReadable()) {
+              read(key);
+            }
+          }
+          flush();
+        }
+      } catch (IOException e) {
+        // the selector failed, the leader can't work anymore.
+      } finally {
+        shutdown();
+      }
+    }
+
+    private long selectTimeoutMillis() {
+      long now = System.nanoTime();
+      long timeoutNanos = -1;
+      synchronized (ReplicationLeader.this) {
+        for (FollowerConnection follower : followers) {
+          long nanosUntilFlush = follower.writer.nanosUntilFlush(now);
+          if (nanosUntilFlush >= 0 && (timeoutNanos < 0 || nanosUntilFlush < timeoutNanos)) {
+            timeoutNanos = nanosUntilFlush;
+          }
+        }
+      }
+      if (timeoutNanos < 0) {
+        return 0;
+      }
+      // select(0) blocks until a wake up.
+      return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+    }
+
+    private void accept() throws IOException {
+      SocketChannel channel = serverChannel.accept();
+      if (channel == null) {
+        return;
+      }
+      channel.configureBlocking(false);
+      // frames are coalesced by the writer.
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      FollowerConnection follower =
+          new FollowerConnection(
+              channel, new FrameWriter(flushDelayNanos, maxBatchBytes, System.nanoTime()));
+      channel.register(selector, SelectionKey.OP_READ, follower);
+      synchronized (ReplicationLeader.this) {
+        followers.add(follower);
+      }
+    }
+
+    private void read(SelectionKey key) {
+      FollowerConnection follower = (FollowerConnection) key.attachment();
+      try {
+        if (follower.reader.read(follower.channel) < 0) {
+          disconnect(follower);
+          return;
+        }
+        for (Frame frame = follower.reader.next(); frame != null; frame = follower.reader.next()) {
+          if (frame.type == Frame.HELLO) {
+            onHello(follower, frame.sequence);
+          }
+        }
+      } catch (IOException e) {
+        disconnect(follower);
+      } catch (RuntimeException e) {
+        // typically the snapshot failed to encode, the other followers must go on.
+        reportError(e);
+        disconnect(follower);
+      }
+    }
+
+    private void flush() {
+      long now = System.nanoTime();
+      List<FollowerConnection> failedFollowers = null;
+      synchronized (ReplicationLeader.this) {
+        for (FollowerConnection follower : followers) {
+          SelectionKey key = follower.channel.keyFor(selector);
+          boolean waitingForSocket =
+              key != null && (key.interestOps() & SelectionKey.OP_WRITE) != 0;
+          if (!follower.writer.isFlushDue(now) && !(waitingForSocket && key.isWritable())) {
+            continue;
+          }
+          try {
+            boolean flushed = follower.writer.flush(follower.channel, now);
+            if (key != null) {
+              key.interestOps(
+                  flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+          } catch (IOException e) {
+            if (failedFollowers == null) {
+              failedFollowers = new ArrayList<>();
+            }
+            failedFollowers.add(follower);
+          }
+        }
+      }
+      if (failedFollowers != null) {
+        for (FollowerConnection follower : failedFollowers) {
+          disconnect(follower);
+        }
+      }
+    }
+
+    private void disconnect(FollowerConnection follower) {
+      synchronized (ReplicationLeader.this) {
+        followers.remove(follower);
+      }
+      closeQuietly(follower.channel);
+    }
+
+    private void shutdown() {
+      List<FollowerConnection> disconnectedFollowers;
+      synchronized (ReplicationLeader.this) {
+        disconnectedFollowers = new ArrayList<>(followers);
+        followers.clear();
+      }
+      for (FollowerConnection follower : disconnectedFollowers) {
+        closeQuietly(follower.channel);
+      }
+      closeQuietly(serverChannel);
+      closeQuietly(selector);
+    }
+  }
+
+  /** Reports a failure to the uncaught exception handler of the current thread. */
+  static void reportError(Throwable e) {
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+  static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // nothing to do.
+    }
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.codec.Codec;
+import com.groupon.grox.codec.SerializationCodec;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class ActionGatewayTest {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  @Test
+  public void testDispatch_shouldApplyPipelinedActionsInOrder() throws Exception {
+    //GIVEN
+    Store<String> store = new Store<>("");
+    ActionGateway<String> gateway =
+        new ActionGateway<>(store, new SerializationCodec<>(), new SerializationCodec<>());
+    gateway.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    GatewayClient<String, Void> client = newClient(gateway);
+
+    //WHEN
+    try {
+      for (int i = 0; i < 10; i++) {
+        client.dispatch(new AppendAction(String.valueOf(i)));
+      }
+      awaitState(store, "0123456789");
+    } finally {
+      client.close();
+      gateway.close();
+    }
+
+    //THEN
+    assertThat(store.getState(), is("0123456789"));
+  }
+
+  @Test
+  public void testSubscribe_shouldPushStateAndDiffs() throws Exception {
+    //GIVEN
+    Store<String> store = new Store<>("a");
+    ActionGateway<String> gateway =
+        new ActionGateway<>(
+            store,
+            new SerializationCodec<>(),
+            new SerializationCodec<>(),
+            (oldState, newState) -> newState.substring(oldState.length()),
+            new SerializationCodec<String>());
+    gateway.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    GatewayClient<String, String> client = newClient(gateway);
+    List<String> updates = new CopyOnWriteArrayList<>();
+
+    //WHEN
+    try {
+      client.subscribe(
+          new GatewayClient.UpdateListener<String, String>() {
+            @Override
+            public void onState(String state) {
+              updates.add("state:" + state);
+            }
+
+            @Override
+            public void onDiff(String diff) {
+              updates.add("diff:" + diff);
+            }
+          });
+      awaitSize(updates, 1);
+      store.dispatch(new AppendAction("b"));
+      store.dispatch(new AppendAction("c"));
+      awaitSize(updates, 3);
+    } finally {
+      client.close();
+      gateway.close();
+    }
+
+    //THEN
+    assertThat(updates.get(0), is("state:a"));
+    assertThat(updates.get(1), is("diff:b"));
+    assertThat(updates.get(2), is("diff:c"));
+  }
+
+  @Test
+  public void testDispatch_whenActionFails_shouldReportItAndKeepServingClients()
+      throws Exception {
+    //GIVEN
+    Store<String> store = new Store<>("");
+    ActionGateway<String> gateway =
+        new ActionGateway<>(store, new SerializationCodec<>(), new SerializationCodec<>());
+    gateway.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    List<Throwable> reportedFailures = new CopyOnWriteArrayList<>();
+    Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reportedFailures.add(e));
+    GatewayClient<String, Void> client = newClient(gateway);
+    GatewayClient<String, Void> otherClient = null;
+
+    //WHEN
+    int clientCount;
+    try {
+      client.dispatch(new FailingAction());
+      client.dispatch(new AppendAction("a"));
+      awaitState(store, "a");
+      otherClient = newClient(gateway);
+      otherClient.dispatch(new AppendAction("b"));
+      awaitState(store, "ab");
+      clientCount = gateway.getClientCount();
+    } finally {
+      client.close();
+      if (otherClient != null) {
+        otherClient.close();
+      }
+      gateway.close();
+      Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+    }
+
+    //THEN
+    assertThat(store.getState(), is("ab"));
+    assertThat(clientCount, is(2));
+    assertThat(reportedFailures.size(), is(1));
+  }
+
+  @Test
+  public void testDispatch_whenActionFailsToDecode_shouldOnlyDisconnectTheClient()
+      throws Exception {
+    //GIVEN
+    Store<String> store = new Store<>("");
+    ActionGateway<String> gateway =
+        new ActionGateway<>(store, new FirstDecodeFailingCodec<>(), new SerializationCodec<>());
+    gateway.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    List<Throwable> reportedFailures = new CopyOnWriteArrayList<>();
+    Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reportedFailures.add(e));
+    GatewayClient<String, Void> client = newClient(gateway);
+    GatewayClient<String, Void> otherClient = newClient(gateway);
+
+    //WHEN
+    int clientCount;
+    try {
+      awaitClientCount(gateway, 2);
+      client.dispatch(new AppendAction("a"));
+      awaitClientCount(gateway, 1);
+      otherClient.dispatch(new AppendAction("b"));
+      awaitState(store, "b");
+      clientCount = gateway.getClientCount();
+    } finally {
+      client.close();
+      otherClient.close();
+      gateway.close();
+      Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+    }
+
+    //THEN
+    assertThat(store.getState(), is("b"));
+    assertThat(clientCount, is(1));
+    assertThat(reportedFailures.size(), is(1));
+  }
+
+  private static <DIFF> GatewayClient<String, DIFF> newClient(ActionGateway<String> gateway)
+      throws Exception {
+    return new GatewayClient<>(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), gateway.getLocalPort()),
+        new SerializationCodec<>(),
+        new SerializationCodec<>(),
+        new SerializationCodec<DIFF>());
+  }
+
+  private static void awaitState(Store<String> store, String state) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (!state.equals(store.getState()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  private static void awaitClientCount(ActionGateway<?> gateway, int clientCount)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (gateway.getClientCount() != clientCount && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  private static void awaitSize(List<?> list, int size) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (list.size() < size && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  /** A codec that fails to decode its first value. */
+  private static final class FirstDecodeFailingCodec<T> implements Codec<T> {
+    private final SerializationCodec<T> codec = new SerializationCodec<>();
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    @Override
+    public byte[] encode(T value) throws IOException {
+      return codec.encode(value);
+    }
+
+    @Override
+    public T decode(byte[] bytes) throws IOException {
+      if (failed.compareAndSet(false, true)) {
+        throw new IllegalStateException("Expected");
+      }
+      return codec.decode(bytes);
+    }
+  }
+
+  private static final class FailingAction implements Action<String>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String newState(String oldState) {
+      throw new IllegalStateException("Expected");
+    }
+  }
+
+  private static final class AppendAction implements Action<String>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String suffix;
+
+    AppendAction(String suffix) {
+      this.suffix = suffix;
+    }
+
+    @Override
+    public String newState(String oldState) {
+      return oldState + suffix;
+    }
+  }
+}
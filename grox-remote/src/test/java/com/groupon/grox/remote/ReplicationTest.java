@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.remote;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.codec.Codec;
+import com.groupon.grox.codec.SerializationCodec;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class ReplicationTest {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  @Test
+  public void testFollower_shouldCatchUpAndFollowLeader() throws Exception {
+    //GIVEN
+    ReplicationLeader<Integer> leader =
+        new ReplicationLeader<>(new SerializationCodec<>(), new SerializationCodec<>());
+    Store<Integer> leaderStore = new Store<>(0, leader.middleware());
+    leader.start(leaderStore, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    leaderStore.dispatch(new AddAction(1));
+    Store<Integer> followerStore = new Store<>(-1);
+    ReplicationFollower<Integer> follower =
+        new ReplicationFollower<>(
+            followerStore, new SerializationCodec<>(), new SerializationCodec<>());
+
+    //WHEN
+    try {
+      follower.connect(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.getLocalPort()));
+      for (int i = 0; i < 100; i++) {
+        leaderStore.dispatch(new AddAction(i));
+      }
+      awaitSequence(follower, 101);
+    } finally {
+      follower.close();
+      leader.close();
+    }
+
+    //THEN
+    assertThat(leader.getSequence(), is(101L));
+    assertThat(followerStore.getState(), is(leaderStore.getState()));
+  }
+
+  @Test
+  public void testFollower_whenFallingBehind_shouldResyncFromSnapshot() throws Exception {
+    //GIVEN
+    ReplicationLeader<Integer> leader =
+        new ReplicationLeader<>(
+            new SerializationCodec<>(), new SerializationCodec<>(), 0, 0, 1000, Integer.MAX_VALUE);
+    Store<Integer> leaderStore = new Store<>(0, leader.middleware());
+    leader.start(leaderStore, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    Store<Integer> followerStore = new Store<>(-1);
+    ReplicationFollower<Integer> follower =
+        new ReplicationFollower<>(
+            followerStore, new SerializationCodec<>(), new SerializationCodec<>());
+
+    //WHEN
+    try {
+      follower.connect(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.getLocalPort()));
+      awaitSequence(follower, 0);
+      for (int i = 0; i < 10; i++) {
+        leaderStore.dispatch(new AddAction(i));
+      }
+      awaitSequence(follower, 10);
+    } finally {
+      follower.close();
+      leader.close();
+    }
+
+    //THEN
+    assertThat(followerStore.getState(), is(45));
+  }
+
+  @Test
+  public void testFollower_whenActionFailsToDecode_shouldReportItAndResyncFromSnapshot()
+      throws Exception {
+    //GIVEN
+    ReplicationLeader<Integer> leader =
+        new ReplicationLeader<>(new SerializationCodec<>(), new SerializationCodec<>());
+    Store<Integer> leaderStore = new Store<>(0, leader.middleware());
+    leader.start(leaderStore, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    Store<Integer> followerStore = new Store<>(-1);
+    ReplicationFollower<Integer> follower =
+        new ReplicationFollower<>(
+            followerStore, new SerializationCodec<>(), new FailingCodec<Action<Integer>>(0, 3));
+    List<Throwable> reportedFailures = new CopyOnWriteArrayList<>();
+    Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reportedFailures.add(e));
+
+    //WHEN
+    boolean connected;
+    try {
+      follower.connect(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.getLocalPort()));
+      awaitSequence(follower, 0);
+      for (int i = 0; i < 10; i++) {
+        leaderStore.dispatch(new AddAction(i));
+      }
+      awaitSequence(follower, 10);
+      connected = follower.isConnected();
+    } finally {
+      follower.close();
+      leader.close();
+      Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+    }
+
+    //THEN
+    assertThat(connected, is(true));
+    assertThat(reportedFailures.size(), is(1));
+    assertThat(followerStore.getState(), is(45));
+  }
+
+  @Test
+  public void testLeader_whenSnapshotFailsToEncode_shouldOnlyDisconnectTheFollowerBehind()
+      throws Exception {
+    //GIVEN
+    ReplicationLeader<Integer> leader =
+        new ReplicationLeader<>(
+            new FailingCodec<Integer>(2, 0),
+            new SerializationCodec<>(),
+            0,
+            0,
+            1000,
+            Integer.MAX_VALUE);
+    Store<Integer> leaderStore = new Store<>(0, leader.middleware());
+    leader.start(leaderStore, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    Store<Integer> followerStore = new Store<>(-1);
+    ReplicationFollower<Integer> follower =
+        new ReplicationFollower<>(
+            followerStore, new SerializationCodec<>(), new SerializationCodec<>());
+    List<Throwable> reportedFailures = new CopyOnWriteArrayList<>();
+    Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+    Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reportedFailures.add(e));
+
+    //WHEN
+    int followerCount;
+    try {
+      follower.connect(
+          new InetSocketAddress(InetAddress.getLoopbackAddress(), leader.getLocalPort()));
+      awaitSequence(follower, 0);
+      // the second action finds the follower behind, and its snapshot fails to encode.
+      leaderStore.dispatch(new AddAction(1));
+      leaderStore.dispatch(new AddAction(2));
+      followerCount = leader.getFollowerCount();
+    } finally {
+      follower.close();
+      leader.close();
+      Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+    }
+
+    //THEN
+    assertThat(leaderStore.getState(), is(3));
+    assertThat(leader.getSequence(), is(2L));
+    assertThat(followerCount, is(0));
+    assertThat(reportedFailures.size(), is(1));
+  }
+
+  private static void awaitSequence(ReplicationFollower<?> follower, long sequence)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    while (follower.getSequence() < sequence && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertThat(follower.getSequence(), is(sequence));
+  }
+
+  /** A codec that fails to encode its n-th value, and to decode its m-th value. */
+  private static final class FailingCodec<T> implements Codec<T> {
+    private final SerializationCodec<T> codec = new SerializationCodec<>();
+    private final AtomicInteger encodeCount = new AtomicInteger();
+    private final AtomicInteger decodeCount = new AtomicInteger();
+    private final int failingEncode;
+    private final int failingDecode;
+
+    FailingCodec(int failingEncode, int failingDecode) {
+      this.failingEncode = failingEncode;
+      this.failingDecode = failingDecode;
+    }
+
+    @Override
+    public byte[] encode(T value) throws IOException {
+      if (encodeCount.incrementAndGet() == failingEncode) {
+        throw new IllegalStateException("Expected");
+      }
+      return codec.encode(value);
+    }
+
+    @Override
+    public T decode(byte[] bytes) throws IOException {
+      if (decodeCount.incrementAndGet() == failingDecode) {
+        throw new IllegalStateException("Expected");
+      }
+      return codec.decode(bytes);
+    }
+  }
+
+  private static final class AddAction implements Action<Integer>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int value;
+
+    AddAction(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public Integer newState(Integer oldState) {
+      return oldState + value;
+    }
+  }
+}
@@ -17,7 +17,11 @@ package com.groupon.grox.sample;
 
 import com.groupon.grox.Action;
 
-public class RefreshAction implements Action<State> {
+/** Starts a refresh. It carries no data, hence it is a singleton. */
+public final class RefreshAction implements Action<State> {
+  public static final RefreshAction INSTANCE = new RefreshAction();
+
+  private RefreshAction() {}
 
   @Override
   public State newState(State oldState) {
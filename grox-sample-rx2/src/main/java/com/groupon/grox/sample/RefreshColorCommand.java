@@ -41,7 +41,7 @@ public class RefreshColorCommand implements Command<State> {
   //don't forget to convert errors in actions
   @Override
   public Observable<? extends Action<State>> actions() {
-    final Observable<Action<State>> refresh = just(new RefreshAction());
+    final Observable<Action<State>> refresh = just(RefreshAction.INSTANCE);
 
     //don't forget to convert errors in actions
     return refresh.concatWith(refreshColor()).onErrorReturn(ErrorAction::new);
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.Store.Middleware;
+import com.groupon.grox.Store.StateChangeListener;
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A store that owns an event loop thread. Dispatching only queues the action, and returns a future
+ * of the state it produces. The actions, the middle wares and the listeners are all executed by the
+ * loop thread, so they never contend with each other. </br> The loop executes the actions with an
+ * internal {@link Store}, that only the loop thread uses: its monitor is never contended, and its
+ * middle wares and listeners behave as usual.
+ *
+ * @param <STATE> the class of the state.
+ */
+public final class AsyncStore<STATE> implements Closeable {
+  private static final ThreadFactory DEFAULT_THREAD_FACTORY =
+      runnable -> {
+        Thread thread = new Thread(runnable, "grox-async-store");
+        thread.setDaemon(true);
+        return thread;
+      };
+
+  private final Store<STATE> store;
+  /** The tasks waiting to be executed by the loop thread. */
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+  private final Thread loopThread;
+  /** True when the loop thread may park, producers must then unpark it. */
+  private volatile boolean waiting;
+
+  private volatile boolean closed;
+
+  /**
+   * Creates a store and starts its loop thread, a daemon thread.
+   *
+   * @param initialState the initial state of the store.
+   * @param middlewares the middle wares of the store.
+   */
+  @SafeVarargs
+  public AsyncStore(STATE initialState, Middleware<STATE>... middlewares) {
+    this(initialState, DEFAULT_THREAD_FACTORY, middlewares);
+  }
+
+  /**
+   * Creates a store and starts its loop thread.
+   *
+   * @param initialState the initial state of the store.
+   * @param threadFactory creates the loop thread.
+   * @param middlewares the middle wares of the store.
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public AsyncStore(
+      STATE initialState, ThreadFactory threadFactory, Middleware<STATE>... middlewares) {
+    if (threadFactory == null) {
+      throw new IllegalArgumentException("Thread factory is null");
+    }
+    this.store = new Store<>(initialState, middlewares);
+    this.loopThread = threadFactory.newThread(this::loop);
+    loopThread.start();
+  }
+
+  /**
+   * Queues an action, to be executed by the loop thread. This method never blocks. </br> The middle
+   * wares and the listeners, which run on the loop thread, must not wait for the returned future:
+   * it can only be completed once they return.
+   *
+   * @param action the action to be executed.
+   * @return a future completed with the state produced by the action, once the listeners have been
+   *     notified of it. It fails if the action, a middle ware or a listener fails, or if the store
+   *     is closed.
+   */
+  public CompletableFuture<STATE> dispatch(Action<STATE> action) {
+    if (action == null) {
+      throw new IllegalArgumentException("Action is null");
+    }
+    CompletableFuture<STATE> result = new CompletableFuture<>();
+    if (!submit(new DispatchTask<>(store, action, result))) {
+      result.completeExceptionally(new IllegalStateException("The store is closed"));
+    }
+    return result;
+  }
+
+  /** @return the latest state of the store. It can be read from any thread. */
+  public STATE getState() {
+    return store.getState();
+  }
+
+  /**
+   * Adds a listener. The listener will be notified, by the loop thread, of the current state and
+   * then of the state changes.
+   *
+   * @param listener the listener to be added.
+   * @see Store#subscribe(StateChangeListener)
+   */
+  public void subscribe(StateChangeListener<STATE> listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener is null");
+    }
+    submit(() -> store.subscribe(listener));
+  }
+
+  /**
+   * Removes a previously added listener. The listener may be notified until the loop thread removes
+   * it.
+   *
+   * @param listener the listener to be removed.
+   */
+  public void unsubscribe(StateChangeListener<STATE> listener) {
+    submit(() -> store.unsubscribe(listener));
+  }
+
+  /** @return true if the current thread is the loop thread of this store. */
+  public boolean isLoopThread() {
+    return Thread.currentThread() == loopThread;
+  }
+
+  /**
+   * Closes the store. The actions dispatched before are still executed, the ones dispatched after
+   * fail. Unless called by the loop thread, this method waits for the loop thread to terminate.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(loopThread);
+    if (isLoopThread()) {
+      return;
+    }
+    boolean interrupted = false;
+    while (loopThread.isAlive()) {
+      try {
+        loopThread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** @return false if the task could not be queued because the store is closed. */
+  private boolean submit(Runnable task) {
+    if (closed) {
+      return false;
+    }
+    tasks.offer(task);
+    if (closed && tasks.remove(task)) {
+      // the store was closed concurrently, and the loop thread may have stopped.
+      return false;
+    }
+    if (waiting) {
+      LockSupport.unpark(loopThread);
+    }
+    return true;
+  }
+
+  /** The event loop, executed by the loop thread. */
+  private void loop() {
+    while (true) {
+      Runnable task = tasks.poll();
+      if (task != null) {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          // a listener failed while being subscribed, the loop must go on.
+          Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(loopThread, e);
+        }
+        continue;
+      }
+      if (closed) {
+        // a producer may have queued a task before it saw that the store was closed.
+        failRemainingTasks();
+        return;
+      }
+      waiting = true;
+      if (tasks.isEmpty() && !closed) {
+        LockSupport.park(this);
+      }
+      waiting = false;
+    }
+  }
+
+  private void failRemainingTasks() {
+    for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+      DispatchTask.reject(task, "The store is closed");
+    }
+  }
+}
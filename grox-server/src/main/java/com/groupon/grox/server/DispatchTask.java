@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Dispatches an action to a store that only one thread at a time dispatches to, and completes a
+ * future with the state produced by the action.
+ *
+ * @param <STATE> the class of the state.
+ */
+final class DispatchTask<STATE> implements Runnable {
+  private final Store<STATE> store;
+  private final Action<STATE> action;
+  private final CompletableFuture<STATE> result;
+
+  DispatchTask(Store<STATE> store, Action<STATE> action, CompletableFuture<STATE> result) {
+    this.store = store;
+    this.action = action;
+    this.result = result;
+  }
+
+  @Override
+  public void run() {
+    STATE newState;
+    try {
+      store.dispatch(action);
+      // no other thread dispatches to the store: this is the state produced by the action.
+      newState = store.getState();
+    } catch (RuntimeException | Error e) {
+      result.completeExceptionally(e);
+      return;
+    }
+    result.complete(newState);
+  }
+
+  /** Fails the future of a task that will never be executed. */
+  static void reject(Runnable task, String reason) {
+    if (task instanceof DispatchTask) {
+      ((DispatchTask<?>) task).result.completeExceptionally(new IllegalStateException(reason));
+    }
+  }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store.Middleware;
+import com.groupon.grox.codec.Codec;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A registry of stores, one per key, that bounds the number of stores kept in memory. </br> The
+ * store of a key is created on the first dispatch to this key. A store that has been idle for too
+ * long, or the least recently used one when there are too many stores in memory, is evicted: its
+ * state is passivated, i.e. encoded and written to a file of a local directory. The next dispatch
+ * to its key reactivates it from this file, transparently, and deletes the file. </br> A store is
+ * only evicted when it has no pending action. Stores are executed by a {@link StoreRuntime}, and
+ * evicted periodically by a thread of the registry. </br> Files are read and written without
+ * holding the lock of the registry: a slow file only delays the dispatches to its own key. </br>
+ * The name of the file of a key is derived from {@link Object#toString()}, which must be distinct
+ * for distinct keys.
+ *
+ * @param <K> the class of the keys.
+ * @param <STATE> the class of the states.
+ */
+public final class KeyedStores<K, STATE> implements Closeable {
+  private static final String FILE_EXTENSION = ".state";
+  /** The maximum period of the eviction of the idle stores. */
+  private static final long MAX_EVICTION_PERIOD_MILLIS = 1000;
+
+  private final StoreRuntime runtime;
+  private final Path directory;
+  private final Codec<STATE> codec;
+  private final Function<? super K, ? extends STATE> initialStates;
+  private final int maxResidentStores;
+  private final long idleTimeoutNanos;
+  private final Middleware<STATE>[] middlewares;
+  private final LongSupplier clock;
+  private final ScheduledExecutorService evictionExecutor;
+
+  /**
+   * The stores in memory, or being activated, from the least to the most recently used one,
+   * guarded by this.
+   */
+  private final LinkedHashMap<K, Entry<K, STATE>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long activationCount;
+  private long passivationCount;
+
+  /**
+   * Creates a registry of stores.
+   *
+   * @param runtime executes the stores.
+   * @param directory the directory of the passivated states.
+   * @param codec encodes the passivated states.
+   * @param initialStates creates the initial state of a key that has no passivated state.
+   * @param maxResidentStores the maximum number of idle stores kept in memory.
+   * @param idleTimeoutMillis the time after which an idle store is evicted.
+   * @param middlewares the middle wares of each store.
+   */
+  @SafeVarargs
+  public KeyedStores(
+      StoreRuntime runtime,
+      Path directory,
+      Codec<STATE> codec,
+      Function<? super K, ? extends STATE> initialStates,
+      int maxResidentStores,
+      long idleTimeoutMillis,
+      Middleware<STATE>... middlewares) {
+    this(
+        runtime,
+        directory,
+        codec,
+        initialStates,
+        maxResidentStores,
+        idleTimeoutMillis,
+        Math.min(idleTimeoutMillis, MAX_EVICTION_PERIOD_MILLIS),
+        System::nanoTime,
+        middlewares);
+  }
+
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  KeyedStores(
+      StoreRuntime runtime,
+      Path directory,
+      Codec<STATE> codec,
+      Function<? super K, ? extends STATE> initialStates,
+      int maxResidentStores,
+      long idleTimeoutMillis,
+      long evictionPeriodMillis,
+      LongSupplier clock,
+      Middleware<STATE>... middlewares) {
+    if (runtime == null) {
+      throw new IllegalArgumentException("Runtime is null");
+    }
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory is null");
+    }
+    if (codec == null) {
+      throw new IllegalArgumentException("Codec is null");
+    }
+    if (initialStates == null) {
+      throw new IllegalArgumentException("Initial states is null");
+    }
+    if (maxResidentStores < 1) {
+      throw new IllegalArgumentException(
+          "maxResidentStores must be positive: " + maxResidentStores);
+    }
+    if (idleTimeoutMillis < 1) {
+      throw new IllegalArgumentException(
+          "idleTimeoutMillis must be positive: " + idleTimeoutMillis);
+    }
+    this.runtime = runtime;
+    this.directory = directory;
+    this.codec = codec;
+    this.initialStates = initialStates;
+    this.maxResidentStores = maxResidentStores;
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    this.clock = clock;
+    this.middlewares = middlewares.clone();
+    this.evictionExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "grox-keyed-stores-eviction");
+              thread.setDaemon(true);
+              return thread;
+            });
+    evictionExecutor.scheduleWithFixedDelay(
+        this::evictIdleStoresSafely,
+        evictionPeriodMillis,
+        evictionPeriodMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Dispatches an action to the store of a key, activating the store if needed.
+   *
+   * @param key the key of the store.
+   * @param action the action to be executed.
+   * @return a future completed with the state produced by the action. It fails if the action fails,
+   *     or if the passivated state of the key can't be read.
+   * @see MailboxStore#dispatch(Action)
+   */
+  public CompletableFuture<STATE> dispatch(K key, Action<STATE> action) {
+    if (key == null) {
+      throw new IllegalArgumentException("Key is null");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("Action is null");
+    }
+    final Entry<K, STATE> entry;
+    final MailboxStore<STATE> store;
+    try {
+      entry = acquire(key);
+      store = awaitActivation(entry);
+    } catch (IOException e) {
+      CompletableFuture<STATE> result = new CompletableFuture<>();
+      result.completeExceptionally(e);
+      return result;
+    }
+    // the returned future completes once the store is released, and can be evicted.
+    return store.dispatch(action).whenComplete((newState, error) -> release(entry));
+  }
+
+  /**
+   * @param key the key of a store.
+   * @return the current state of the store of the key, activating it if needed.
+   * @throws IOException if the passivated state of the key can't be read.
+   */
+  public STATE getState(K key) throws IOException {
+    if (key == null) {
+      throw new IllegalArgumentException("Key is null");
+    }
+    Entry<K, STATE> entry = acquire(key);
+    try {
+      return awaitActivation(entry).getState();
+    } finally {
+      release(entry);
+    }
+  }
+
+  /**
+   * Evicts the stores that have been idle for too long, and the least recently used ones when there
+   * are too many stores in memory. The registry calls this method periodically, it only needs to be
+   * called to evict the stores without delay.
+   */
+  public void evictIdleStores() {
+    List<Entry<K, STATE>> evictedEntries = new ArrayList<>();
+    synchronized (this) {
+      long now = clock.getAsLong();
+      int residentStores = entries.size();
+      for (Entry<K, STATE> entry : entries.values()) {
+        boolean expired = now - entry.lastUsedNanos >= idleTimeoutNanos;
+        if (!expired && residentStores <= maxResidentStores) {
+          // the next stores were used more recently.
+          break;
+        }
+        if (startPassivation(entry)) {
+          evictedEntries.add(entry);
+          residentStores--;
+        }
+      }
+    }
+    passivate(evictedEntries);
+  }
+
+  /**
+   * Stops the eviction of the stores, waiting for a running eviction to complete, and passivates
+   * all the idle stores.
+   */
+  @Override
+  public void close() {
+    // the eviction thread is not interrupted, as it would interrupt the writing of a file.
+    evictionExecutor.shutdown();
+    boolean interrupted = false;
+    while (!evictionExecutor.isTerminated()) {
+      try {
+        evictionExecutor.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    List<Entry<K, STATE>> evictedEntries = new ArrayList<>();
+    synchronized (this) {
+      for (Entry<K, STATE> entry : entries.values()) {
+        if (startPassivation(entry)) {
+          evictedEntries.add(entry);
+        }
+      }
+    }
+    passivate(evictedEntries);
+  }
+
+  /** @return the number of stores in memory. */
+  public synchronized int getResidentStoreCount() {
+    return entries.size();
+  }
+
+  /** @return the number of stores created or reactivated. */
+  public synchronized long getActivationCount() {
+    return activationCount;
+  }
+
+  /** @return the number of stores evicted. */
+  public synchronized long getPassivationCount() {
+    return passivationCount;
+  }
+
+  /**
+   * Returns the entry of a key, that can't be evicted until it is released. If the key has no
+   * entry, it creates one and activates its store, reading its passivated state or creating it.
+   * Only the entry of the key waits for the file to be read.
+   */
+  private Entry<K, STATE> acquire(K key) throws IOException {
+    Entry<K, STATE> entry;
+    boolean mustActivate = false;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry<>(key);
+        entries.put(key, entry);
+        mustActivate = true;
+      }
+      entry.pendingActions++;
+      entry.useCount++;
+      entry.lastUsedNanos = clock.getAsLong();
+    }
+    if (mustActivate) {
+      activate(entry);
+    }
+    return entry;
+  }
+
+  /** Reads the passivated state of a new entry, or creates it, and then deletes its file. */
+  private void activate(Entry<K, STATE> entry) throws IOException {
+    final MailboxStore<STATE> store;
+    try {
+      Path file = fileOf(entry.key);
+      if (Files.exists(file)) {
+        store = runtime.newStore(codec.decode(Files.readAllBytes(file)), middlewares);
+        // the state in memory is now the only valid one.
+        Files.delete(file);
+      } else {
+        store = runtime.newStore(initialStates.apply(entry.key), middlewares);
+      }
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        entries.remove(entry.key);
+      }
+      entry.activation.completeExceptionally(e);
+      throw e;
+    }
+    synchronized (this) {
+      activationCount++;
+    }
+    entry.activation.complete(store);
+  }
+
+  /** @return the store of an acquired entry, once it is activated. */
+  private MailboxStore<STATE> awaitActivation(Entry<K, STATE> entry) throws IOException {
+    try {
+      return entry.activation.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private synchronized void release(Entry<K, STATE> entry) {
+    entry.pendingActions--;
+    entry.lastUsedNanos = clock.getAsLong();
+    // moves the entry at the end of the access order, as the most recently used one.
+    entries.get(entry.key);
+  }
+
+  /**
+   * Marks an idle entry as being passivated, and takes a snapshot of its state. Must be called
+   * while holding the monitor of this.
+   *
+   * @return false if the entry can't be passivated now.
+   */
+  private boolean startPassivation(Entry<K, STATE> entry) {
+    if (entry.pendingActions > 0 || entry.passivating) {
+      return false;
+    }
+    entry.passivating = true;
+    entry.passivatedUseCount = entry.useCount;
+    entry.passivatedState = entry.activation.join().getState();
+    return true;
+  }
+
+  /**
+   * Writes the states of entries marked by {@link #startPassivation(Entry)} to their files, without
+   * holding the monitor of this, and then removes the entries that were not used in the meantime.
+   */
+  private void passivate(List<Entry<K, STATE>> evictedEntries) {
+    if (evictedEntries.isEmpty()) {
+      return;
+    }
+    List<Entry<K, STATE>> writtenEntries = new ArrayList<>();
+    for (Entry<K, STATE> entry : evictedEntries) {
+      if (write(entry)) {
+        writtenEntries.add(entry);
+      }
+    }
+    List<Entry<K, STATE>> usedEntries = new ArrayList<>();
+    synchronized (this) {
+      for (Entry<K, STATE> entry : writtenEntries) {
+        if (entry.pendingActions == 0 && entry.useCount == entry.passivatedUseCount) {
+          entries.remove(entry.key);
+          passivationCount++;
+        } else {
+          usedEntries.add(entry);
+        }
+      }
+    }
+    // the state of an entry used during its passivation is stale, its file must not be read.
+    for (Entry<K, STATE> entry : usedEntries) {
+      try {
+        Files.deleteIfExists(fileOf(entry.key));
+      } catch (IOException e) {
+        reportError(e);
+      }
+    }
+    synchronized (this) {
+      for (Entry<K, STATE> entry : evictedEntries) {
+        entry.passivating = false;
+        entry.passivatedState = null;
+      }
+    }
+  }
+
+  /**
+   * Writes the passivated state of an entry to its file.
+   *
+   * @return false if the state couldn't be written, the store must then stay in memory.
+   */
+  private boolean write(Entry<K, STATE> entry) {
+    try {
+      Path file = fileOf(entry.key);
+      Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.write(tempFile, codec.encode(entry.passivatedState));
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      reportError(e);
+      return false;
+    }
+  }
+
+  /** Evicts the idle stores, for the eviction thread, which must not stop on a failure. */
+  private void evictIdleStoresSafely() {
+    try {
+      evictIdleStores();
+    } catch (RuntimeException e) {
+      reportError(e);
+    }
+  }
+
+  private static void reportError(Exception e) {
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+  private Path fileOf(K key) {
+    try {
+      return directory.resolve(URLEncoder.encode(key.toString(), "UTF-8") + FILE_EXTENSION);
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /** A store in memory, or being activated. Its fields are guarded by the registry. */
+  private static final class Entry<K, STATE> {
+    final K key;
+    /** Completed with the store once it is activated. */
+    final CompletableFuture<MailboxStore<STATE>> activation = new CompletableFuture<>();
+    int pendingActions;
+    long lastUsedNanos;
+    /** The number of times the entry was acquired, to detect uses during a passivation. */
+    long useCount;
+    boolean passivating;
+    long passivatedUseCount;
+    STATE passivatedState;
+
+    Entry(K key) {
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import com.groupon.grox.Action;
+import com.groupon.grox.Store;
+import com.groupon.grox.Store.Middleware;
+import com.groupon.grox.Store.StateChangeListener;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A store executed by a {@link StoreRuntime}. Like an {@link AsyncStore}, dispatching only queues
+ * the action and returns a future of the state it produces, but the actions are executed by the
+ * threads of the runtime rather than a dedicated thread.
+ *
+ * @param <STATE> the class of the state.
+ * @see StoreRuntime#newStore(Object, Middleware[])
+ */
+public final class MailboxStore<STATE> {
+  private static final String RUNTIME_CLOSED = "The runtime of the store is closed";
+
+  private final StoreRuntime runtime;
+  private final Store<STATE> store;
+  /** The tasks waiting to be executed by the runtime. */
+  private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+  /** True while the store is submitted to the executor, or executing its tasks. */
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+
+  private final Runnable drain = this::drain;
+
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  MailboxStore(StoreRuntime runtime, STATE initialState, Middleware<STATE>... middlewares) {
+    this.runtime = runtime;
+    this.store = new Store<>(initialState, middlewares);
+  }
+
+  /**
+   * Queues an action, to be executed by the runtime. This method never blocks. </br> The middle
+   * wares and the listeners must not wait for the returned future.
+   *
+   * @param action the action to be executed.
+   * @return a future completed with the state produced by the action, once the listeners have been
+   *     notified of it. It fails if the action, a middle ware or a listener fails, or if the
+   *     runtime is closed.
+   */
+  public CompletableFuture<STATE> dispatch(Action<STATE> action) {
+    if (action == null) {
+      throw new IllegalArgumentException("Action is null");
+    }
+    CompletableFuture<STATE> result = new CompletableFuture<>();
+    submit(new DispatchTask<>(store, action, result));
+    return result;
+  }
+
+  /** @return the latest state of the store. It can be read from any thread. */
+  public STATE getState() {
+    return store.getState();
+  }
+
+  /**
+   * Adds a listener. The listener will be notified, by the runtime, of the current state and then
+   * of the state changes.
+   *
+   * @param listener the listener to be added.
+   */
+  public void subscribe(StateChangeListener<STATE> listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener is null");
+    }
+    submit(() -> store.subscribe(listener));
+  }
+
+  /**
+   * Removes a previously added listener. The listener may be notified until the runtime removes it.
+   *
+   * @param listener the listener to be removed.
+   */
+  public void unsubscribe(StateChangeListener<STATE> listener) {
+    submit(() -> store.unsubscribe(listener));
+  }
+
+  private void submit(Runnable task) {
+    mailbox.offer(task);
+    schedule();
+  }
+
+  /** Submits the store to the executor, unless it is already scheduled or has nothing to do. */
+  private void schedule() {
+    if (mailbox.isEmpty() || !scheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      runtime.getExecutor().execute(drain);
+    } catch (RejectedExecutionException e) {
+      for (Runnable task = mailbox.poll(); task != null; task = mailbox.poll()) {
+        DispatchTask.reject(task, RUNTIME_CLOSED);
+      }
+      scheduled.set(false);
+    }
+  }
+
+  /** Executes a batch of tasks, then lets the store be scheduled again. */
+  private void drain() {
+    try {
+      int limit = runtime.getDrainBatchLimit();
+      for (int i = 0; i < limit; i++) {
+        Runnable task = mailbox.poll();
+        if (task == null) {
+          break;
+        }
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          // a listener failed while being subscribed, the store must go on.
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      }
+    } finally {
+      scheduled.set(false);
+      // the remaining tasks, and the ones queued while draining, go behind the other stores.
+      schedule();
+    }
+  }
+}
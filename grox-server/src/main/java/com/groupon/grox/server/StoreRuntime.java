@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import com.groupon.grox.Store.Middleware;
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multiplexes many stores onto a shared pool of threads, so that the number of stores doesn't
+ * dictate the number of threads. </br> Each {@link MailboxStore} of a runtime is a mailbox: the
+ * actions dispatched to it are queued, and the store is scheduled on the executor of the runtime
+ * when its mailbox is not empty. A store executes at most {@code drainBatchLimit} tasks per turn,
+ * then yields its thread and is scheduled again behind the other stores, so that a busy store can't
+ * starve the others. A store is executed by one thread at a time, its actions, middle wares and
+ * listeners never contend with each other.
+ */
+public final class StoreRuntime implements Closeable {
+  /** Default number of tasks a store executes before it yields its thread. */
+  public static final int DEFAULT_DRAIN_BATCH_LIMIT = 64;
+
+  private final Executor executor;
+  /** The executor owned, and shut down, by this runtime, or null. */
+  private final ExecutorService ownedExecutor;
+
+  private final int drainBatchLimit;
+
+  /**
+   * Creates a runtime with its own pool of daemon threads.
+   *
+   * @param threadCount the number of threads of the pool.
+   */
+  public StoreRuntime(int threadCount) {
+    this(threadCount, DEFAULT_DRAIN_BATCH_LIMIT);
+  }
+
+  /**
+   * Creates a runtime with its own pool of daemon threads.
+   *
+   * @param threadCount the number of threads of the pool.
+   * @param drainBatchLimit the number of tasks a store executes before it yields its thread.
+   */
+  public StoreRuntime(int threadCount, int drainBatchLimit) {
+    this(newPool(threadCount), drainBatchLimit, true);
+  }
+
+  /**
+   * Creates a runtime on an executor. For fairness, the executor should execute its tasks in the
+   * order they are submitted, like a {@link java.util.concurrent.ThreadPoolExecutor} with a FIFO
+   * queue.
+   *
+   * @param executor the executor of the stores, it is not shut down by {@link #close()}.
+   * @param drainBatchLimit the number of tasks a store executes before it yields its thread.
+   */
+  public StoreRuntime(Executor executor, int drainBatchLimit) {
+    this(executor, drainBatchLimit, false);
+  }
+
+  private StoreRuntime(Executor executor, int drainBatchLimit, boolean ownsExecutor) {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor is null");
+    }
+    if (drainBatchLimit < 1) {
+      throw new IllegalArgumentException("drainBatchLimit must be positive: " + drainBatchLimit);
+    }
+    this.executor = executor;
+    this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+    this.drainBatchLimit = drainBatchLimit;
+  }
+
+  /**
+   * Creates a store executed by this runtime.
+   *
+   * @param initialState the initial state of the store.
+   * @param middlewares the middle wares of the store.
+   * @param <STATE> the class of the state.
+   * @return the new store.
+   */
+  @SafeVarargs
+  @SuppressWarnings("varargs")
+  public final <STATE> MailboxStore<STATE> newStore(
+      STATE initialState, Middleware<STATE>... middlewares) {
+    return new MailboxStore<>(this, initialState, middlewares);
+  }
+
+  /** @return the number of tasks a store executes before it yields its thread. */
+  public int getDrainBatchLimit() {
+    return drainBatchLimit;
+  }
+
+  Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Shuts down the pool of threads of this runtime, if it owns one, and waits for it to terminate.
+   * The batches of tasks already scheduled are executed, the tasks queued behind them and the
+   * actions dispatched later fail.
+   */
+  @Override
+  public void close() {
+    if (ownedExecutor == null) {
+      return;
+    }
+    ownedExecutor.shutdown();
+    boolean interrupted = false;
+    while (!ownedExecutor.isTerminated()) {
+      try {
+        ownedExecutor.awaitTermination(1, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static ExecutorService newPool(int threadCount) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+    }
+    final AtomicInteger threadIndex = new AtomicInteger();
+    ThreadFactory threadFactory =
+        runnable -> {
+          Thread thread =
+              new Thread(runnable, "grox-store-runtime-" + threadIndex.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        };
+    return Executors.newFixedThreadPool(threadCount, threadFactory);
+  }
+}
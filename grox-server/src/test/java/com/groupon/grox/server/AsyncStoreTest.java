@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class AsyncStoreTest {
+
+  @Test
+  public void testDispatch_shouldCompleteWithStateOfTheAction() throws Exception {
+    //GIVEN
+    AsyncStore<Integer> store = new AsyncStore<>(0);
+    List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+    //WHEN
+    for (int i = 0; i < 100; i++) {
+      results.add(store.dispatch(oldState -> oldState + 1));
+    }
+
+    //THEN
+    for (int i = 0; i < 100; i++) {
+      assertThat(results.get(i).get(5, TimeUnit.SECONDS), is(i + 1));
+    }
+    store.close();
+  }
+
+  @Test
+  public void testDispatch_shouldRunMiddlewaresAndListenersOnLoopThread() throws Exception {
+    //GIVEN
+    List<Boolean> onLoopThread = new CopyOnWriteArrayList<>();
+    AtomicReference<AsyncStore<Integer>> holder = new AtomicReference<>();
+    AsyncStore<Integer> store =
+        new AsyncStore<>(
+            0,
+            chain -> {
+              onLoopThread.add(holder.get().isLoopThread());
+              chain.proceed(chain.action());
+            });
+    holder.set(store);
+    CountDownLatch notified = new CountDownLatch(2);
+    store.subscribe(
+        newState -> {
+          onLoopThread.add(store.isLoopThread());
+          notified.countDown();
+        });
+
+    //WHEN
+    store.dispatch(oldState -> oldState + 1).get(5, TimeUnit.SECONDS);
+    notified.await(5, TimeUnit.SECONDS);
+    store.close();
+
+    //THEN
+    assertThat(onLoopThread.size(), is(3));
+    assertThat(onLoopThread.contains(false), is(false));
+  }
+
+  @Test
+  public void testDispatch_whenActionFails_shouldFailFutureAndKeepLooping() throws Exception {
+    //GIVEN
+    AsyncStore<Integer> store = new AsyncStore<>(0);
+
+    //WHEN
+    CompletableFuture<Integer> failed =
+        store.dispatch(
+            oldState -> {
+              throw new IllegalStateException("boom");
+            });
+    CompletableFuture<Integer> next = store.dispatch(oldState -> oldState + 1);
+
+    //THEN
+    try {
+      failed.get(5, TimeUnit.SECONDS);
+      fail("Should have thrown an exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+    }
+    assertThat(next.get(5, TimeUnit.SECONDS), is(1));
+    store.close();
+  }
+
+  @Test
+  public void testClose_shouldExecuteQueuedActionsAndFailNextOnes() throws Exception {
+    //GIVEN
+    AsyncStore<Integer> store = new AsyncStore<>(0);
+    CompletableFuture<Integer> queued = store.dispatch(oldState -> oldState + 1);
+
+    //WHEN
+    store.close();
+    CompletableFuture<Integer> rejected = store.dispatch(oldState -> oldState + 1);
+
+    //THEN
+    assertThat(queued.get(5, TimeUnit.SECONDS), is(1));
+    assertThat(rejected.isCompletedExceptionally(), is(true));
+    assertThat(store.getState(), is(1));
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.grox.codec.Codec;
+import com.groupon.grox.codec.SerializationCodec;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KeyedStoresTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final AtomicLong clock = new AtomicLong();
+  private StoreRuntime runtime;
+
+  @Before
+  public void setUp() {
+    runtime = new StoreRuntime(2);
+  }
+
+  @After
+  public void tearDown() {
+    runtime.close();
+  }
+
+  @Test
+  public void testDispatch_shouldCreateStoresLazilyWithInitialStates() throws Exception {
+    //GIVEN
+    KeyedStores<String, String> stores = newStores(10);
+
+    //WHEN
+    String stateA = stores.dispatch("a", oldState -> oldState + "!").get(5, TimeUnit.SECONDS);
+    String stateB = stores.dispatch("b", oldState -> oldState + "?").get(5, TimeUnit.SECONDS);
+
+    //THEN
+    assertThat(stateA, is("a!"));
+    assertThat(stateB, is("b?"));
+    assertThat(stores.getResidentStoreCount(), is(2));
+    assertThat(stores.getActivationCount(), is(2L));
+  }
+
+  @Test
+  public void testDispatch_whenTooManyStores_shouldPassivateLeastRecentlyUsedAndReactivateIt()
+      throws Exception {
+    //GIVEN
+    KeyedStores<String, String> stores = newStores(2);
+    stores.dispatch("a", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+    stores.dispatch("b", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+    stores.dispatch("c", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+    stores.evictIdleStores();
+
+    //WHEN
+    boolean passivated = Files.exists(temporaryFolder.getRoot().toPath().resolve("a.state"));
+    String stateA = stores.dispatch("a", oldState -> oldState + "2").get(5, TimeUnit.SECONDS);
+    stores.evictIdleStores();
+
+    //THEN
+    assertThat(passivated, is(true));
+    assertThat(stateA, is("a12"));
+    assertThat(stores.getResidentStoreCount(), is(2));
+    assertThat(stores.getPassivationCount(), is(2L));
+    assertThat(stores.getActivationCount(), is(4L));
+  }
+
+  @Test
+  public void testEvictIdleStores_shouldPassivateStoresIdleForTooLong() throws Exception {
+    //GIVEN
+    KeyedStores<String, String> stores = newStores(10);
+    stores.dispatch("a", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+    stores.dispatch("b", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+
+    //WHEN
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    stores.evictIdleStores();
+
+    //THEN
+    assertThat(stores.getResidentStoreCount(), is(0));
+    assertThat(stores.getPassivationCount(), is(2L));
+    assertThat(stores.getState("b"), is("b1"));
+    assertThat(stores.getResidentStoreCount(), is(1));
+  }
+
+  @Test
+  public void testDispatch_whenStoreIsReactivated_shouldDeleteItsFile() throws Exception {
+    //GIVEN
+    KeyedStores<String, String> stores = newStores(10);
+    stores.dispatch("a", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    stores.evictIdleStores();
+    Path file = temporaryFolder.getRoot().toPath().resolve("a.state");
+    boolean passivated = Files.exists(file);
+
+    //WHEN
+    String stateA = stores.dispatch("a", oldState -> oldState + "2").get(5, TimeUnit.SECONDS);
+
+    //THEN
+    assertThat(passivated, is(true));
+    assertThat(stateA, is("a12"));
+    assertThat(Files.exists(file), is(false));
+  }
+
+  @Test
+  public void testEvictIdleStores_whenStoreWasReleasedLast_shouldEvictTheStoresBehindIt()
+      throws Exception {
+    //GIVEN
+    KeyedStores<String, String> stores = newStores(10);
+    CountDownLatch releaseAction = new CountDownLatch(1);
+    CompletableFuture<String> slowDispatch =
+        stores.dispatch(
+            "a",
+            oldState -> {
+              awaitUninterruptibly(releaseAction);
+              return oldState + "1";
+            });
+    stores.dispatch("b", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    releaseAction.countDown();
+    slowDispatch.get(5, TimeUnit.SECONDS);
+
+    //WHEN
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+    stores.evictIdleStores();
+
+    //THEN
+    assertThat(stores.getResidentStoreCount(), is(1));
+    assertThat(Files.exists(temporaryFolder.getRoot().toPath().resolve("b.state")), is(true));
+    assertThat(Files.exists(temporaryFolder.getRoot().toPath().resolve("a.state")), is(false));
+  }
+
+  @Test(timeout = 5000)
+  public void testDispatch_whileAnotherKeyIsActivated_shouldNotWaitForItsFile() throws Exception {
+    //GIVEN
+    CountDownLatch decodeStarted = new CountDownLatch(1);
+    CountDownLatch releaseDecode = new CountDownLatch(1);
+    Codec<String> slowCodec =
+        new Codec<String>() {
+          private final Codec<String> codec = new SerializationCodec<>();
+
+          @Override
+          public byte[] encode(String value) throws IOException {
+            return codec.encode(value);
+          }
+
+          @Override
+          public String decode(byte[] bytes) throws IOException {
+            decodeStarted.countDown();
+            awaitUninterruptibly(releaseDecode);
+            return codec.decode(bytes);
+          }
+        };
+    KeyedStores<String, String> stores = newStores(10, slowCodec, TimeUnit.HOURS.toMillis(1));
+    stores.dispatch("slow", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    stores.evictIdleStores();
+    CompletableFuture<CompletableFuture<String>> slowDispatch =
+        CompletableFuture.supplyAsync(() -> stores.dispatch("slow", oldState -> oldState + "2"));
+    decodeStarted.await();
+
+    //WHEN
+    String fastState = stores.dispatch("fast", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+
+    //THEN
+    assertThat(fastState, is("fast1"));
+    releaseDecode.countDown();
+    assertThat(slowDispatch.get().get(5, TimeUnit.SECONDS), is("slow12"));
+  }
+
+  @Test(timeout = 5000)
+  public void testEviction_shouldBeScheduledPeriodically() throws Exception {
+    //GIVEN
+    KeyedStores<String, String> stores = newStores(10, new SerializationCodec<>(), 10);
+    stores.dispatch("a", oldState -> oldState + "1").get(5, TimeUnit.SECONDS);
+
+    //WHEN
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    while (stores.getResidentStoreCount() > 0) {
+      Thread.sleep(10);
+    }
+
+    //THEN
+    assertThat(stores.getPassivationCount(), is(1L));
+    stores.close();
+  }
+
+  private KeyedStores<String, String> newStores(int maxResidentStores) {
+    return newStores(maxResidentStores, new SerializationCodec<>(), TimeUnit.HOURS.toMillis(1));
+  }
+
+  private KeyedStores<String, String> newStores(
+      int maxResidentStores, Codec<String> codec, long evictionPeriodMillis) {
+    return new KeyedStores<>(
+        runtime,
+        temporaryFolder.getRoot().toPath(),
+        codec,
+        key -> key,
+        maxResidentStores,
+        1000,
+        evictionPeriodMillis,
+        clock::get);
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    while (true) {
+      try {
+        latch.await();
+        return;
+      } catch (InterruptedException e) {
+        // keep waiting
+      }
+    }
+  }
+}
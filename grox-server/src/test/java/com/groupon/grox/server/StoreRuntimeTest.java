@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.grox.server;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class StoreRuntimeTest {
+
+  @Test
+  public void testDispatch_withManyStores_shouldExecuteAllActions() throws Exception {
+    //GIVEN
+    StoreRuntime runtime = new StoreRuntime(4);
+    List<MailboxStore<Integer>> stores = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      stores.add(runtime.newStore(0));
+    }
+
+    //WHEN
+    List<CompletableFuture<Integer>> lastResults = new ArrayList<>();
+    for (MailboxStore<Integer> store : stores) {
+      CompletableFuture<Integer> result = null;
+      for (int i = 0; i < 10; i++) {
+        result = store.dispatch(oldState -> oldState + 1);
+      }
+      lastResults.add(result);
+    }
+
+    //THEN
+    for (CompletableFuture<Integer> result : lastResults) {
+      assertThat(result.get(5, TimeUnit.SECONDS), is(10));
+    }
+    runtime.close();
+  }
+
+  @Test
+  public void testDispatch_whenDrainBatchLimitIsReached_shouldYieldToOtherStores()
+      throws Exception {
+    //GIVEN
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    CountDownLatch paused = new CountDownLatch(1);
+    executor.execute(() -> awaitQuietly(paused));
+    StoreRuntime runtime = new StoreRuntime(executor, 2);
+    MailboxStore<String> storeA = runtime.newStore("");
+    MailboxStore<String> storeB = runtime.newStore("");
+    List<String> executions = new CopyOnWriteArrayList<>();
+    CompletableFuture<String> lastA = null;
+    for (int i = 0; i < 6; i++) {
+      lastA = storeA.dispatch(oldState -> record(executions, "A", oldState));
+    }
+    CompletableFuture<String> lastB = null;
+    for (int i = 0; i < 2; i++) {
+      lastB = storeB.dispatch(oldState -> record(executions, "B", oldState));
+    }
+
+    //WHEN
+    paused.countDown();
+    lastA.get(5, TimeUnit.SECONDS);
+    lastB.get(5, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    //THEN
+    assertThat(String.join("", executions), is("AABBAAAA"));
+  }
+
+  @Test
+  public void testDispatch_whenRuntimeIsClosed_shouldFail() {
+    //GIVEN
+    StoreRuntime runtime = new StoreRuntime(1);
+    MailboxStore<Integer> store = runtime.newStore(0);
+
+    //WHEN
+    runtime.close();
+    CompletableFuture<Integer> result = store.dispatch(oldState -> oldState + 1);
+
+    //THEN
+    assertThat(result.isCompletedExceptionally(), is(true));
+    assertThat(store.getState(), is(0));
+  }
+
+  private static String record(List<String> executions, String name, String oldState) {
+    executions.add(name);
+    return oldState + name;
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}